@@ -25,7 +25,7 @@
 package jodd.jerry;
 
 import jodd.lagarto.dom.DOMBuilder;
-import jodd.lagarto.dom.Document;
+import jodd.lagarto.dom.Fragment;
 import jodd.lagarto.dom.Node;
 import jodd.lagarto.dom.NodeSelector;
 import jodd.lagarto.dom.NodeUtil;
@@ -36,6 +36,7 @@ import jodd.util.StringUtil;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -54,6 +55,8 @@ public class Jerry implements Iterable<Jerry> {
 	@SuppressWarnings("CloneableClassWithoutClone")
 	private static class NodeList extends ArrayList<Node> {
 
+		private final Set<Node> added = Collections.newSetFromMap(new IdentityHashMap<>());
+
 		private NodeList(final int initialCapacity) {
 			super(initialCapacity);
 		}
@@ -63,10 +66,8 @@ public class Jerry implements Iterable<Jerry> {
 
 		@Override
 		public boolean add(final Node o) {
-			for (final Node node : this) {
-				if (node == o) {
-					return false;
-				}
+			if (!added.add(o)) {
+				return false;
 			}
 			return super.add(o);
 		}
@@ -918,7 +919,7 @@ public class Jerry implements Iterable<Jerry> {
 			html = EMPTY;
 		}
 
-		final Document doc = builder.parse(html);
+		final Fragment fragment = new Fragment(builder.parse(html));
 
 		if (nodes.length == 0) {
 			return this;
@@ -926,11 +927,8 @@ public class Jerry implements Iterable<Jerry> {
 		for (final Node node : nodes) {
 			node.removeAllChilds();
 
-			// clone to preserve for next iteration
-			// as nodes will be detached from parent
-			final Document workingDoc = doc.clone();
-
-			node.addChild(workingDoc.getChildNodes());
+			// clone to preserve fragment for next iteration
+			node.addChild(fragment.cloneFor(node));
 		}
 		return this;
 	}
@@ -945,14 +943,13 @@ public class Jerry implements Iterable<Jerry> {
 		if (html == null) {
 			html = EMPTY;
 		}
-		final Document doc = builder.parse(html);
+		final Fragment fragment = new Fragment(builder.parse(html));
 
 		if (nodes.length == 0) {
 			return this;
 		}
 		for (final Node node : nodes) {
-			final Document workingDoc = doc.clone();
-			node.addChild(workingDoc.getChildNodes());
+			node.addChild(fragment.cloneFor(node));
 		}
 		return this;
 	}
@@ -965,14 +962,13 @@ public class Jerry implements Iterable<Jerry> {
 		if (html == null) {
 			html = EMPTY;
 		}
-		final Document doc = builder.parse(html);
+		final Fragment fragment = new Fragment(builder.parse(html));
 
 		if (nodes.length == 0) {
 			return this;
 		}
 		for (final Node node : nodes) {
-			final Document workingDoc = doc.clone();
-			node.insertChild(workingDoc.getChildNodes(), 0);
+			node.insertChild(fragment.cloneFor(node), 0);
 		}
 		return this;
 	}
@@ -985,13 +981,12 @@ public class Jerry implements Iterable<Jerry> {
 		if (html == null) {
 			html = EMPTY;
 		}
-		final Document doc = builder.parse(html);
+		final Fragment fragment = new Fragment(builder.parse(html));
 		if (nodes.length == 0) {
 			return this;
 		}
 		for (final Node node : nodes) {
-			final Document workingDoc = doc.clone();
-			node.insertBefore(workingDoc.getChildNodes(), node);
+			node.insertBefore(fragment.cloneFor(node), node);
 		}
 		return this;
 	}
@@ -1004,13 +999,12 @@ public class Jerry implements Iterable<Jerry> {
 		if (html == null) {
 			html = EMPTY;
 		}
-		final Document doc = builder.parse(html);
+		final Fragment fragment = new Fragment(builder.parse(html));
 		if (nodes.length == 0) {
 			return this;
 		}
 		for (final Node node : nodes) {
-			final Document workingDoc = doc.clone();
-			node.insertAfter(workingDoc.getChildNodes(), node);
+			node.insertAfter(fragment.cloneFor(node), node);
 		}
 		return this;
 	}
@@ -1023,24 +1017,24 @@ public class Jerry implements Iterable<Jerry> {
  		if (html == null) {
 		    html = EMPTY;
 	    }
-		final Document doc = builder.parse(html);
+		final Fragment fragment = new Fragment(builder.parse(html));
 
-		if (nodes.length == 0) {
+		if (nodes.length == 0 || fragment.getNodesCount() == 0) {
 			return this;
 		}
-		for (final Node node : nodes) {
-			final Node parent = node.getParentNode();
-			// if a node already is the root element, don't unwrap
-			if (parent == null) {
-				continue;
-			}
+		Node.batch(nodeEditor -> {
+			for (final Node node : nodes) {
+				final Node parent = node.getParentNode();
+				// if a node already is the root element, don't unwrap
+				if (parent == null) {
+					continue;
+				}
 
-			// replace, if possible
-			final Document workingDoc = doc.clone();
-			final int index = node.getSiblingIndex();
-			parent.insertChild(workingDoc.getFirstChild(), index);
-			node.detachFromParent();
-		}
+				// replace, if possible
+				nodeEditor.insertBefore(fragment.cloneFor(node)[0], node);
+				nodeEditor.remove(node);
+			}
+		});
 
 		return this;
 	}
@@ -1052,9 +1046,11 @@ public class Jerry implements Iterable<Jerry> {
 		if (nodes.length == 0) {
 			return this;
 		}
-		for (final Node node : nodes) {
-			node.detachFromParent();
-		}
+		Node.batch(nodeEditor -> {
+			for (final Node node : nodes) {
+				nodeEditor.remove(node);
+			}
+		});
 		return this;
 	}
 
@@ -1066,9 +1062,11 @@ public class Jerry implements Iterable<Jerry> {
 		if (nodes.length == 0) {
 			return this;
 		}
-		for (final Node node : nodes) {
-			node.detachFromParent();
-		}
+		Node.batch(nodeEditor -> {
+			for (final Node node : nodes) {
+				nodeEditor.remove(node);
+			}
+		});
 		return this;
 	}
 
@@ -1095,24 +1093,24 @@ public class Jerry implements Iterable<Jerry> {
 		if (html == null) {
 			html = EMPTY;
 		}
-		final Document doc = builder.parse(html);
+		final Fragment fragment = new Fragment(builder.parse(html));
 
-		if (nodes.length == 0) {
+		if (nodes.length == 0 || fragment.getNodesCount() == 0) {
 			return this;
 		}
-		for (final Node node : nodes) {
-			final Document workingDoc = doc.clone();
-			Node inmostNode = workingDoc;
-			while (inmostNode.hasChildNodes()) {
-				inmostNode = inmostNode.getFirstChild();
-			}
+		Node.batch(nodeEditor -> {
+			for (final Node node : nodes) {
+				final Node wrapper = fragment.cloneFor(node)[0];
+				Node inmostNode = wrapper;
+				while (inmostNode.hasChildNodes()) {
+					inmostNode = inmostNode.getFirstChild();
+				}
 
-			// replace
-			final Node parent = node.getParentNode();
-			final int index = node.getSiblingIndex();
-			inmostNode.addChild(node);
-			parent.insertChild(workingDoc.getFirstChild(), index);
-		}
+				// replace
+				nodeEditor.insertBefore(wrapper, node);
+				nodeEditor.append(inmostNode, node);
+			}
+		});
 
 		return this;
 	}
@@ -1120,29 +1118,37 @@ public class Jerry implements Iterable<Jerry> {
 	/**
 	 * Remove the parents of the set of matched elements from the DOM, leaving 
 	 * the matched elements (and siblings, if any) in their place. 
+	 * Parent shared by several matched elements is removed once.
 	 */
 	public Jerry unwrap() {
 		if (nodes.length == 0) {
 			return this;
 		}
-		for (final Node node : nodes) {
-			final Node parent = node.getParentNode();
-			// if a node already is the root element, don't unwrap
-			if (parent == null) {
-				continue;
-			}
+		final Set<Node> unwrapped = Collections.newSetFromMap(new IdentityHashMap<>());
 
-			// replace, if possible
-			final Node grandparent = parent.getParentNode();
-			if (grandparent == null) {
-				continue;
-			}
+		Node.batch(nodeEditor -> {
+			for (final Node node : nodes) {
+				final Node parent = node.getParentNode();
+				// if a node already is the root element, don't unwrap
+				if (parent == null) {
+					continue;
+				}
 
-			final Node[] siblings = parent.getChildNodes();
-			final int index = parent.getSiblingIndex();
-			grandparent.insertChild(siblings, index);
-			parent.detachFromParent();
-		}
+				// replace, if possible
+				final Node grandparent = parent.getParentNode();
+				if (grandparent == null) {
+					continue;
+				}
+
+				// siblings share the parent, unwrap it once
+				if (!unwrapped.add(parent)) {
+					continue;
+				}
+
+				nodeEditor.insertBefore(parent.getChildNodes(), parent);
+				nodeEditor.remove(parent);
+			}
+		});
 
 		return this;
 	}
@@ -129,18 +129,58 @@ public class LagartoParser {
 	 * Parses content and emits event to provided {@link TagVisitor}.
 	 */
 	public void parse(final TagVisitor visitor) {
+		parseStart(visitor);
+
+		while (parsing) {
+			state.parse();
+		}
+
+		parseEnd();
+	}
+
+	/**
+	 * Starts incremental parsing. Content is parsed step by step,
+	 * by invoking {@link #parseNext()}, so parsing may be paused
+	 * or stopped at any time.
+	 */
+	public void parseStart(final TagVisitor visitor) {
 		tag.init(config.caseSensitive);
 
 		this.visitor = visitor;
+		this.tokenStart = 0;
+		this.tokenEnd = 0;
+		this.tokenValue = null;
 
 		visitor.start();
 
 		parsing = true;
+	}
 
-		while (parsing) {
-			state.parse();
+	/**
+	 * Runs a single step of the parser state machine. A step emits
+	 * no events or just a few of them, usually a token and the text
+	 * that precedes it. Returns {@code false} when the whole content
+	 * is parsed; visitor is ended at that moment.
+	 */
+	public boolean parseNext() {
+		if (!parsing) {
+			return false;
 		}
 
+		state.parse();
+
+		if (parsing) {
+			return true;
+		}
+
+		parseEnd();
+		return false;
+	}
+
+	/**
+	 * Emits the remaining text and ends the visitor.
+	 */
+	protected void parseEnd() {
 		emitText();
 
 		visitor.end();
@@ -906,10 +946,12 @@ public class LagartoParser {
 				commentEndNdx = in.total;
 			}
 
-			emitComment(in.ndx, commentEndNdx);
+			final int commentStartNdx = in.ndx;
+			in.ndx = commentEndNdx;
+
+			emitComment(commentStartNdx, commentEndNdx);
 
 			state = DATA_STATE;
-			in.ndx = commentEndNdx;
 		}
 	};
 
@@ -947,10 +989,12 @@ public class LagartoParser {
 
 					final CharSequence expression = in.subSequence(in.ndx + 1, ccEndNdx);
 
+					in.ndx = ccEndNdx + 1;
+
 					conditionalCommentStarted = true;
+					markToken(in.ndx + 1, expression);
 					visitor.condComment(expression, true, false, false);
 
-					in.ndx = ccEndNdx + 1;
 					state = DATA_STATE;
 					return;
 				}
@@ -965,6 +1009,9 @@ public class LagartoParser {
 						ccEndNdx = in.total;
 					}
 
+					in.ndx = ccEndNdx;
+
+					markToken(in.ndx + 1, _ENDIF);
 					if (in.match(COMMENT_DASH, ccEndNdx - 2)) {
 						// downlevel-hidden ending tag
 						visitor.condComment(_ENDIF, false, true, false);
@@ -973,7 +1020,6 @@ public class LagartoParser {
 					}
 					conditionalCommentStarted = false;
 
-					in.ndx = ccEndNdx;
 					state = DATA_STATE;
 					return;
 				}
@@ -1085,7 +1131,7 @@ public class LagartoParser {
 				if (equalsOne(c, TAG_WHITESPACES)) {
 					if (isAppropriateTagName(rawTagName, rawtextEndTagNameStartNdx, in.ndx)) {
 						textEmitChars(rawTextStart, rawTextEnd);
-						emitText();
+						emitText(rawTextEnd);
 
 						state = BEFORE_ATTRIBUTE_NAME;
 						tag.start(rawTextEnd);
@@ -1100,7 +1146,7 @@ public class LagartoParser {
 				if (c == '/') {
 					if (isAppropriateTagName(rawTagName, rawtextEndTagNameStartNdx, in.ndx)) {
 						textEmitChars(rawTextStart, rawTextEnd);
-						emitText();
+						emitText(rawTextEnd);
 
 						state = SELF_CLOSING_START_TAG;
 						tag.start(rawTextEnd);
@@ -1115,7 +1161,7 @@ public class LagartoParser {
 				if (c == '>') {
 					if (isAppropriateTagName(rawTagName, rawtextEndTagNameStartNdx, in.ndx)) {
 						textEmitChars(rawTextStart, rawTextEnd);
-						emitText();
+						emitText(rawTextEnd);
 
 						state = DATA_STATE;
 						tag.start(rawTextEnd);
@@ -1236,7 +1282,7 @@ public class LagartoParser {
 
 				if (equalsOne(c, TAG_WHITESPACES)) {
 					if (isAppropriateTagName(rcdataTagName, rcdataEndTagNameStartNdx, in.ndx)) {
-						emitText();
+						emitText(rcdataTagStart);
 
 						state = BEFORE_ATTRIBUTE_NAME;
 						tag.start(rcdataTagStart);
@@ -1251,7 +1297,7 @@ public class LagartoParser {
 
 				if (c == '/') {
 					if (isAppropriateTagName(rcdataTagName, rcdataEndTagNameStartNdx, in.ndx)) {
-						emitText();
+						emitText(rcdataTagStart);
 
 						state = SELF_CLOSING_START_TAG;
 						tag.start(rcdataTagStart);
@@ -1266,7 +1312,7 @@ public class LagartoParser {
 
 				if (c == '>') {
 					if (isAppropriateTagName(rcdataTagName, rcdataEndTagNameStartNdx, in.ndx)) {
-						emitText();
+						emitText(rcdataTagStart);
 
 						state = DATA_STATE;
 						tag.start(rcdataTagStart);
@@ -2834,10 +2880,10 @@ public class LagartoParser {
 
 				final CharSequence cdata = in.subSequence(in.ndx, cdataEndNdx);
 
-				emitCData(cdata);
-
 				in.ndx = cdataEndNdx + 2;
 
+				emitCData(cdata);
+
 				state = DATA_STATE;
 			}
 		};
@@ -2971,6 +3017,7 @@ public class LagartoParser {
 			tag.increaseDeepLevel();
 		}
 
+		markToken(in.ndx + 1, tag);
 		visitor.tag(tag);
 
 		if (tag.getType().isEndingTag()) {
@@ -2986,6 +3033,7 @@ public class LagartoParser {
 	protected void emitComment(final int from, final int to) {
 		if (from == -1) {
 			// special case when `from` is `-1` in invalid comment
+			markToken(in.ndx + 1, CharArrayInput.EMPTY_CHAR_SEQUENCE);
 			visitor.comment(CharArrayInput.EMPTY_CHAR_SEQUENCE);
 			return;
 		}
@@ -2998,6 +3046,7 @@ public class LagartoParser {
 					// wrong syntax for CC, then it's just a comment
 					// meh, the code repeats, see the end of the method.
 					final CharSequence comment = in.subSequence(from, to);
+					markToken(in.ndx + 1, comment);
 					visitor.comment(comment);
 					commentStart = -1;
 					return;
@@ -3014,6 +3063,7 @@ public class LagartoParser {
 				}
 
 				conditionalCommentStarted = true;
+				markToken(in.ndx + 1, expression);
 				visitor.condComment(expression, true, true, false);
 
 				state = DATA_STATE;
@@ -3022,6 +3072,7 @@ public class LagartoParser {
 
 			if (to > CC_ENDIF2.length && in.match(CC_ENDIF2, to - CC_ENDIF2.length) && conditionalCommentStarted) {
 				// CC: downlevel-hidden ending
+				markToken(in.ndx + 1, _ENDIF);
 				visitor.condComment(_ENDIF, false, true, true);
 				conditionalCommentStarted = false;
 
@@ -3032,6 +3083,7 @@ public class LagartoParser {
 
 		// just a comment
 		final CharSequence comment = in.subSequence(from, to);
+		markToken(in.ndx + 1, comment);
 		visitor.comment(comment);
 		commentStart = -1;
 	}
@@ -3040,8 +3092,18 @@ public class LagartoParser {
 	 * Emits text if there is some content.
 	 */
 	protected void emitText() {
+		emitText(in.ndx);
+	}
+
+	/**
+	 * Emits text if there is some content. Text ends
+	 * in the input on given index.
+	 */
+	protected void emitText(final int textEndNdx) {
 		if (textLen != 0) {
-			visitor.text(textWrap());
+			final CharSequence textValue = textWrap();
+			markToken(textEndNdx, textValue);
+			visitor.text(textValue);
 		}
 		textLen = 0;
 	}
@@ -3050,7 +3112,9 @@ public class LagartoParser {
 		tag.increaseDeepLevel();
 
 		tag.setRawTag(true);
-		visitor.script(tag, in.subSequence(from, to));
+		final CharSequence body = in.subSequence(from, to);
+		markToken(in.ndx + 1, body);
+		visitor.script(tag, body);
 
 		tag.decreaseDeepLevel();
 		scriptStartNdx = -1;
@@ -3058,21 +3122,72 @@ public class LagartoParser {
 	}
 
 	protected void emitDoctype() {
+		markToken(in.ndx + 1, doctype);
 		visitor.doctype(doctype);
 
 		doctype.reset();
 	}
 
 	protected void emitXml() {
+		markToken(in.ndx + 1, xmlDeclaration.version);
 		visitor.xml(xmlDeclaration.version, xmlDeclaration.encoding, xmlDeclaration.standalone);
 
 		xmlDeclaration.reset();
 	}
 
 	protected void emitCData(final CharSequence charSequence) {
+		markToken(in.ndx + 1, charSequence);
 		visitor.cdata(charSequence);
 	}
 
+	// ---------------------------------------------------------------- token
+
+	protected int tokenStart;
+	protected int tokenEnd;
+	protected Object tokenValue;
+
+	/**
+	 * Marks the input range of the token that is going to be emitted.
+	 * Tokens are adjacent: each one starts where the previous one ended,
+	 * so all the input is covered by the emitted tokens.
+	 */
+	protected void markToken(final int endNdx, final Object value) {
+		tokenStart = tokenEnd;
+		tokenEnd = Math.min(endNdx, in.total);
+		tokenValue = value;
+	}
+
+	/**
+	 * Returns the parsed input.
+	 */
+	public CharSequence getInput() {
+		return in;
+	}
+
+	/**
+	 * Returns the input index where the last emitted token starts.
+	 */
+	public int getTokenStart() {
+		return tokenStart;
+	}
+
+	/**
+	 * Returns the input index where the last emitted token ends.
+	 */
+	public int getTokenEnd() {
+		return tokenEnd;
+	}
+
+	/**
+	 * Returns the value emitted with the last token: the {@link Tag} instance,
+	 * text, comment, script body, {@link Doctype} etc. Visitors may compare
+	 * received values by identity to detect whether the token was modified
+	 * by adapters placed between the parser and the visitor.
+	 */
+	public Object getTokenValue() {
+		return tokenValue;
+	}
+
 	// ---------------------------------------------------------------- error
 
 	protected void errorEOF() {
@@ -101,6 +101,10 @@ class ParsedTag implements Tag {
 		deepLevel--;
 	}
 
+	void setDeepLevel(final int deepLevel) {
+		this.deepLevel = deepLevel;
+	}
+
 	// ---------------------------------------------------------------- flags
 
 	@Override
@@ -296,6 +300,8 @@ class ParsedTag implements Tag {
 	@Override
 	public void removeAttributes() {
 		attributesCount = 0;
+		idNdx = -1;
+		modified = true;
 	}
 
 	@Override
@@ -0,0 +1,426 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.util.CharSequenceUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Records all visitor events in a compact binary format, so they can be
+ * {@link TokenStreamReplayer replayed} later without parsing the input again.
+ * Names of tags and attributes are interned and written only once. When created
+ * with the parser, all values that are found in the input are written as
+ * offsets into the input and the replay requires the same input. Other values,
+ * like decoded text, are always written as inline blocks.
+ */
+public class TokenStreamRecorder implements TagVisitor {
+
+	static final byte[] MAGIC = {'L', 'T', 'S', 1};
+	static final int FLAG_SOURCE = 1;
+
+	static final int END = 0;
+	static final int TAG = 1;
+	static final int SCRIPT = 2;
+	static final int TEXT = 3;
+	static final int COMMENT = 4;
+	static final int CDATA = 5;
+	static final int XML = 6;
+	static final int DOCTYPE = 7;
+	static final int COND_COMMENT = 8;
+	static final int ERROR = 9;
+
+	static final int TAG_RAW = 1;
+	static final int TAG_CASE_SENSITIVE = 2;
+
+	protected final LagartoParser parser;
+	protected CharSequence source;
+
+	protected byte[] buffer = new byte[1024];
+	protected int size;
+
+	protected String[] names = new String[256];
+	protected int[] nameIds = new int[256];
+	protected int namesCount;
+
+	protected int position;
+	protected int tokenStart;
+	protected int tokenEnd;
+	protected int cursor;
+
+	/**
+	 * Creates recorder of self-contained recordings.
+	 */
+	public TokenStreamRecorder() {
+		this(null);
+	}
+
+	/**
+	 * Creates recorder that references the parsers input.
+	 */
+	public TokenStreamRecorder(final LagartoParser parser) {
+		this.parser = parser;
+	}
+
+	// ---------------------------------------------------------------- output
+
+	/**
+	 * Returns the size of the recording.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the copy of the recording.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	/**
+	 * Writes the recording to the output stream.
+	 */
+	public void writeTo(final OutputStream out) {
+		try {
+			out.write(buffer, 0, size);
+		}
+		catch (final IOException ioex) {
+			throw new LagartoException(ioex);
+		}
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		size = 0;
+		position = 0;
+		namesCount = 0;
+		Arrays.fill(names, null);
+
+		source = parser != null ? parser.getInput() : null;
+
+		for (final byte b : MAGIC) {
+			writeByte(b);
+		}
+		if (source != null) {
+			writeByte(FLAG_SOURCE);
+			writeInt(source.length());
+		}
+		else {
+			writeByte(0);
+		}
+	}
+
+	@Override
+	public void end() {
+		writeByte(END);
+	}
+
+	@Override
+	public void doctype(final Doctype doctype) {
+		startToken(DOCTYPE);
+		writeChars(doctype.getName());
+		writeChars(doctype.getPublicIdentifier());
+		writeChars(doctype.getSystemIdentifier());
+		writeByte(doctype.isQuirksMode() ? 1 : 0);
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		startTag(TAG, tag);
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		startTag(SCRIPT, tag);
+		writeChars(body);
+	}
+
+	@Override
+	public void comment(final CharSequence comment) {
+		startToken(COMMENT);
+		writeChars(comment);
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		startToken(TEXT);
+		writeChars(text);
+	}
+
+	@Override
+	public void condComment(final CharSequence expression, final boolean isStartingTag, final boolean isHidden, final boolean isHiddenEndTag) {
+		startToken(COND_COMMENT);
+		writeChars(expression);
+		writeByte((isStartingTag ? 1 : 0) | (isHidden ? 2 : 0) | (isHiddenEndTag ? 4 : 0));
+	}
+
+	@Override
+	public void xml(final CharSequence version, final CharSequence encoding, final CharSequence standalone) {
+		startToken(XML);
+		writeChars(version);
+		writeChars(encoding);
+		writeChars(standalone);
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		startToken(CDATA);
+		writeChars(cdata);
+	}
+
+	@Override
+	public void error(final String message) {
+		writeByte(ERROR);
+		writeInline(message);
+	}
+
+	// ---------------------------------------------------------------- events
+
+	/**
+	 * Writes event and the position of the current token.
+	 */
+	protected void startToken(final int event) {
+		if (parser != null) {
+			startToken(event, parser.getTokenStart(), parser.getTokenEnd());
+		}
+		else {
+			startToken(event, position, position);
+		}
+	}
+
+	protected void startToken(final int event, final int start, final int end) {
+		writeByte(event);
+		writeInt(zigzag(start - position));
+
+		position = start;
+		tokenStart = start;
+		tokenEnd = end;
+		cursor = start;
+	}
+
+	/**
+	 * Writes tag or script event.
+	 */
+	protected void startTag(final int event, final Tag tag) {
+		final int tagPosition = tag.getTagPosition();
+		final int tagLength = tag.getTagLength();
+
+		startToken(event, tagPosition, tagPosition + tagLength);
+
+		writeInt(tagLength);
+		writeByte((tag.isRawTag() ? TAG_RAW : 0) | (tag.isCaseSensitive() ? TAG_CASE_SENSITIVE : 0));
+		writeByte(tag.getType().ordinal());
+		writeInt(tag.getDeepLevel());
+		writeName(tag.getName());
+
+		final int count = tag.getAttributeCount();
+		writeInt(count);
+		for (int i = 0; i < count; i++) {
+			writeName(tag.getAttributeName(i));
+			writeChars(tag.getAttributeValue(i));
+		}
+	}
+
+	// ---------------------------------------------------------------- values
+
+	/**
+	 * Writes interned name. Zero is followed by the inline name, that gets the next id.
+	 */
+	protected void writeName(final CharSequence name) {
+		final int hash = hash(name);
+		int ndx = hash & (names.length - 1);
+
+		while (true) {
+			final String existing = names[ndx];
+			if (existing == null) {
+				break;
+			}
+			if (CharSequenceUtil.equals(existing, name)) {
+				writeInt(nameIds[ndx]);
+				return;
+			}
+			ndx = (ndx + 1) & (names.length - 1);
+		}
+
+		namesCount++;
+		names[ndx] = name.toString();
+		nameIds[ndx] = namesCount;
+
+		if (namesCount * 2 > names.length) {
+			rehashNames();
+		}
+
+		writeInt(0);
+		writeInline(name);
+	}
+
+	private void rehashNames() {
+		final String[] oldNames = names;
+		final int[] oldIds = nameIds;
+
+		names = new String[oldNames.length << 1];
+		nameIds = new int[names.length];
+
+		for (int i = 0; i < oldNames.length; i++) {
+			final String name = oldNames[i];
+			if (name == null) {
+				continue;
+			}
+			int ndx = hash(name) & (names.length - 1);
+			while (names[ndx] != null) {
+				ndx = (ndx + 1) & (names.length - 1);
+			}
+			names[ndx] = name;
+			nameIds[ndx] = oldIds[i];
+		}
+	}
+
+	private static int hash(final CharSequence name) {
+		int hash = 0;
+		final int length = name.length();
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + name.charAt(i);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Writes nullable value. Header is zero for {@code null}, otherwise
+	 * it is {@code (length << 1 | isReference) + 1}. References are followed
+	 * by the offset relative to the tokens start.
+	 */
+	protected void writeChars(final CharSequence value) {
+		if (value == null) {
+			writeInt(0);
+			return;
+		}
+
+		final int length = value.length();
+
+		if (source != null && length != 0) {
+			final int offset = find(value);
+			if (offset != -1) {
+				writeInt(((length << 1) | 1) + 1);
+				writeInt(offset - tokenStart);
+				cursor = offset + length;
+				return;
+			}
+		}
+
+		writeInt((length << 1) + 1);
+		writeChars(value, length);
+	}
+
+	/**
+	 * Finds the value in the current token, starting from the cursor.
+	 */
+	protected int find(final CharSequence value) {
+		final int length = value.length();
+		final int last = tokenEnd - length;
+		final char first = value.charAt(0);
+
+		loop:
+		for (int i = cursor; i <= last; i++) {
+			if (source.charAt(i) != first) {
+				continue;
+			}
+			for (int j = 1; j < length; j++) {
+				if (source.charAt(i + j) != value.charAt(j)) {
+					continue loop;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	protected void writeInline(final CharSequence value) {
+		final int length = value.length();
+		writeInt(length);
+		writeChars(value, length);
+	}
+
+	/**
+	 * Writes characters, each one as 1 to 3 bytes.
+	 */
+	protected void writeChars(final CharSequence value, final int length) {
+		ensureCapacity(length * 3);
+
+		final byte[] buf = buffer;
+		int ndx = size;
+
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c < 0x80) {
+				buf[ndx++] = (byte) c;
+			}
+			else if (c < 0x800) {
+				buf[ndx++] = (byte) (0xC0 | (c >> 6));
+				buf[ndx++] = (byte) (0x80 | (c & 0x3F));
+			}
+			else {
+				buf[ndx++] = (byte) (0xE0 | (c >> 12));
+				buf[ndx++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buf[ndx++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		size = ndx;
+	}
+
+	// ---------------------------------------------------------------- bytes
+
+	protected void writeByte(final int value) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) value;
+	}
+
+	/**
+	 * Writes unsigned variable-length integer.
+	 */
+	protected void writeInt(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+	}
+
+	private static int zigzag(final int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	protected void ensureCapacity(final int length) {
+		if (size + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + length));
+		}
+	}
+}
@@ -0,0 +1,281 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static jodd.lagarto.TokenStreamRecorder.CDATA;
+import static jodd.lagarto.TokenStreamRecorder.COMMENT;
+import static jodd.lagarto.TokenStreamRecorder.COND_COMMENT;
+import static jodd.lagarto.TokenStreamRecorder.DOCTYPE;
+import static jodd.lagarto.TokenStreamRecorder.END;
+import static jodd.lagarto.TokenStreamRecorder.ERROR;
+import static jodd.lagarto.TokenStreamRecorder.FLAG_SOURCE;
+import static jodd.lagarto.TokenStreamRecorder.MAGIC;
+import static jodd.lagarto.TokenStreamRecorder.SCRIPT;
+import static jodd.lagarto.TokenStreamRecorder.TAG;
+import static jodd.lagarto.TokenStreamRecorder.TAG_CASE_SENSITIVE;
+import static jodd.lagarto.TokenStreamRecorder.TAG_RAW;
+import static jodd.lagarto.TokenStreamRecorder.TEXT;
+import static jodd.lagarto.TokenStreamRecorder.XML;
+
+/**
+ * Replays events {@link TokenStreamRecorder recorded} earlier to any {@link TagVisitor}.
+ * Recording may be replayed many times, even concurrently. Recordings that
+ * reference the input require the same input to be provided.
+ */
+public class TokenStreamReplayer {
+
+	private static final TagType[] TAG_TYPES = TagType.values();
+
+	protected final ByteBuffer data;
+	protected final CharSequence source;
+
+	public TokenStreamReplayer(final byte[] data) {
+		this(ByteBuffer.wrap(data), null);
+	}
+
+	public TokenStreamReplayer(final byte[] data, final char[] source) {
+		this(ByteBuffer.wrap(data), CharBuffer.wrap(source));
+	}
+
+	public TokenStreamReplayer(final byte[] data, final CharSequence source) {
+		this(ByteBuffer.wrap(data), source);
+	}
+
+	public TokenStreamReplayer(final ByteBuffer data, final CharSequence source) {
+		this.data = data;
+		this.source = source;
+	}
+
+	/**
+	 * Creates replayer of the memory-mapped recording file.
+	 */
+	public static TokenStreamReplayer map(final File file, final CharSequence source) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final FileChannel channel = raf.getChannel();
+			return new TokenStreamReplayer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), source);
+		}
+		catch (final IOException ioex) {
+			throw new LagartoException(ioex);
+		}
+	}
+
+	/**
+	 * Replays the recording to the visitor.
+	 */
+	public void replay(final TagVisitor visitor) {
+		new Replay(data.duplicate(), visitor).run();
+	}
+
+	/**
+	 * Single replay, holds the reading state.
+	 */
+	protected class Replay {
+
+		protected final ByteBuffer in;
+		protected final TagVisitor visitor;
+		protected final ParsedTag tag = new ParsedTag();
+		protected final ParsedDoctype doctype = new ParsedDoctype();
+
+		protected String[] names = new String[64];
+		protected int namesCount;
+		protected char[] chars = new char[256];
+		protected int position;
+		protected boolean hasSource;
+
+		protected Replay(final ByteBuffer in, final TagVisitor visitor) {
+			this.in = in;
+			this.visitor = visitor;
+		}
+
+		protected void run() {
+			for (final byte b : MAGIC) {
+				if (in.get() != b) {
+					throw new LagartoException("Invalid token stream recording");
+				}
+			}
+
+			hasSource = (in.get() & FLAG_SOURCE) != 0;
+
+			if (hasSource) {
+				final int sourceLength = readInt();
+				if (source == null || source.length() != sourceLength) {
+					throw new LagartoException("Recording requires the recorded input");
+				}
+			}
+
+			visitor.start();
+
+			while (true) {
+				final int event = in.get();
+
+				switch (event) {
+					case END:
+						visitor.end();
+						return;
+					case TAG:
+						readTag();
+						visitor.tag(tag);
+						break;
+					case SCRIPT:
+						readTag();
+						visitor.script(tag, readChars());
+						break;
+					case TEXT:
+						readPosition();
+						visitor.text(readChars());
+						break;
+					case COMMENT:
+						readPosition();
+						visitor.comment(readChars());
+						break;
+					case CDATA:
+						readPosition();
+						visitor.cdata(readChars());
+						break;
+					case XML:
+						readPosition();
+						visitor.xml(readChars(), readChars(), readChars());
+						break;
+					case DOCTYPE:
+						readPosition();
+						doctype.reset();
+						doctype.name = readChars();
+						doctype.publicIdentifier = readChars();
+						doctype.systemIdentifier = readChars();
+						doctype.quirksMode = in.get() != 0;
+						visitor.doctype(doctype);
+						break;
+					case COND_COMMENT:
+						readPosition();
+						final CharSequence expression = readChars();
+						final int flags = in.get();
+						visitor.condComment(expression, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0);
+						break;
+					case ERROR:
+						visitor.error(readString(readInt()));
+						break;
+					default:
+						throw new LagartoException("Invalid token stream event: " + event);
+				}
+			}
+		}
+
+		protected void readPosition() {
+			final int delta = readInt();
+			position += (delta >>> 1) ^ -(delta & 1);
+		}
+
+		protected void readTag() {
+			readPosition();
+
+			final int length = readInt();
+			final int flags = in.get();
+
+			tag.init((flags & TAG_CASE_SENSITIVE) != 0);
+			tag.start(position);
+			tag.setRawTag((flags & TAG_RAW) != 0);
+			tag.setType(TAG_TYPES[in.get()]);
+			tag.setDeepLevel(readInt());
+			tag.setName(readName());
+
+			final int count = readInt();
+			for (int i = 0; i < count; i++) {
+				tag.addAttribute(readName(), readChars());
+			}
+
+			tag.end(position + length);
+		}
+
+		protected String readName() {
+			final int id = readInt();
+			if (id != 0) {
+				return names[id - 1];
+			}
+			final String name = readString(readInt());
+			if (namesCount == names.length) {
+				names = Arrays.copyOf(names, namesCount << 1);
+			}
+			names[namesCount++] = name;
+			return name;
+		}
+
+		protected CharSequence readChars() {
+			final int header = readInt();
+			if (header == 0) {
+				return null;
+			}
+			final int length = (header - 1) >>> 1;
+
+			if (((header - 1) & 1) != 0) {
+				final int offset = position + readInt();
+				return source.subSequence(offset, offset + length);
+			}
+			return readString(length);
+		}
+
+		protected String readString(final int length) {
+			if (length > chars.length) {
+				chars = new char[Math.max(length, chars.length << 1)];
+			}
+
+			final char[] buf = chars;
+			for (int i = 0; i < length; i++) {
+				final int b = in.get() & 0xFF;
+				if (b < 0x80) {
+					buf[i] = (char) b;
+				}
+				else if (b < 0xE0) {
+					buf[i] = (char) (((b & 0x1F) << 6) | (in.get() & 0x3F));
+				}
+				else {
+					buf[i] = (char) (((b & 0x0F) << 12) | ((in.get() & 0x3F) << 6) | (in.get() & 0x3F));
+				}
+			}
+			return new String(buf, 0, length);
+		}
+
+		protected int readInt() {
+			int value = 0;
+			int shift = 0;
+			while (true) {
+				final int b = in.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+				shift += 7;
+			}
+		}
+	}
+}
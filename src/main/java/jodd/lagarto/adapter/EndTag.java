@@ -0,0 +1,189 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.lagarto.LagartoException;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.util.CharSequenceUtil;
+
+import java.io.IOException;
+
+/**
+ * End tag without attributes, used by adapters that emit end tags
+ * which are not present in the input. Changing the type or adding
+ * attributes is ignored, so adapters down the chain may normalize
+ * tags without checking where they come from.
+ */
+class EndTag implements Tag {
+
+	protected CharSequence name;
+	protected boolean caseSensitive;
+
+	@Override
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	@Override
+	public boolean isRawTag() {
+		return false;
+	}
+
+	@Override
+	public CharSequence getName() {
+		return name;
+	}
+
+	@Override
+	public TagType getType() {
+		return TagType.END;
+	}
+
+	@Override
+	public CharSequence getId() {
+		return null;
+	}
+
+	@Override
+	public int getDeepLevel() {
+		return 0;
+	}
+
+	@Override
+	public int getAttributeCount() {
+		return 0;
+	}
+
+	@Override
+	public CharSequence getAttributeName(final int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	@Override
+	public CharSequence getAttributeValue(final int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	@Override
+	public CharSequence getAttributeValue(final CharSequence name) {
+		return null;
+	}
+
+	@Override
+	public int getAttributeIndex(final CharSequence name) {
+		return -1;
+	}
+
+	@Override
+	public boolean hasAttribute(final CharSequence name) {
+		return false;
+	}
+
+	@Override
+	public int getTagPosition() {
+		return -1;
+	}
+
+	@Override
+	public int getTagLength() {
+		return 0;
+	}
+
+	@Override
+	public String getPosition() {
+		return null;
+	}
+
+	@Override
+	public void setName(final CharSequence tagName) {
+		this.name = tagName;
+	}
+
+	@Override
+	public void setType(final TagType type) {
+	}
+
+	@Override
+	public void addAttribute(final CharSequence name, final CharSequence value) {
+	}
+
+	@Override
+	public void setAttribute(final CharSequence name, final CharSequence value) {
+	}
+
+	@Override
+	public void setAttributeValue(final int index, final CharSequence value) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	@Override
+	public void setAttributeValue(final CharSequence name, final CharSequence value) {
+	}
+
+	@Override
+	public void setAttributeName(final int index, final CharSequence name) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	@Override
+	public void removeAttribute(final int index) {
+		throw new IndexOutOfBoundsException();
+	}
+
+	@Override
+	public void removeAttribute(final CharSequence name) {
+	}
+
+	@Override
+	public void removeAttributes() {
+	}
+
+	@Override
+	public boolean isModified() {
+		return true;
+	}
+
+	@Override
+	public boolean nameEquals(final CharSequence charSequence) {
+		return caseSensitive ? CharSequenceUtil.equals(name, charSequence) : CharSequenceUtil.equalsIgnoreCase(name, charSequence);
+	}
+
+	@Override
+	public void writeTo(final Appendable out) {
+		try {
+			out.append("</").append(name).append('>');
+		}
+		catch (final IOException ioex) {
+			throw new LagartoException(ioex);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "</" + name + '>';
+	}
+}
@@ -0,0 +1,322 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagAdapter;
+import jodd.lagarto.TagVisitor;
+import jodd.lagarto.TokenStreamRecorder;
+import jodd.lagarto.TokenStreamReplayer;
+import jodd.lagarto.select.OpenElement;
+import jodd.lagarto.select.OpenElementStack;
+import jodd.lagarto.select.StreamSelector;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming HTML rewriter. Element handlers are registered for
+ * {@link StreamSelector CSS selectors} and invoked when matching elements are opened.
+ * Handlers may change the attributes, insert the HTML content, remove the elements
+ * or rewrite the text. Everything is done in a single pass, without building
+ * the DOM tree; memory usage depends only on the nesting depth.
+ * Use it together with the {@link jodd.lagarto.visitor.PassthroughTagWriter}
+ * to keep the untouched input as it is.
+ */
+public class HtmlRewriterTagAdapter extends TagAdapter {
+
+	/**
+	 * Maximal number of parsed HTML contents kept for the replay.
+	 */
+	protected static final int MAX_FRAGMENTS = 64;
+
+	protected final List<StreamSelector> selectors = new ArrayList<>();
+	protected final List<Consumer<RewritableElement>> handlers = new ArrayList<>();
+	protected final OpenElementStack stack = new OpenElementStack();
+	protected final OpenElementStack.Handler elementHandler = new ElementHandler();
+	protected final TagVisitor contentVisitor;
+
+	protected final TokenStreamRecorder fragmentRecorder = new TokenStreamRecorder();
+	protected final Map<String, TokenStreamReplayer> fragments = new LinkedHashMap<String, TokenStreamReplayer>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, TokenStreamReplayer> eldest) {
+			return size() > MAX_FRAGMENTS;
+		}
+	};
+
+	protected RewritableElement[] elements = new RewritableElement[16];
+	protected int removeDepth;
+	protected int textRewriters;
+
+	public HtmlRewriterTagAdapter(final TagVisitor target) {
+		super(target);
+		this.contentVisitor = new TagAdapter(target) {
+			@Override
+			public void start() {
+			}
+			@Override
+			public void end() {
+			}
+		};
+	}
+
+	/**
+	 * Registers element handler for given CSS query.
+	 */
+	public HtmlRewriterTagAdapter on(final String query, final Consumer<RewritableElement> handler) {
+		selectors.add(new StreamSelector(query));
+		handlers.add(handler);
+		return this;
+	}
+
+	/**
+	 * Returns the stack of open elements, so it can be configured.
+	 */
+	public OpenElementStack getOpenElementStack() {
+		return stack;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		stack.reset();
+		removeDepth = 0;
+		textRewriters = 0;
+		super.start();
+	}
+
+	@Override
+	public void end() {
+		stack.end(elementHandler);
+		super.end();
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		if (!stack.tag(tag, elementHandler)) {
+			// orphan end tag
+			if (removeDepth == 0) {
+				super.tag(tag);
+			}
+		}
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		if (removeDepth != 0) {
+			return;
+		}
+		final RewritableElement element = startElement(stack.push(tag), tag);
+
+		if (element.removeTags) {
+			if (!element.removeContent) {
+				// tags are removed, the body is kept as the text; it is wrapped,
+				// so passthrough writers do not copy the whole script element
+				emit(element.prepend);
+				text(CharBuffer.wrap(body));
+				emit(element.append);
+			}
+		}
+		else {
+			if (element.removeContent || element.prepend.length() != 0 || element.append.length() != 0) {
+				final StringBuilder newBody = new StringBuilder();
+				newBody.append(element.prepend);
+				if (!element.removeContent) {
+					newBody.append(body);
+				}
+				newBody.append(element.append);
+				super.script(tag, newBody);
+			}
+			else {
+				super.script(tag, body);
+			}
+		}
+
+		emit(element.after);
+
+		if (element.textRewriter != null) {
+			textRewriters--;
+		}
+		stack.pop();
+	}
+
+	@Override
+	public void text(CharSequence text) {
+		if (removeDepth != 0) {
+			return;
+		}
+		if (textRewriters != 0) {
+			final int size = stack.size();
+			for (int i = 0; i < size; i++) {
+				final RewritableElement element = elements[i];
+				if (element.textRewriter != null) {
+					text = element.textRewriter.apply(text);
+				}
+			}
+			if (text == null || text.length() == 0) {
+				return;
+			}
+		}
+		super.text(text);
+	}
+
+	@Override
+	public void comment(final CharSequence comment) {
+		if (removeDepth == 0) {
+			super.comment(comment);
+		}
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		if (removeDepth == 0) {
+			super.cdata(cdata);
+		}
+	}
+
+	@Override
+	public void condComment(final CharSequence expression, final boolean isStartingTag, final boolean isHidden, final boolean isHiddenEndTag) {
+		if (removeDepth == 0) {
+			super.condComment(expression, isStartingTag, isHidden, isHiddenEndTag);
+		}
+	}
+
+	// ---------------------------------------------------------------- elements
+
+	/**
+	 * Handles elements events coming from the stack of open elements.
+	 */
+	protected class ElementHandler implements OpenElementStack.Handler {
+
+		@Override
+		public void elementStart(final OpenElement openElement, final Tag tag) {
+			if (removeDepth != 0) {
+				return;
+			}
+			final RewritableElement element = startElement(openElement, tag);
+
+			if (!element.removeTags) {
+				target.tag(tag);
+			}
+			if (element.removeContent) {
+				removeDepth = openElement.getDepth();
+			}
+			if (!element.isRemoved()) {
+				emit(element.prepend);
+			}
+		}
+
+		@Override
+		public void elementEnd(final OpenElement openElement, final Tag endTag) {
+			final int depth = openElement.getDepth();
+
+			if (removeDepth != 0) {
+				if (depth > removeDepth) {
+					return;
+				}
+				removeDepth = 0;
+			}
+
+			final RewritableElement element = elements[depth - 1];
+
+			if (!element.isRemoved()) {
+				emit(element.append);
+			}
+			if (endTag != null && !element.removeTags) {
+				target.tag(endTag);
+			}
+			emit(element.after);
+
+			if (element.textRewriter != null) {
+				textRewriters--;
+			}
+		}
+	}
+
+	/**
+	 * Resets the element state for the new open element, invokes all
+	 * matching handlers and emits the content before the element.
+	 */
+	protected RewritableElement startElement(final OpenElement openElement, final Tag tag) {
+		final int depth = openElement.getDepth();
+
+		if (depth > elements.length) {
+			final RewritableElement[] newElements = new RewritableElement[elements.length << 1];
+			System.arraycopy(elements, 0, newElements, 0, elements.length);
+			elements = newElements;
+		}
+
+		RewritableElement element = elements[depth - 1];
+		if (element == null) {
+			element = new RewritableElement();
+			elements[depth - 1] = element;
+		}
+
+		element.init(openElement, tag);
+
+		final int total = selectors.size();
+		for (int i = 0; i < total; i++) {
+			if (selectors.get(i).matches(openElement)) {
+				handlers.get(i).accept(element);
+			}
+		}
+
+		element.tag = null;
+
+		if (element.textRewriter != null) {
+			textRewriters++;
+		}
+
+		emit(element.before);
+		return element;
+	}
+
+	/**
+	 * Emits HTML content into the target. Each distinct content is parsed
+	 * only once; the recorded events are replayed on the next use.
+	 */
+	protected void emit(final CharSequence html) {
+		if (html.length() == 0) {
+			return;
+		}
+		final String key = html.toString();
+
+		TokenStreamReplayer fragment = fragments.get(key);
+		if (fragment == null) {
+			new LagartoParser(key).parse(fragmentRecorder);
+			fragment = new TokenStreamReplayer(fragmentRecorder.toByteArray());
+			fragments.put(key, fragment);
+		}
+		fragment.replay(contentVisitor);
+	}
+
+}
@@ -0,0 +1,638 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.lagarto.Doctype;
+import jodd.lagarto.LagartoException;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagAdapter;
+import jodd.lagarto.TagType;
+import jodd.lagarto.TagVisitor;
+import jodd.lagarto.dom.HtmlVoidRules;
+import jodd.net.HtmlEncoder;
+import jodd.util.CharSequenceUtil;
+import jodd.util.CharUtil;
+
+import java.io.IOException;
+
+/**
+ * Minifies HTML while streaming. Collapses whitespaces outside of {@code pre},
+ * {@code textarea} and raw text tags and removes them around block tags, drops
+ * comments except the conditional ones and removes optional end tags.
+ * Tags are passed to the target wrapped, so when written they omit
+ * redundant attribute quotes and values of boolean attributes.
+ */
+public class MinifyingTagAdapter extends TagAdapter {
+
+	private static final String[] PRESERVE_TAGS = {"pre", "textarea", "listing", "plaintext"};
+
+	/**
+	 * Tags that are not affected by the surrounding whitespaces.
+	 */
+	private static final String[] BLOCK_TAGS = {
+		"address", "article", "aside", "base", "blockquote", "body", "br", "caption", "col", "colgroup",
+		"dd", "details", "div", "dl", "dt", "fieldset", "figcaption", "figure", "footer", "form",
+		"h1", "h2", "h3", "h4", "h5", "h6", "head", "header", "hgroup", "hr", "html", "li", "link",
+		"main", "menu", "meta", "nav", "ol", "optgroup", "option", "p", "section", "style", "summary",
+		"table", "tbody", "td", "tfoot", "th", "thead", "title", "tr", "ul"
+	};
+
+	/**
+	 * Tags whose start closes the open {@code p} element.
+	 */
+	private static final String[] P_CLOSING_TAGS = {
+		"address", "article", "aside", "blockquote", "details", "div", "dl", "fieldset", "figcaption",
+		"figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hgroup", "hr",
+		"main", "menu", "nav", "ol", "p", "pre", "section", "table", "ul"
+	};
+
+	/**
+	 * Parents whose end does not allow omitting the {@code p} end tag.
+	 */
+	private static final String[] P_KEEPING_PARENTS = {"a", "audio", "del", "ins", "map", "noscript", "video"};
+
+	private static final String[] BOOLEAN_ATTRIBUTES = {
+		"allowfullscreen", "async", "autofocus", "autoplay", "checked", "controls", "default", "defer",
+		"disabled", "formnovalidate", "hidden", "ismap", "itemscope", "loop", "multiple", "muted",
+		"nomodule", "novalidate", "open", "playsinline", "readonly", "required", "reversed", "selected"
+	};
+
+	private static final CharSequence SPACE = " ";
+
+	protected final HtmlVoidRules voidRules = new HtmlVoidRules();
+	protected final MinifiedTag minifiedTag = new MinifiedTag();
+	private final EndTag pendingEndTag = new EndTag();
+
+	protected char[] buffer = new char[256];
+	protected int preserveDepth;
+	protected CharSequence rawTagName;
+	protected boolean afterBlock;
+	protected boolean pendingSpace;
+	protected int removedCharsCount;
+
+	public MinifyingTagAdapter(final TagVisitor target) {
+		super(target);
+	}
+
+	/**
+	 * Returns number of removed whitespaces and comment characters.
+	 */
+	public int getRemovedCharsCount() {
+		return removedCharsCount;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		preserveDepth = 0;
+		rawTagName = null;
+		afterBlock = true;
+		pendingSpace = false;
+		pendingEndTag.name = null;
+		removedCharsCount = 0;
+		super.start();
+	}
+
+	@Override
+	public void end() {
+		// end tags and whitespaces at the end are not needed
+		pendingEndTag.name = null;
+		pendingSpace = false;
+		super.end();
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		final TagType type = tag.getType();
+
+		if (rawTagName != null) {
+			if (type == TagType.END && tag.nameEquals(rawTagName)) {
+				rawTagName = null;
+			}
+		}
+		else if (type == TagType.START && tag.isRawTag()) {
+			rawTagName = tag.getName();
+		}
+
+		if (isOneOf(tag, PRESERVE_TAGS)) {
+			if (type == TagType.START) {
+				preserveDepth++;
+			}
+			else if (type == TagType.END && preserveDepth > 0) {
+				preserveDepth--;
+			}
+		}
+
+		final boolean block = isOneOf(tag, BLOCK_TAGS);
+
+		if (pendingSpace) {
+			pendingSpace = false;
+			if (!block) {
+				flush();
+				super.text(SPACE);
+			}
+		}
+
+		if (pendingEndTag.name != null) {
+			if (!isEndTagOptional(pendingEndTag.name, tag)) {
+				super.tag(pendingEndTag);
+			}
+			pendingEndTag.name = null;
+		}
+
+		afterBlock = block;
+
+		if (type == TagType.END && hasOptionalEndTag(tag)) {
+			pendingEndTag.name = tag.getName();
+			pendingEndTag.caseSensitive = tag.isCaseSensitive();
+			return;
+		}
+
+		super.tag(minifiedTag.wrap(tag));
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		flushAll();
+		afterBlock = false;
+		super.script(minifiedTag.wrap(tag), body);
+	}
+
+	@Override
+	public void comment(final CharSequence comment) {
+		final int length = comment.length();
+
+		// downlevel-hidden conditional comments
+		final boolean conditional =
+			(length > 3 && comment.charAt(0) == '[' && CharUtil.toLowerAscii(comment.charAt(1)) == 'i'
+				&& CharUtil.toLowerAscii(comment.charAt(2)) == 'f')
+			|| (length >= 9 && CharSequenceUtil.equalsIgnoreCase(comment.subSequence(length - 9, length), "<![endif]"));
+
+		if (conditional) {
+			flushAll();
+			super.comment(comment);
+			return;
+		}
+		removedCharsCount += length + 7;
+	}
+
+	@Override
+	public void condComment(final CharSequence expression, final boolean isStartingTag, final boolean isHidden, final boolean isHiddenEndTag) {
+		flushAll();
+		super.condComment(expression, isStartingTag, isHidden, isHiddenEndTag);
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		flushAll();
+		super.cdata(cdata);
+	}
+
+	@Override
+	public void doctype(final Doctype doctype) {
+		flushAll();
+		super.doctype(doctype);
+	}
+
+	@Override
+	public void xml(final CharSequence version, final CharSequence encoding, final CharSequence standalone) {
+		flushAll();
+		super.xml(version, encoding, standalone);
+	}
+
+	/**
+	 * Collapses whitespaces. Leading whitespace after block tags is removed,
+	 * trailing whitespace is postponed until the next tag is known.
+	 */
+	@Override
+	public void text(final CharSequence text) {
+		if (preserveDepth != 0 || rawTagName != null) {
+			flushAll();
+			super.text(text);
+			return;
+		}
+
+		final int textLength = text.length();
+		if (textLength > buffer.length) {
+			buffer = new char[Math.max(textLength, buffer.length << 1)];
+		}
+
+		final char[] buf = buffer;
+		int ndx = 0;
+		boolean changed = false;
+		boolean space = afterBlock || pendingSpace;
+
+		for (int i = 0; i < textLength; i++) {
+			final char c = text.charAt(i);
+
+			if (CharUtil.isWhitespace(c)) {
+				if (space) {
+					changed = true;
+					continue;
+				}
+				space = true;
+				if (c != ' ') {
+					changed = true;
+				}
+				buf[ndx++] = ' ';
+				continue;
+			}
+			space = false;
+			buf[ndx++] = c;
+		}
+
+		final boolean trailingSpace = ndx != 0 && buf[ndx - 1] == ' ';
+		if (trailingSpace) {
+			ndx--;
+			changed = true;
+		}
+
+		removedCharsCount += textLength - ndx;
+
+		if (ndx != 0) {
+			flushAll();
+			afterBlock = false;
+			// changed text is copied out of the buffer, as the target may keep it
+			super.text(changed ? new String(buf, 0, ndx) : text);
+		}
+		else if (trailingSpace) {
+			flush();
+		}
+
+		if (trailingSpace) {
+			pendingSpace = true;
+			removedCharsCount--;
+		}
+	}
+
+	// ---------------------------------------------------------------- pending
+
+	/**
+	 * Emits pending end tag.
+	 */
+	protected void flush() {
+		if (pendingEndTag.name != null) {
+			super.tag(pendingEndTag);
+			pendingEndTag.name = null;
+		}
+	}
+
+	/**
+	 * Emits pending end tag and pending whitespace.
+	 */
+	protected void flushAll() {
+		flush();
+		if (pendingSpace) {
+			pendingSpace = false;
+			super.text(SPACE);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if end tag of this element may be omitted in some cases.
+	 */
+	protected boolean hasOptionalEndTag(final Tag tag) {
+		final CharSequence name = tag.getName();
+		switch (name.length()) {
+			case 1:
+				return is(name, "p");
+			case 2:
+				return is(name, "li") || is(name, "dt") || is(name, "dd") || is(name, "tr")
+					|| is(name, "td") || is(name, "th") || is(name, "rt") || is(name, "rp");
+			default:
+				return is(name, "option") || is(name, "optgroup") || is(name, "thead") || is(name, "tbody")
+					|| is(name, "tfoot") || is(name, "head") || is(name, "body") || is(name, "html");
+		}
+	}
+
+	/**
+	 * Returns {@code true} if end tag may be omitted when followed by given tag.
+	 */
+	protected boolean isEndTagOptional(final CharSequence endTagName, final Tag next) {
+		final boolean start = next.getType().isStartingTag();
+		final boolean end = next.getType() == TagType.END;
+
+		if (is(endTagName, "li")) {
+			return (start && next.nameEquals("li")) || end;
+		}
+		if (is(endTagName, "dt")) {
+			return start && (next.nameEquals("dt") || next.nameEquals("dd"));
+		}
+		if (is(endTagName, "dd")) {
+			return (start && (next.nameEquals("dt") || next.nameEquals("dd"))) || end;
+		}
+		if (is(endTagName, "p")) {
+			if (start) {
+				return isOneOf(next, P_CLOSING_TAGS);
+			}
+			return end && !isOneOf(next, P_KEEPING_PARENTS);
+		}
+		if (is(endTagName, "rt") || is(endTagName, "rp")) {
+			return (start && (next.nameEquals("rt") || next.nameEquals("rp"))) || end;
+		}
+		if (is(endTagName, "option")) {
+			return (start && (next.nameEquals("option") || next.nameEquals("optgroup"))) || end;
+		}
+		if (is(endTagName, "optgroup")) {
+			return (start && next.nameEquals("optgroup")) || end;
+		}
+		if (is(endTagName, "tr")) {
+			return (start && next.nameEquals("tr")) || end;
+		}
+		if (is(endTagName, "td") || is(endTagName, "th")) {
+			return (start && (next.nameEquals("td") || next.nameEquals("th"))) || end;
+		}
+		if (is(endTagName, "thead")) {
+			return start && (next.nameEquals("tbody") || next.nameEquals("tfoot"));
+		}
+		if (is(endTagName, "tbody")) {
+			return (start && (next.nameEquals("tbody") || next.nameEquals("tfoot"))) || end;
+		}
+		if (is(endTagName, "tfoot")) {
+			return end;
+		}
+		if (is(endTagName, "head")) {
+			return start;
+		}
+		if (is(endTagName, "body")) {
+			return end && next.nameEquals("html");
+		}
+		return false;
+	}
+
+	private static boolean is(final CharSequence name, final String lowercaseName) {
+		return CharSequenceUtil.equalsToLowercase(name, lowercaseName);
+	}
+
+	private static boolean isOneOf(final Tag tag, final String[] lowercaseNames) {
+		final CharSequence name = tag.getName();
+		for (final String lowercaseName : lowercaseNames) {
+			if (CharSequenceUtil.equalsToLowercase(name, lowercaseName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- tags
+
+	/**
+	 * Tag wrapper that writes the tag in the minimal form.
+	 */
+	protected class MinifiedTag implements Tag {
+
+		protected Tag tag;
+
+		protected Tag wrap(final Tag tag) {
+			this.tag = tag;
+			return this;
+		}
+
+		@Override
+		public void writeTo(final Appendable out) {
+			try {
+				final TagType type = tag.getType();
+
+				if (type == TagType.END) {
+					out.append("</").append(tag.getName()).append('>');
+					return;
+				}
+
+				out.append('<').append(tag.getName());
+
+				boolean unquoted = false;
+				final int count = tag.getAttributeCount();
+
+				for (int i = 0; i < count; i++) {
+					final CharSequence name = tag.getAttributeName(i);
+					final CharSequence value = tag.getAttributeValue(i);
+
+					out.append(' ').append(name);
+					unquoted = false;
+
+					if (value == null || isBooleanAttribute(name, value)) {
+						continue;
+					}
+
+					out.append('=');
+
+					final String encoded = HtmlEncoder.attributeDoubleQuoted(value);
+					if (isUnquotedValue(encoded)) {
+						out.append(encoded);
+						unquoted = true;
+					}
+					else {
+						out.append('"').append(encoded).append('"');
+					}
+				}
+
+				if (type == TagType.SELF_CLOSING && !voidRules.isVoidTag(tag.getName())) {
+					if (unquoted) {
+						out.append(' ');
+					}
+					out.append("/>");
+					return;
+				}
+				out.append('>');
+			}
+			catch (final IOException ioex) {
+				throw new LagartoException(ioex);
+			}
+		}
+
+		private boolean isBooleanAttribute(final CharSequence name, final CharSequence value) {
+			if (value.length() != 0 && !CharSequenceUtil.equalsIgnoreCase(name, value)) {
+				return false;
+			}
+			for (final String booleanAttribute : BOOLEAN_ATTRIBUTES) {
+				if (CharSequenceUtil.equalsToLowercase(name, booleanAttribute)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean isUnquotedValue(final CharSequence value) {
+			final int length = value.length();
+			if (length == 0) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				switch (value.charAt(i)) {
+					case ' ': case '\t': case '\n': case '\r': case '\f':
+					case '"': case '\'': case '=': case '<': case '>': case '`':
+						return false;
+				}
+			}
+			return value.charAt(length - 1) != '/';
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder sb = new StringBuilder();
+			writeTo(sb);
+			return sb.toString();
+		}
+
+		// ---------------------------------------------------------------- delegates
+
+		@Override
+		public boolean isCaseSensitive() {
+			return tag.isCaseSensitive();
+		}
+
+		@Override
+		public boolean isRawTag() {
+			return tag.isRawTag();
+		}
+
+		@Override
+		public CharSequence getName() {
+			return tag.getName();
+		}
+
+		@Override
+		public TagType getType() {
+			return tag.getType();
+		}
+
+		@Override
+		public CharSequence getId() {
+			return tag.getId();
+		}
+
+		@Override
+		public int getDeepLevel() {
+			return tag.getDeepLevel();
+		}
+
+		@Override
+		public int getAttributeCount() {
+			return tag.getAttributeCount();
+		}
+
+		@Override
+		public CharSequence getAttributeName(final int index) {
+			return tag.getAttributeName(index);
+		}
+
+		@Override
+		public CharSequence getAttributeValue(final int index) {
+			return tag.getAttributeValue(index);
+		}
+
+		@Override
+		public CharSequence getAttributeValue(final CharSequence name) {
+			return tag.getAttributeValue(name);
+		}
+
+		@Override
+		public int getAttributeIndex(final CharSequence name) {
+			return tag.getAttributeIndex(name);
+		}
+
+		@Override
+		public boolean hasAttribute(final CharSequence name) {
+			return tag.hasAttribute(name);
+		}
+
+		@Override
+		public int getTagPosition() {
+			return tag.getTagPosition();
+		}
+
+		@Override
+		public int getTagLength() {
+			return tag.getTagLength();
+		}
+
+		@Override
+		public String getPosition() {
+			return tag.getPosition();
+		}
+
+		@Override
+		public void setName(final CharSequence tagName) {
+			tag.setName(tagName);
+		}
+
+		@Override
+		public void setType(final TagType type) {
+			tag.setType(type);
+		}
+
+		@Override
+		public void addAttribute(final CharSequence name, final CharSequence value) {
+			tag.addAttribute(name, value);
+		}
+
+		@Override
+		public void setAttribute(final CharSequence name, final CharSequence value) {
+			tag.setAttribute(name, value);
+		}
+
+		@Override
+		public void setAttributeValue(final int index, final CharSequence value) {
+			tag.setAttributeValue(index, value);
+		}
+
+		@Override
+		public void setAttributeValue(final CharSequence name, final CharSequence value) {
+			tag.setAttributeValue(name, value);
+		}
+
+		@Override
+		public void setAttributeName(final int index, final CharSequence name) {
+			tag.setAttributeName(index, name);
+		}
+
+		@Override
+		public void removeAttribute(final int index) {
+			tag.removeAttribute(index);
+		}
+
+		@Override
+		public void removeAttribute(final CharSequence name) {
+			tag.removeAttribute(name);
+		}
+
+		@Override
+		public void removeAttributes() {
+			tag.removeAttributes();
+		}
+
+		@Override
+		public boolean isModified() {
+			return true;
+		}
+
+		@Override
+		public boolean nameEquals(final CharSequence charSequence) {
+			return tag.nameEquals(charSequence);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import java.util.Collection;
+
+/**
+ * Immutable set of lowercase ASCII names, that is looked up with any
+ * {@code CharSequence} ignoring the case, without converting it to a string.
+ * Uses open addressing; {@link #indexOf(CharSequence)} returns the index of the
+ * name in the order it was given.
+ */
+final class NameSet {
+
+	private final String[] names;
+	private final String[] table;
+	private final int[] indexes;
+	private final int mask;
+
+	NameSet(final Collection<String> names) {
+		this.names = new String[names.size()];
+
+		int capacity = 4;
+		while (capacity < this.names.length * 2) {
+			capacity <<= 1;
+		}
+		this.table = new String[capacity];
+		this.indexes = new int[capacity];
+		this.mask = capacity - 1;
+
+		int index = 0;
+		for (final String name : names) {
+			final String lowercaseName = name.toLowerCase();
+			this.names[index] = lowercaseName;
+
+			int slot = hash(lowercaseName, 0, lowercaseName.length()) & mask;
+			while (table[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = lowercaseName;
+			indexes[slot] = index;
+			index++;
+		}
+	}
+
+	/**
+	 * Returns number of names.
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the name on given index.
+	 */
+	public String get(final int index) {
+		return names[index];
+	}
+
+	/**
+	 * Returns {@code true} if name is in the set.
+	 */
+	public boolean contains(final CharSequence name) {
+		return indexOf(name, 0, name.length()) != -1;
+	}
+
+	/**
+	 * Returns the index of the name or {@code -1} if name is not found.
+	 */
+	public int indexOf(final CharSequence name) {
+		return indexOf(name, 0, name.length());
+	}
+
+	/**
+	 * Returns the index of the name given as a region of the input,
+	 * or {@code -1} if name is not found.
+	 */
+	public int indexOf(final CharSequence input, final int from, final int to) {
+		int slot = hash(input, from, to) & mask;
+
+		while (true) {
+			final String name = table[slot];
+			if (name == null) {
+				return -1;
+			}
+			if (regionEquals(name, input, from, to)) {
+				return indexes[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private static boolean regionEquals(final String name, final CharSequence input, final int from, final int to) {
+		if (name.length() != to - from) {
+			return false;
+		}
+		for (int i = from, j = 0; i < to; i++, j++) {
+			if (toLowerAscii(input.charAt(i)) != name.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(final CharSequence input, final int from, final int to) {
+		int hash = 0;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + toLowerAscii(input.charAt(i));
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static char toLowerAscii(final char c) {
+		if (c >= 'A' && c <= 'Z') {
+			return (char) (c + 32);
+		}
+		return c;
+	}
+}
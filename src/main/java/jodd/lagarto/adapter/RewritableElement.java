@@ -0,0 +1,229 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.lagarto.Tag;
+import jodd.lagarto.select.OpenElement;
+import jodd.net.HtmlEncoder;
+
+import java.util.function.Function;
+
+/**
+ * Element matched by the {@link HtmlRewriterTagAdapter}. Element handlers may
+ * change its attributes, add the content around or inside the element,
+ * or remove the element. All changes are applied while streaming,
+ * so the handler must not keep the reference to this element.
+ * Attributes may be changed only while the handler is invoked.
+ */
+public class RewritableElement {
+
+	protected OpenElement element;
+	protected Tag tag;
+	protected final StringBuilder before = new StringBuilder();
+	protected final StringBuilder prepend = new StringBuilder();
+	protected final StringBuilder append = new StringBuilder();
+	protected final StringBuilder after = new StringBuilder();
+	protected boolean removeTags;
+	protected boolean removeContent;
+	protected Function<CharSequence, CharSequence> textRewriter;
+
+	/**
+	 * Resets the state for the new element.
+	 */
+	protected void init(final OpenElement element, final Tag tag) {
+		this.element = element;
+		this.tag = tag;
+		this.before.setLength(0);
+		this.prepend.setLength(0);
+		this.append.setLength(0);
+		this.after.setLength(0);
+		this.removeTags = false;
+		this.removeContent = false;
+		this.textRewriter = null;
+	}
+
+	/**
+	 * Returns the open element, as it was parsed.
+	 * Parent elements are available from the open element.
+	 */
+	public OpenElement getElement() {
+		return element;
+	}
+
+	/**
+	 * Returns element name.
+	 */
+	public String getName() {
+		return element.getName();
+	}
+
+	// ---------------------------------------------------------------- attributes
+
+	/**
+	 * Returns current attribute value or {@code null} if attribute does not exist.
+	 */
+	public CharSequence getAttribute(final CharSequence name) {
+		if (tag == null) {
+			return element.getAttributeValue(name);
+		}
+		return tag.getAttributeValue(name);
+	}
+
+	/**
+	 * Returns {@code true} if element has an attribute.
+	 */
+	public boolean hasAttribute(final CharSequence name) {
+		if (tag == null) {
+			return element.hasAttribute(name);
+		}
+		return tag.hasAttribute(name);
+	}
+
+	/**
+	 * Sets attribute value. Existing attribute is overwritten.
+	 */
+	public RewritableElement setAttribute(final CharSequence name, final CharSequence value) {
+		assertHandler();
+		tag.setAttribute(name, value);
+		return this;
+	}
+
+	/**
+	 * Removes an attribute.
+	 */
+	public RewritableElement removeAttribute(final CharSequence name) {
+		assertHandler();
+		tag.removeAttribute(name);
+		return this;
+	}
+
+	protected void assertHandler() {
+		if (tag == null) {
+			throw new IllegalStateException("Attributes can be changed only in element handler");
+		}
+	}
+
+	// ---------------------------------------------------------------- content
+
+	/**
+	 * Inserts HTML content before the element.
+	 */
+	public RewritableElement before(final CharSequence html) {
+		before.append(html);
+		return this;
+	}
+
+	/**
+	 * Inserts HTML content after the element.
+	 */
+	public RewritableElement after(final CharSequence html) {
+		after.append(html);
+		return this;
+	}
+
+	/**
+	 * Inserts HTML content just after the start tag.
+	 * For void elements, the content is inserted after the tag.
+	 */
+	public RewritableElement prepend(final CharSequence html) {
+		prepend.append(html);
+		return this;
+	}
+
+	/**
+	 * Inserts HTML content just before the end tag.
+	 * For void elements, the content is inserted after the tag.
+	 */
+	public RewritableElement append(final CharSequence html) {
+		append.append(html);
+		return this;
+	}
+
+	/**
+	 * Replaces the element and its content with the HTML content.
+	 */
+	public RewritableElement replace(final CharSequence html) {
+		before.append(html);
+		return remove();
+	}
+
+	/**
+	 * Removes the element and its content.
+	 */
+	public RewritableElement remove() {
+		removeTags = true;
+		removeContent = true;
+		return this;
+	}
+
+	/**
+	 * Removes the element tags, but keeps its content.
+	 * Body of the script element is kept as the text.
+	 */
+	public RewritableElement removeAndKeepContent() {
+		removeTags = true;
+		return this;
+	}
+
+	/**
+	 * Replaces the inner content of the element with the HTML content.
+	 */
+	public RewritableElement setInnerContent(final CharSequence html) {
+		prepend.setLength(0);
+		prepend.append(html);
+		append.setLength(0);
+		removeContent = true;
+		return this;
+	}
+
+	/**
+	 * Replaces the inner content of the element with the text.
+	 */
+	public RewritableElement setInnerText(final CharSequence text) {
+		return setInnerContent(HtmlEncoder.text(text));
+	}
+
+	/**
+	 * Rewrites all text chunks inside the element, including the text
+	 * of nested elements. Text is already decoded.
+	 */
+	public RewritableElement rewriteText(final Function<CharSequence, CharSequence> textRewriter) {
+		this.textRewriter = textRewriter;
+		return this;
+	}
+
+	/**
+	 * Returns {@code true} if element is removed.
+	 */
+	public boolean isRemoved() {
+		return removeTags && removeContent;
+	}
+
+	@Override
+	public String toString() {
+		return element.toString();
+	}
+}
@@ -0,0 +1,315 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable allowlist policy of the {@link SanitizingTagAdapter}.
+ * All names are precompiled into lookup tables, so checking a tag
+ * or an attribute does not allocate. Policy is thread-safe and should
+ * be created once and shared. Use {@link #builder()} or one of the presets
+ * to create a new policy.
+ */
+public final class SanitizingPolicy {
+
+	private final NameSet tags;
+	private final NameSet[] tagAttributes;
+	private final NameSet globalAttributes;
+	private final NameSet urlAttributes;
+	private final NameSet urlSchemes;
+	private final NameSet dropTags;
+	private final boolean allowComments;
+	private final int maxDepth;
+
+	private SanitizingPolicy(final Builder builder) {
+		this.tags = new NameSet(builder.tags);
+		this.tagAttributes = new NameSet[tags.size()];
+		for (int i = 0; i < tagAttributes.length; i++) {
+			final Set<String> attributes = builder.tagAttributes.get(tags.get(i));
+			if (attributes != null) {
+				tagAttributes[i] = new NameSet(attributes);
+			}
+		}
+		this.globalAttributes = new NameSet(builder.globalAttributes);
+		this.urlAttributes = new NameSet(builder.urlAttributes);
+		this.urlSchemes = new NameSet(builder.urlSchemes);
+		this.dropTags = new NameSet(builder.dropTags);
+		this.allowComments = builder.allowComments;
+		this.maxDepth = builder.maxDepth;
+	}
+
+	// ---------------------------------------------------------------- presets
+
+	/**
+	 * Creates empty policy builder. Only {@code http}, {@code https}
+	 * and {@code mailto} URL schemes are allowed by default, and
+	 * {@code script} and {@code style} are dropped with their content.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Returns builder preset for basic text formatting and links.
+	 */
+	public static Builder basic() {
+		return builder()
+			.allowTags("a", "b", "blockquote", "br", "cite", "code", "dd", "dl", "dt", "em",
+				"i", "li", "ol", "p", "pre", "q", "small", "span", "strike", "strong",
+				"sub", "sup", "u", "ul")
+			.allowAttributes("a", "href", "title")
+			.allowAttributes("blockquote", "cite")
+			.allowAttributes("q", "cite");
+	}
+
+	/**
+	 * Returns builder preset that extends {@link #basic()} with
+	 * headings, images, tables and structural elements.
+	 */
+	public static Builder relaxed() {
+		return basic()
+			.allowTags("abbr", "caption", "col", "colgroup", "del", "div", "figcaption", "figure",
+				"h1", "h2", "h3", "h4", "h5", "h6", "hr", "img", "ins", "kbd", "mark", "s", "samp",
+				"table", "tbody", "td", "tfoot", "th", "thead", "tr", "var")
+			.allowAttributes("img", "src", "alt", "width", "height", "title")
+			.allowAttributes("td", "colspan", "rowspan")
+			.allowAttributes("th", "colspan", "rowspan", "scope")
+			.allowAttributes("col", "span")
+			.allowAttributes("colgroup", "span")
+			.allowAttributes("abbr", "title")
+			.allowGlobalAttributes("dir", "lang");
+	}
+
+	// ---------------------------------------------------------------- lookup
+
+	/**
+	 * Returns the index of allowed tag or {@code -1} if tag is not allowed.
+	 */
+	public int indexOfTag(final CharSequence tagName) {
+		return tags.indexOf(tagName);
+	}
+
+	/**
+	 * Returns {@code true} if tag is allowed.
+	 */
+	public boolean isTagAllowed(final CharSequence tagName) {
+		return tags.contains(tagName);
+	}
+
+	/**
+	 * Returns {@code true} if attribute is allowed on the tag with given index.
+	 * @see #indexOfTag(CharSequence)
+	 */
+	public boolean isAttributeAllowed(final int tagIndex, final CharSequence attributeName) {
+		if (globalAttributes.contains(attributeName)) {
+			return true;
+		}
+		final NameSet attributes = tagAttributes[tagIndex];
+		return attributes != null && attributes.contains(attributeName);
+	}
+
+	/**
+	 * Returns {@code true} if attribute is allowed on the tag.
+	 */
+	public boolean isAttributeAllowed(final CharSequence tagName, final CharSequence attributeName) {
+		final int tagIndex = tags.indexOf(tagName);
+		return tagIndex != -1 && isAttributeAllowed(tagIndex, attributeName);
+	}
+
+	/**
+	 * Returns {@code true} if tag has to be removed together with its content.
+	 */
+	public boolean isDroppedWithContent(final CharSequence tagName) {
+		return dropTags.contains(tagName);
+	}
+
+	/**
+	 * Returns {@code true} if attribute value is an URL.
+	 */
+	public boolean isUrlAttribute(final CharSequence attributeName) {
+		return urlAttributes.contains(attributeName);
+	}
+
+	/**
+	 * Returns {@code true} if URL is relative or if its scheme is allowed.
+	 * Schemes containing whitespaces or control characters are never allowed,
+	 * as browsers ignore them ({@code java&#9;script:}).
+	 */
+	public boolean isUrlAllowed(final CharSequence url) {
+		final int length = url.length();
+
+		int start = 0;
+		while (start < length && url.charAt(start) <= ' ') {
+			start++;
+		}
+
+		for (int i = start; i < length; i++) {
+			final char c = url.charAt(i);
+			switch (c) {
+				case ':':
+					return urlSchemes.indexOf(url, start, i) != -1;
+				case '/':
+				case '?':
+				case '#':
+					return true;
+				default:
+					if (c <= ' ' || c == 0x7F) {
+						return false;
+					}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if comments are preserved.
+	 */
+	public boolean isCommentAllowed() {
+		return allowComments;
+	}
+
+	/**
+	 * Returns maximal depth of nested elements.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of the {@link SanitizingPolicy}. All names are case-insensitive.
+	 */
+	public static class Builder {
+
+		protected final Set<String> tags = new LinkedHashSet<>();
+		protected final Map<String, Set<String>> tagAttributes = new LinkedHashMap<>();
+		protected final Set<String> globalAttributes = new LinkedHashSet<>();
+		protected final Set<String> urlAttributes = new LinkedHashSet<>();
+		protected final Set<String> urlSchemes = new LinkedHashSet<>();
+		protected final Set<String> dropTags = new LinkedHashSet<>();
+		protected boolean allowComments;
+		protected int maxDepth = 256;
+
+		protected Builder() {
+			allowUrlSchemes("http", "https", "mailto");
+			urlAttributes("action", "background", "cite", "formaction", "href", "longdesc", "poster", "src");
+			dropWithContent("script", "style");
+		}
+
+		/**
+		 * Allows tags. Content of not allowed tags is kept.
+		 */
+		public Builder allowTags(final String... tagNames) {
+			addLowercase(tags, tagNames);
+			return this;
+		}
+
+		/**
+		 * Allows attributes on given tag. Tag is allowed as well.
+		 */
+		public Builder allowAttributes(final String tagName, final String... attributeNames) {
+			final String tag = tagName.toLowerCase();
+			tags.add(tag);
+			addLowercase(tagAttributes.computeIfAbsent(tag, t -> new LinkedHashSet<>()), attributeNames);
+			return this;
+		}
+
+		/**
+		 * Allows attributes on all allowed tags.
+		 */
+		public Builder allowGlobalAttributes(final String... attributeNames) {
+			addLowercase(globalAttributes, attributeNames);
+			return this;
+		}
+
+		/**
+		 * Defines attributes whose values are URLs and are checked for allowed schemes.
+		 */
+		public Builder urlAttributes(final String... attributeNames) {
+			addLowercase(urlAttributes, attributeNames);
+			return this;
+		}
+
+		/**
+		 * Allows URL schemes.
+		 */
+		public Builder allowUrlSchemes(final String... schemes) {
+			addLowercase(urlSchemes, schemes);
+			return this;
+		}
+
+		/**
+		 * Resets allowed URL schemes, so only relative URLs remain allowed.
+		 */
+		public Builder disallowUrlSchemes() {
+			urlSchemes.clear();
+			return this;
+		}
+
+		/**
+		 * Defines tags that are removed together with their content.
+		 */
+		public Builder dropWithContent(final String... tagNames) {
+			addLowercase(dropTags, tagNames);
+			return this;
+		}
+
+		/**
+		 * Preserves comments.
+		 */
+		public Builder allowComments(final boolean allowComments) {
+			this.allowComments = allowComments;
+			return this;
+		}
+
+		/**
+		 * Defines maximal depth of nested elements. Elements nested deeper are
+		 * removed, while their content is kept.
+		 */
+		public Builder maxDepth(final int maxDepth) {
+			this.maxDepth = maxDepth;
+			return this;
+		}
+
+		/**
+		 * Builds immutable policy.
+		 */
+		public SanitizingPolicy build() {
+			return new SanitizingPolicy(this);
+		}
+
+		private static void addLowercase(final Set<String> target, final String... names) {
+			for (final String name : names) {
+				target.add(name.toLowerCase());
+			}
+		}
+	}
+}
@@ -0,0 +1,260 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.lagarto.Doctype;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagAdapter;
+import jodd.lagarto.TagType;
+import jodd.lagarto.TagVisitor;
+import jodd.lagarto.dom.HtmlVoidRules;
+import jodd.util.CharSequenceUtil;
+
+import java.util.Arrays;
+
+/**
+ * Sanitizes HTML in one pass, using the allowlist {@link SanitizingPolicy}.
+ * Not allowed tags are removed, while their content is kept, except for
+ * the tags that are dropped with the content. Not allowed attributes and
+ * URLs with not allowed schemes are removed. Scripts, CDATA, doctypes and
+ * XML declarations are always removed.
+ * <p>
+ * Output is balanced: open elements are tracked on a small stack,
+ * end tags without the start are removed and missing end tags are added.
+ * Memory is bounded by the nesting depth. Raw text tags (like {@code noscript})
+ * are never emitted, so their content is always written as encoded text.
+ * The target is usually a {@link jodd.lagarto.visitor.TagWriter}.
+ */
+public class SanitizingTagAdapter extends TagAdapter {
+
+	protected final SanitizingPolicy policy;
+	protected final HtmlVoidRules voidRules = new HtmlVoidRules();
+	private final EndTag endTag = new EndTag();
+
+	protected CharSequence[] openElements = new CharSequence[16];
+	protected int openElementsCount;
+	protected CharSequence dropTagName;
+	protected int dropDepth;
+	protected int tooDeepCount;
+	protected int removedCount;
+
+	public SanitizingTagAdapter(final TagVisitor target, final SanitizingPolicy policy) {
+		super(target);
+		this.policy = policy;
+	}
+
+	/**
+	 * Returns number of removed tags and attributes.
+	 */
+	public int getRemovedCount() {
+		return removedCount;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		Arrays.fill(openElements, 0, openElementsCount, null);
+		openElementsCount = 0;
+		dropTagName = null;
+		dropDepth = 0;
+		tooDeepCount = 0;
+		removedCount = 0;
+		super.start();
+	}
+
+	@Override
+	public void end() {
+		closeOpenElements(0);
+		super.end();
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		final TagType type = tag.getType();
+		final CharSequence name = tag.getName();
+
+		if (dropTagName != null) {
+			if (tag.nameEquals(dropTagName)) {
+				if (type == TagType.START) {
+					dropDepth++;
+				}
+				else if (type == TagType.END && --dropDepth == 0) {
+					dropTagName = null;
+				}
+			}
+			removedCount++;
+			return;
+		}
+
+		if (policy.isDroppedWithContent(name)) {
+			if (type.isStartingTag() && !voidRules.isVoidTag(name)) {
+				// self-closing form of a non-void tag still opens the element
+				dropTagName = name;
+				dropDepth = 1;
+			}
+			removedCount++;
+			return;
+		}
+
+		final int tagIndex = policy.indexOfTag(name);
+
+		if (tagIndex == -1 || tag.isRawTag()) {
+			removedCount++;
+			return;
+		}
+
+		if (type == TagType.END) {
+			if (tooDeepCount != 0 && !voidRules.isVoidTag(name)) {
+				// closes the innermost element removed for being too deep
+				tooDeepCount--;
+				removedCount++;
+				return;
+			}
+			final int index = findOpenElement(name);
+			if (index == -1) {
+				removedCount++;
+				return;
+			}
+			closeOpenElements(index + 1);
+			openElements[--openElementsCount] = null;
+			super.tag(tag);
+			return;
+		}
+
+		if (type.isStartingTag() && !voidRules.isVoidTag(name)) {
+			if (openElementsCount == policy.getMaxDepth()) {
+				if (type == TagType.START) {
+					tooDeepCount++;
+				}
+				removedCount++;
+				return;
+			}
+			if (type == TagType.SELF_CLOSING) {
+				// emit non-void self-closing tag as an empty, balanced element
+				sanitizeAttributes(tagIndex, tag);
+				tag.setType(TagType.START);
+				super.tag(tag);
+				endTag.name = name;
+				super.tag(endTag);
+				return;
+			}
+			if (openElementsCount == openElements.length) {
+				openElements = Arrays.copyOf(openElements, openElementsCount << 1);
+			}
+			openElements[openElementsCount++] = name;
+		}
+
+		sanitizeAttributes(tagIndex, tag);
+
+		super.tag(tag);
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (dropTagName == null) {
+			super.text(text);
+		}
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		removedCount++;
+	}
+
+	@Override
+	public void comment(final CharSequence comment) {
+		if (dropTagName == null && policy.isCommentAllowed()) {
+			super.comment(comment);
+		}
+	}
+
+	@Override
+	public void condComment(final CharSequence expression, final boolean isStartingTag, final boolean isHidden, final boolean isHiddenEndTag) {
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+	}
+
+	@Override
+	public void doctype(final Doctype doctype) {
+	}
+
+	@Override
+	public void xml(final CharSequence version, final CharSequence encoding, final CharSequence standalone) {
+	}
+
+	// ---------------------------------------------------------------- sanitize
+
+	/**
+	 * Removes attributes that are not allowed and URLs with not allowed schemes.
+	 */
+	protected void sanitizeAttributes(final int tagIndex, final Tag tag) {
+		for (int i = tag.getAttributeCount() - 1; i >= 0; i--) {
+			final CharSequence attributeName = tag.getAttributeName(i);
+
+			if (!policy.isAttributeAllowed(tagIndex, attributeName)) {
+				tag.removeAttribute(i);
+				removedCount++;
+				continue;
+			}
+
+			if (policy.isUrlAttribute(attributeName)) {
+				final CharSequence value = tag.getAttributeValue(i);
+
+				if (value != null && !policy.isUrlAllowed(value)) {
+					tag.removeAttribute(i);
+					removedCount++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the index of the open element with given name, starting
+	 * from the most recent one. Returns {@code -1} if element is not open.
+	 */
+	protected int findOpenElement(final CharSequence name) {
+		for (int i = openElementsCount - 1; i >= 0; i--) {
+			if (CharSequenceUtil.equalsIgnoreCase(openElements[i], name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Emits end tags of all open elements down to the given index.
+	 */
+	protected void closeOpenElements(final int index) {
+		while (openElementsCount > index) {
+			endTag.name = openElements[--openElementsCount];
+			openElements[openElementsCount] = null;
+			super.tag(endTag);
+		}
+	}
+}
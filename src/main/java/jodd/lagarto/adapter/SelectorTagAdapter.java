@@ -0,0 +1,350 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.csselly.CssSelector;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagAdapter;
+import jodd.lagarto.TagVisitor;
+import jodd.lagarto.select.OpenElement;
+import jodd.lagarto.select.OpenElementStack;
+import jodd.lagarto.select.StreamSelector;
+import jodd.lagarto.visitor.TagWriter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Matches {@link StreamSelector CSS selectors} during the parsing, without building the DOM tree,
+ * and notifies listeners about matching elements: when they are opened, about
+ * their text, when they are closed and, optionally, about their outer HTML.
+ * All events are passed to the target unchanged.
+ */
+public class SelectorTagAdapter extends TagAdapter {
+
+	/**
+	 * Listener of matched elements. Open element is valid only during the invocation.
+	 */
+	public interface Listener {
+
+		/**
+		 * Invoked when matching element is opened.
+		 */
+		default void elementStart(final OpenElement element, final Tag tag) {
+		}
+
+		/**
+		 * Invoked for text inside the matching element, including the text of nested elements.
+		 */
+		default void text(final OpenElement element, final CharSequence text) {
+		}
+
+		/**
+		 * Invoked when matching element is closed.
+		 */
+		default void elementEnd(final OpenElement element) {
+		}
+
+		/**
+		 * Invoked with the outer HTML of the matching element, just before it is closed.
+		 * Invoked only when outer HTML capturing is requested.
+		 */
+		default void outerHtml(final OpenElement element, final CharSequence html) {
+		}
+	}
+
+	protected final List<StreamSelector> selectors = new ArrayList<>();
+	protected final List<Listener> listeners = new ArrayList<>();
+	protected final BitSet captureOuterHtml = new BitSet();
+	protected final OpenElementStack stack = new OpenElementStack();
+	protected final OpenElementStack.Handler elementHandler = new ElementHandler();
+
+	protected final StringBuilder html = new StringBuilder();
+	protected final TagWriter htmlWriter = new TagWriter(html);
+
+	protected BitSet[] matches = new BitSet[16];
+	protected int[] htmlStart = new int[16];
+	protected int matchedElements;
+	protected int capturedElements;
+
+	public SelectorTagAdapter(final TagVisitor target) {
+		super(target);
+	}
+
+	public SelectorTagAdapter(final TagVisitor target, final List<List<CssSelector>> selectors, final Listener listener) {
+		super(target);
+		select(selectors, false, listener);
+	}
+
+	/**
+	 * Registers listener for given CSS query.
+	 */
+	public SelectorTagAdapter select(final String query, final Listener listener) {
+		return select(query, false, listener);
+	}
+
+	/**
+	 * Registers listener for given CSS query, optionally capturing the outer HTML.
+	 */
+	public SelectorTagAdapter select(final String query, final boolean outerHtml, final Listener listener) {
+		return select(new StreamSelector(query), outerHtml, listener);
+	}
+
+	/**
+	 * Registers listener for parsed CSS selectors, optionally capturing the outer HTML.
+	 */
+	public SelectorTagAdapter select(final List<List<CssSelector>> selectors, final boolean outerHtml, final Listener listener) {
+		return select(new StreamSelector(selectors), outerHtml, listener);
+	}
+
+	protected SelectorTagAdapter select(final StreamSelector selector, final boolean outerHtml, final Listener listener) {
+		if (outerHtml) {
+			captureOuterHtml.set(selectors.size());
+		}
+		selectors.add(selector);
+		listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Returns the stack of open elements, so it can be configured.
+	 */
+	public OpenElementStack getOpenElementStack() {
+		return stack;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		stack.reset();
+		matchedElements = 0;
+		capturedElements = 0;
+		html.setLength(0);
+		super.start();
+	}
+
+	@Override
+	public void end() {
+		stack.end(elementHandler);
+		super.end();
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		if (!stack.tag(tag, elementHandler)) {
+			// orphan end tag
+			if (capturedElements != 0) {
+				htmlWriter.tag(tag);
+			}
+		}
+		super.tag(tag);
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		final OpenElement element = stack.push(tag);
+
+		startElement(element, tag);
+
+		if (capturedElements != 0) {
+			htmlWriter.script(tag, body);
+		}
+		if (matchedElements != 0) {
+			fireText(body);
+		}
+		endElement(element);
+
+		stack.pop();
+
+		super.script(tag, body);
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (capturedElements != 0) {
+			htmlWriter.text(text);
+		}
+		if (matchedElements != 0) {
+			fireText(text);
+		}
+		super.text(text);
+	}
+
+	@Override
+	public void comment(final CharSequence comment) {
+		if (capturedElements != 0) {
+			htmlWriter.comment(comment);
+		}
+		super.comment(comment);
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		if (capturedElements != 0) {
+			htmlWriter.cdata(cdata);
+		}
+		super.cdata(cdata);
+	}
+
+	@Override
+	public void condComment(final CharSequence expression, final boolean isStartingTag, final boolean isHidden, final boolean isHiddenEndTag) {
+		if (capturedElements != 0) {
+			htmlWriter.condComment(expression, isStartingTag, isHidden, isHiddenEndTag);
+		}
+		super.condComment(expression, isStartingTag, isHidden, isHiddenEndTag);
+	}
+
+	// ---------------------------------------------------------------- elements
+
+	/**
+	 * Handles elements events coming from the stack of open elements.
+	 */
+	protected class ElementHandler implements OpenElementStack.Handler {
+
+		@Override
+		public void elementStart(final OpenElement element, final Tag tag) {
+			startElement(element, tag);
+		}
+
+		@Override
+		public void elementEnd(final OpenElement element, final Tag endTag) {
+			if (endTag != null && capturedElements != 0) {
+				htmlWriter.tag(endTag);
+			}
+			endElement(element);
+		}
+	}
+
+	/**
+	 * Matches new open element and notifies the listeners.
+	 */
+	protected void startElement(final OpenElement element, final Tag tag) {
+		final int index = element.getDepth() - 1;
+
+		if (index == matches.length) {
+			final int newLength = matches.length << 1;
+
+			final BitSet[] newMatches = new BitSet[newLength];
+			System.arraycopy(matches, 0, newMatches, 0, index);
+			matches = newMatches;
+
+			final int[] newHtmlStart = new int[newLength];
+			System.arraycopy(htmlStart, 0, newHtmlStart, 0, index);
+			htmlStart = newHtmlStart;
+		}
+
+		BitSet matched = matches[index];
+		if (matched == null) {
+			matched = new BitSet();
+			matches[index] = matched;
+		}
+		else {
+			matched.clear();
+		}
+
+		final int total = selectors.size();
+		for (int i = 0; i < total; i++) {
+			if (selectors.get(i).matches(element)) {
+				matched.set(i);
+			}
+		}
+
+		if (matched.isEmpty()) {
+			if (capturedElements != 0) {
+				htmlWriter.tag(tag);
+			}
+			return;
+		}
+
+		matchedElements++;
+
+		if (matched.intersects(captureOuterHtml)) {
+			if (capturedElements == 0) {
+				html.setLength(0);
+			}
+			htmlStart[index] = html.length();
+			capturedElements++;
+		}
+		if (capturedElements != 0) {
+			htmlWriter.tag(tag);
+		}
+
+		for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+			listeners.get(i).elementStart(element, tag);
+		}
+	}
+
+	/**
+	 * Notifies the listeners of the matching element that is being closed.
+	 */
+	protected void endElement(final OpenElement element) {
+		final BitSet matched = matches[element.getDepth() - 1];
+
+		if (matched.isEmpty()) {
+			return;
+		}
+
+		final boolean captured = matched.intersects(captureOuterHtml);
+		CharSequence outerHtml = null;
+
+		if (captured) {
+			outerHtml = html.substring(htmlStart[element.getDepth() - 1]);
+		}
+
+		for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+			final Listener listener = listeners.get(i);
+			if (captureOuterHtml.get(i)) {
+				listener.outerHtml(element, outerHtml);
+			}
+			listener.elementEnd(element);
+		}
+
+		matched.clear();
+		matchedElements--;
+
+		if (captured) {
+			capturedElements--;
+		}
+	}
+
+	/**
+	 * Notifies listeners of all open matching elements about the text.
+	 */
+	protected void fireText(final CharSequence text) {
+		final int size = stack.size();
+
+		for (int depth = 1; depth <= size; depth++) {
+			final BitSet matched = matches[depth - 1];
+
+			for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+				listeners.get(i).text(stack.get(depth), text);
+			}
+		}
+	}
+
+}
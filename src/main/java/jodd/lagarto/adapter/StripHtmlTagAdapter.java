@@ -30,8 +30,6 @@ import jodd.lagarto.TagType;
 import jodd.lagarto.TagVisitor;
 import jodd.util.CharUtil;
 
-import java.nio.CharBuffer;
-
 /**
  * Strips all non-important characters from HTML.
  * Script and style blocks are not stripped, just HTML text blocks
@@ -45,6 +43,7 @@ public class StripHtmlTagAdapter extends TagAdapter {
 
 	protected int strippedCharsCount;
 	protected boolean strip;
+	protected char[] buffer = new char[256];
 
 	@Override
 	public void start() {
@@ -88,18 +87,26 @@ public class StripHtmlTagAdapter extends TagAdapter {
 
 		final int textLength = text.length();
 
-		final char[] dest = new char[textLength];
+		if (textLength > buffer.length) {
+			buffer = new char[Math.max(textLength, buffer.length << 1)];
+		}
+		final char[] dest = buffer;
 
 		int ndx = 0;
 		boolean regularChar = true;
+		boolean changed = false;
 		for (int i = 0; i < textLength; i++) {
 			char c = text.charAt(i);
 
 			if (CharUtil.isWhitespace(c)) {
 				if (regularChar) {
 					regularChar = false;
-					c = ' ';
+					if (c != ' ') {
+						c = ' ';
+						changed = true;
+					}
 				} else {
+					changed = true;
 					continue;
 				}
 			} else {
@@ -111,7 +118,8 @@ public class StripHtmlTagAdapter extends TagAdapter {
 		}
 
 		if (regularChar || (ndx != 1)) {
-			super.text(CharBuffer.wrap(dest, 0, ndx));
+			// changed text is copied out of the buffer, as the target may keep it
+			super.text(changed ? new String(dest, 0, ndx) : text);
 			strippedCharsCount += textLength - ndx;
 		} else {
 			strippedCharsCount += textLength;
@@ -0,0 +1,154 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Memoizing URL rewriter: caches the results of the wrapped rewriter in a bounded
+ * LRU cache. Cache is split into independently locked segments, so a single
+ * instance may be shared by adapters running in different threads.
+ * URLs are cached by their content: any {@code CharSequence} may be passed,
+ * including reused instances, and keys are always stored as strings. Lookups
+ * with strings and with the URL slices of {@link UrlRewriterTagAdapter}
+ * do not create new strings; other char sequences are converted first.
+ */
+public class UrlRewriteCache implements Function<CharSequence, CharSequence> {
+
+	private static final String UNCHANGED = new String();
+
+	protected final Function<CharSequence, CharSequence> rewriter;
+	protected final Segment[] segments;
+	protected final int segmentMask;
+
+	/**
+	 * Creates the cache with given maximal number of cached URLs.
+	 */
+	public UrlRewriteCache(final Function<CharSequence, CharSequence> rewriter, final int maxSize) {
+		this(rewriter, maxSize, 16);
+	}
+
+	/**
+	 * Creates the cache with given maximal number of cached URLs,
+	 * split in the number of segments; must be a power of two.
+	 */
+	public UrlRewriteCache(final Function<CharSequence, CharSequence> rewriter, final int maxSize, final int segmentsCount) {
+		if (Integer.bitCount(segmentsCount) != 1) {
+			throw new IllegalArgumentException("Segments count must be a power of two: " + segmentsCount);
+		}
+		this.rewriter = rewriter;
+		this.segments = new Segment[segmentsCount];
+		this.segmentMask = segmentsCount - 1;
+
+		final int segmentSize = Math.max(1, maxSize / segmentsCount);
+		for (int i = 0; i < segmentsCount; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * Single LRU segment.
+	 */
+	protected static class Segment extends LinkedHashMap<String, String> {
+		private static final long serialVersionUID = 1L;
+
+		protected final int maxSize;
+
+		protected Segment(final int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+			return size() > maxSize;
+		}
+	}
+
+	/**
+	 * Returns rewritten URL from the cache, or rewrites it and caches the result.
+	 * When URL is not changed, the same instance is returned.
+	 */
+	@Override
+	public CharSequence apply(final CharSequence url) {
+		// hash code and equality of the key must be compatible with strings
+		final CharSequence lookupKey = url instanceof UrlRewriterTagAdapter.Slice ? url : url.toString();
+		final int hash = lookupKey.hashCode();
+		final Segment segment = segments[(hash ^ (hash >>> 16)) & segmentMask];
+
+		String result;
+		synchronized (segment) {
+			result = segment.get(lookupKey);
+		}
+
+		if (result == null) {
+			final String key = lookupKey.toString();
+			final CharSequence rewritten = rewriter.apply(key);
+
+			if (rewritten == key || rewritten == null || key.contentEquals(rewritten)) {
+				result = UNCHANGED;
+			}
+			else {
+				result = rewritten.toString();
+			}
+
+			synchronized (segment) {
+				segment.put(key, result);
+			}
+		}
+
+		if (result == UNCHANGED) {
+			return url;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns number of cached URLs.
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public void clear() {
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.util.CharSequenceUtil;
+
+import java.util.Arrays;
+
+/**
+ * Table of attributes that contain URLs, used by {@link UrlRewriterTagAdapter}.
+ * Each rule defines the tag, the attribute and how the URLs are found in
+ * the attribute value. For every rule type, {@code null} returned by the
+ * rewriter means that the URL is not changed.
+ */
+public class UrlRewriteRules {
+
+	/**
+	 * Defines how URLs are found in the attribute value.
+	 */
+	public enum Type {
+		/**
+		 * Whole value is a single URL.
+		 */
+		URL,
+		/**
+		 * Value is a list of image candidates, like in {@code srcset}.
+		 */
+		SRCSET,
+		/**
+		 * Value is CSS, URLs are inside {@code url()}.
+		 */
+		CSS
+	}
+
+	protected String[] tags = new String[16];
+	protected String[] attributes = new String[16];
+	protected Type[] types = new Type[16];
+	protected int count;
+	protected boolean styleElements;
+
+	/**
+	 * Returns rules for anchors only, i.e. {@code <a href>}.
+	 */
+	public static UrlRewriteRules anchors() {
+		return new UrlRewriteRules().url("a", "href");
+	}
+
+	/**
+	 * Returns rules for all common HTML attributes with URLs,
+	 * including inline styles and style elements.
+	 */
+	public static UrlRewriteRules html() {
+		return new UrlRewriteRules()
+			.url("a", "href")
+			.url("area", "href")
+			.url("link", "href")
+			.url("img", "src")
+			.srcset("img", "srcset")
+			.url("source", "src")
+			.srcset("source", "srcset")
+			.url("script", "src")
+			.url("iframe", "src")
+			.url("embed", "src")
+			.url("video", "src")
+			.url("video", "poster")
+			.url("audio", "src")
+			.url("track", "src")
+			.url("input", "src")
+			.url("object", "data")
+			.url("form", "action")
+			.url("button", "formaction")
+			.url("*", "data-src")
+			.css("*", "style")
+			.styleElements(true);
+	}
+
+	/**
+	 * Adds rule for attribute with single URL.
+	 * Use {@code *} for attributes of any tag.
+	 */
+	public UrlRewriteRules url(final String tag, final String attribute) {
+		return add(tag, attribute, Type.URL);
+	}
+
+	/**
+	 * Adds rule for attribute with list of image candidates.
+	 */
+	public UrlRewriteRules srcset(final String tag, final String attribute) {
+		return add(tag, attribute, Type.SRCSET);
+	}
+
+	/**
+	 * Adds rule for attribute with CSS content.
+	 */
+	public UrlRewriteRules css(final String tag, final String attribute) {
+		return add(tag, attribute, Type.CSS);
+	}
+
+	/**
+	 * Adds new rule.
+	 */
+	public UrlRewriteRules add(final String tag, final String attribute, final Type type) {
+		if (count == tags.length) {
+			tags = Arrays.copyOf(tags, count << 1);
+			attributes = Arrays.copyOf(attributes, count << 1);
+			types = Arrays.copyOf(types, count << 1);
+		}
+		tags[count] = tag.equals("*") ? null : tag.toLowerCase();
+		attributes[count] = attribute.toLowerCase();
+		types[count] = type;
+		count++;
+		return this;
+	}
+
+	/**
+	 * Enables rewriting of URLs in the content of {@code <style>} elements.
+	 */
+	public UrlRewriteRules styleElements(final boolean styleElements) {
+		this.styleElements = styleElements;
+		return this;
+	}
+
+	/**
+	 * Returns {@code true} if content of style elements is rewritten.
+	 */
+	public boolean isStyleElements() {
+		return styleElements;
+	}
+
+	/**
+	 * Returns the type of URLs in the attribute or {@code null}
+	 * if attribute does not contain URLs.
+	 */
+	public Type lookup(final CharSequence tagName, final CharSequence attributeName) {
+		for (int i = 0; i < count; i++) {
+			if (!CharSequenceUtil.equalsToLowercase(attributeName, attributes[i])) {
+				continue;
+			}
+			final String tag = tags[i];
+			if (tag == null || CharSequenceUtil.equalsToLowercase(tagName, tag)) {
+				return types[i];
+			}
+		}
+		return null;
+	}
+}
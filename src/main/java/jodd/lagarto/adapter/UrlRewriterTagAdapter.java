@@ -22,44 +22,339 @@
 // OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
 // OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
+
 package jodd.lagarto.adapter;
 
 import jodd.lagarto.Tag;
 import jodd.lagarto.TagAdapter;
+import jodd.lagarto.TagType;
 import jodd.lagarto.TagVisitor;
+import jodd.util.CharSequenceUtil;
 import jodd.util.CharUtil;
 
 import java.util.function.Function;
 
 /**
- * URL Rewriter.
+ * URL Rewriter. Rewrites URLs in attributes defined by {@link UrlRewriteRules rules}:
+ * single URLs, image candidates of {@code srcset} and {@code url()} in CSS;
+ * optionally also in the content of {@code <style>} elements.
+ * URLs found in the lists and CSS are passed to the rewriter as reused
+ * {@code CharSequence} instances, that must not be stored. Rewriter should return
+ * the same instance, or {@code null}, when URL is not changed. Wrap the rewriter with
+ * {@link UrlRewriteCache} to memoize the results.
  */
 public class UrlRewriterTagAdapter extends TagAdapter {
 
+	private static final String STYLE = "style";
+
 	private final Function<CharSequence, CharSequence> rewriter;
+	private final UrlRewriteRules rules;
+	private final StringBuilder out = new StringBuilder();
+	private final Slice slice = new Slice();
+	private boolean inStyle;
 
+	/**
+	 * Creates rewriter of anchors only.
+	 */
 	public UrlRewriterTagAdapter(final TagVisitor target, final Function<CharSequence, CharSequence> rewriter) {
+		this(target, UrlRewriteRules.anchors(), rewriter);
+	}
+
+	public UrlRewriterTagAdapter(final TagVisitor target, final UrlRewriteRules rules, final Function<CharSequence, CharSequence> rewriter) {
 		super(target);
+		this.rules = rules;
 		this.rewriter = rewriter;
 	}
 
+	@Override
+	public void start() {
+		inStyle = false;
+		super.start();
+	}
+
 	@Override
 	public void tag(final Tag tag) {
-		if (tag.getType().isStartingTag()) {
+		final TagType tagType = tag.getType();
+
+		if (tagType.isStartingTag()) {
 			final CharSequence tagName = tag.getName();
+			final int count = tag.getAttributeCount();
 
-			if (tagName.length() == 1 && CharUtil.toLowerAscii(tagName.charAt(0)) == 'a') {
-				final CharSequence href = tag.getAttributeValue("href");
+			for (int i = 0; i < count; i++) {
+				final UrlRewriteRules.Type type = rules.lookup(tagName, tag.getAttributeName(i));
+				if (type == null) {
+					continue;
+				}
 
-				if (href != null) {
-					final CharSequence newHref = rewriter.apply(href);
+				final CharSequence value = tag.getAttributeValue(i);
+				if (value == null) {
+					continue;
+				}
 
-					if (newHref != href) {
-						tag.setAttribute("href", newHref);
-					}
+				final CharSequence newValue;
+				switch (type) {
+					case SRCSET:
+						newValue = rewriteSrcset(value);
+						break;
+					case CSS:
+						newValue = rewriteCss(value);
+						break;
+					default:
+						newValue = rewriter.apply(value);
+				}
+
+				if (newValue != null && newValue != value) {
+					tag.setAttributeValue(i, newValue);
 				}
 			}
+
+			if (tagType == TagType.START && rules.isStyleElements() && CharSequenceUtil.equalsToLowercase(tagName, STYLE)) {
+				inStyle = true;
+			}
+		}
+		else if (inStyle && CharSequenceUtil.equalsToLowercase(tag.getName(), STYLE)) {
+			inStyle = false;
 		}
 		super.tag(tag);
 	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (inStyle) {
+			super.text(rewriteCss(text));
+			return;
+		}
+		super.text(text);
+	}
+
+	// ---------------------------------------------------------------- tokenizers
+
+	/**
+	 * Rewrites URLs in the list of image candidates. Each candidate is
+	 * an URL followed by optional descriptors; candidates are separated by commas.
+	 * Returns the same instance if nothing is changed.
+	 */
+	protected CharSequence rewriteSrcset(final CharSequence value) {
+		final int length = value.length();
+		int copied = 0;
+		int ndx = 0;
+
+		out.setLength(0);
+
+		while (ndx < length) {
+			// skip whitespaces and commas
+			while (ndx < length && (CharUtil.isWhitespace(value.charAt(ndx)) || value.charAt(ndx) == ',')) {
+				ndx++;
+			}
+			if (ndx == length) {
+				break;
+			}
+
+			// url
+			final int urlStart = ndx;
+			while (ndx < length && !CharUtil.isWhitespace(value.charAt(ndx))) {
+				ndx++;
+			}
+			int urlEnd = ndx;
+
+			if (value.charAt(urlEnd - 1) == ',') {
+				// no descriptors
+				while (urlEnd > urlStart && value.charAt(urlEnd - 1) == ',') {
+					urlEnd--;
+				}
+			}
+			else {
+				// descriptors, up to the comma outside of parentheses
+				boolean inParens = false;
+				while (ndx < length) {
+					final char c = value.charAt(ndx);
+					if (c == '(') {
+						inParens = true;
+					}
+					else if (c == ')') {
+						inParens = false;
+					}
+					else if (c == ',' && !inParens) {
+						break;
+					}
+					ndx++;
+				}
+			}
+
+			copied = rewriteUrl(value, urlStart, urlEnd, copied);
+		}
+
+		return result(value, copied);
+	}
+
+	/**
+	 * Rewrites URLs in {@code url()} functions of CSS content.
+	 * Returns the same instance if nothing is changed.
+	 */
+	protected CharSequence rewriteCss(final CharSequence value) {
+		final int length = value.length();
+		int copied = 0;
+		int ndx = 0;
+
+		out.setLength(0);
+
+		while (true) {
+			ndx = indexOfUrlFunction(value, ndx);
+			if (ndx == -1) {
+				break;
+			}
+			ndx += 4;
+
+			while (ndx < length && CharUtil.isWhitespace(value.charAt(ndx))) {
+				ndx++;
+			}
+			if (ndx == length) {
+				break;
+			}
+
+			final char quote = value.charAt(ndx);
+			final int urlStart;
+			int urlEnd;
+
+			if (quote == '\'' || quote == '\"') {
+				urlStart = ndx + 1;
+				urlEnd = urlStart;
+				while (urlEnd < length && value.charAt(urlEnd) != quote) {
+					if (value.charAt(urlEnd) == '\\') {
+						urlEnd++;
+					}
+					urlEnd++;
+				}
+				if (urlEnd >= length) {
+					break;
+				}
+				ndx = urlEnd + 1;
+			}
+			else {
+				urlStart = ndx;
+				urlEnd = ndx;
+				while (urlEnd < length && value.charAt(urlEnd) != ')') {
+					urlEnd++;
+				}
+				if (urlEnd == length) {
+					break;
+				}
+				ndx = urlEnd + 1;
+				while (urlEnd > urlStart && CharUtil.isWhitespace(value.charAt(urlEnd - 1))) {
+					urlEnd--;
+				}
+			}
+
+			if (urlEnd > urlStart) {
+				copied = rewriteUrl(value, urlStart, urlEnd, copied);
+			}
+		}
+
+		return result(value, copied);
+	}
+
+	/**
+	 * Finds case-insensitive {@code url(} starting from given index.
+	 */
+	private static int indexOfUrlFunction(final CharSequence value, int ndx) {
+		final int last = value.length() - 4;
+
+		for (; ndx <= last; ndx++) {
+			if (value.charAt(ndx + 3) == '('
+				&& CharUtil.toLowerAscii(value.charAt(ndx)) == 'u'
+				&& CharUtil.toLowerAscii(value.charAt(ndx + 1)) == 'r'
+				&& CharUtil.toLowerAscii(value.charAt(ndx + 2)) == 'l') {
+				return ndx;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Rewrites single URL within the value. Changed URL is written to the output,
+	 * together with the preceding unchanged content. Returns the index up to which
+	 * the value has been copied to the output.
+	 */
+	private int rewriteUrl(final CharSequence value, final int urlStart, final int urlEnd, final int copied) {
+		slice.set(value, urlStart, urlEnd);
+
+		final CharSequence newUrl = rewriter.apply(slice);
+		if (newUrl == slice || newUrl == null || slice.equals(newUrl)) {
+			return copied;
+		}
+
+		out.append(value, copied, urlStart).append(newUrl);
+		return urlEnd;
+	}
+
+	private CharSequence result(final CharSequence value, final int copied) {
+		if (copied == 0) {
+			return value;
+		}
+		out.append(value, copied, value.length());
+		return out.toString();
+	}
+
+	/**
+	 * Reusable view of the part of a char sequence. Its hash code
+	 * and equality are compatible with strings, so it can be used
+	 * for map lookups without creating new strings.
+	 */
+	static final class Slice implements CharSequence {
+		private CharSequence value;
+		private int start;
+		private int length;
+
+		void set(final CharSequence value, final int start, final int end) {
+			this.value = value;
+			this.start = start;
+			this.length = end - start;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(final int index) {
+			return value.charAt(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(final int from, final int to) {
+			return value.subSequence(start + from, start + to);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 0;
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + value.charAt(start + i);
+			}
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof CharSequence)) {
+				return false;
+			}
+			final CharSequence other = (CharSequence) obj;
+			if (other.length() != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (other.charAt(i) != value.charAt(start + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return value.subSequence(start, start + length).toString();
+		}
+	}
 }
@@ -24,27 +24,45 @@
 
 package jodd.lagarto.dom;
 
-import jodd.util.StringUtil;
-
 /**
- * Elements attribute.
+ * Elements attribute. Attributes returned by the {@link Node} are views
+ * of the node's attribute storage, created on demand: changing their value
+ * changes the node. Views should not be kept while attributes of the node
+ * are removed. Attributes created with the public constructor are detached.
  */
 public class Attribute implements Cloneable {
 
 	protected final String rawName;
 	protected final String name;
 	protected String value;
-	protected String[] splits;
+
+	protected final Node owner;
+	protected final int index;
 
 	public Attribute(final String rawName, final String name, final String value) {
 		this.rawName = rawName;
 		this.name = name;
 		this.value = value;
+		this.owner = null;
+		this.index = -1;
 	}
-	
+
+	/**
+	 * Creates the view of the node attribute stored at given index.
+	 */
+	Attribute(final Node owner, final int index) {
+		this.rawName = owner.attributes.rawNames[index];
+		this.name = owner.attributes.names[index];
+		this.owner = owner;
+		this.index = index;
+	}
+
+	/**
+	 * Returns detached copy of this attribute.
+	 */
 	@Override
 	public Attribute clone() {
-		return new Attribute(rawName, name, value);
+		return new Attribute(rawName, name, getValue());
 	}
 
 	/**
@@ -62,9 +80,13 @@ public class Attribute implements Cloneable {
 	}
 
 	/**
-	 * Returns attribute value.
+	 * Returns attribute value. Source-backed value is materialized
+	 * on the first call.
 	 */
 	public String getValue() {
+		if (owner != null) {
+			return owner.attributes.value(index);
+		}
 		return value;
 	}
 
@@ -72,27 +94,31 @@ public class Attribute implements Cloneable {
 	 * Sets attribute value.
 	 */
 	public void setValue(final String value) {
+		if (owner != null) {
+			owner.setAttributeValue(index, value);
+			return;
+		}
 		this.value = value;
 	}
 
-	// ---------------------------------------------------------------- splits
+	/**
+	 * Returns {@code true} if the value is still kept
+	 * as a range of the parsed input.
+	 */
+	public boolean isSourceBacked() {
+		return owner != null && owner.attributes.isSourceBacked(index);
+	}
+
+	// ---------------------------------------------------------------- words
 
 	/**
 	 * Returns true if attribute is containing some value.
 	 */
 	public boolean isContaining(final String include) {
+		final String value = getValue();
 		if (value == null) {
 			return false;
 		}
-		if (splits == null) {
-			splits = StringUtil.splitc(value, ' ');
-		}
-
-		for (String s: splits) {
-			if (s.equals(include)) {
-				return true;
-			}
-		}
-		return false;
+		return Attributes.containsWord(value, include);
 	}
 }
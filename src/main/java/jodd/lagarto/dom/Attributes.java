@@ -0,0 +1,410 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import java.util.Arrays;
+
+/**
+ * Attribute storage of a {@link Node}. Names and values are kept in
+ * parallel arrays, with room for a few attributes from the start, and
+ * names are shared through the document {@link Names name cache}. When there are many attributes, a hash index of
+ * names is built on the first lookup. Values may be source-backed: kept
+ * as ranges of the parsed input until read. {@link Attribute}
+ * instances are only views of this storage. Copies share the arrays
+ * until one of them is modified.
+ */
+final class Attributes {
+
+	private static final int INLINE_SIZE = 4;
+	private static final int INDEX_THRESHOLD = 8;
+
+	String[] rawNames;
+	String[] names;
+	String[] values;
+	int size;
+
+	private CharSequence source;
+	private int[] sourceRanges;
+	private int[] index;
+	private boolean shared;
+
+	Attributes() {
+		this(INLINE_SIZE);
+	}
+
+	Attributes(final int capacity) {
+		final int length = Math.max(capacity, INLINE_SIZE);
+		this.rawNames = new String[length];
+		this.names = new String[length];
+		this.values = new String[length];
+	}
+
+	/**
+	 * Creates a copy sharing arrays with given storage.
+	 */
+	private Attributes(final Attributes attributes) {
+		this.rawNames = attributes.rawNames;
+		this.names = attributes.names;
+		this.values = attributes.values;
+		this.size = attributes.size;
+		this.source = attributes.source;
+		this.sourceRanges = attributes.sourceRanges;
+		this.index = attributes.index;
+		this.shared = true;
+	}
+
+	// ---------------------------------------------------------------- lookup
+
+	/**
+	 * Returns the index of given (already case-normalized) name or {@code -1}.
+	 */
+	int indexOf(final String name) {
+		if (size > INDEX_THRESHOLD) {
+			if (index == null) {
+				buildIndex();
+			}
+			final int mask = index.length - 1;
+			int slot = hash(name) & mask;
+			while (true) {
+				final int position = index[slot];
+				if (position == 0) {
+					return -1;
+				}
+				if (names[position - 1].equals(name)) {
+					return position - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int hash(final String name) {
+		final int h = name.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private void buildIndex() {
+		int length = 16;
+		while (length < size << 1) {
+			length <<= 1;
+		}
+		index = new int[length];
+		for (int i = 0; i < size; i++) {
+			addToIndex(i);
+		}
+	}
+
+	private void addToIndex(final int position) {
+		final int mask = index.length - 1;
+		int slot = hash(names[position]) & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = position + 1;
+	}
+
+	// ---------------------------------------------------------------- modify
+
+	/**
+	 * Sets the value of an existing attribute or adds the new one.
+	 */
+	void set(final String rawName, final String name, final String value) {
+		final int ndx = indexOf(name);
+		if (ndx != -1) {
+			setValue(ndx, value);
+			return;
+		}
+		add(rawName, name, value);
+	}
+
+	/**
+	 * Copies the arrays shared with some other storage before modification.
+	 */
+	private void unshare() {
+		if (!shared) {
+			return;
+		}
+		rawNames = rawNames.clone();
+		names = names.clone();
+		values = values.clone();
+		if (sourceRanges != null) {
+			sourceRanges = sourceRanges.clone();
+		}
+		if (index != null) {
+			index = index.clone();
+		}
+		shared = false;
+	}
+
+	/**
+	 * Adds an attribute without checking for the duplicates.
+	 */
+	void add(final String rawName, final String name, final String value) {
+		unshare();
+		if (size == names.length) {
+			final int length = size << 1;
+			rawNames = Arrays.copyOf(rawNames, length);
+			names = Arrays.copyOf(names, length);
+			values = Arrays.copyOf(values, length);
+			if (sourceRanges != null) {
+				sourceRanges = Arrays.copyOf(sourceRanges, length << 1);
+			}
+		}
+		rawNames[size] = rawName;
+		names[size] = name;
+		values[size] = value;
+		if (sourceRanges != null) {
+			sourceRanges[size << 1] = -1;
+		}
+		size++;
+
+		if (index != null) {
+			if (size << 1 > index.length) {
+				index = null;
+			} else {
+				addToIndex(size - 1);
+			}
+		}
+	}
+
+	void remove(final int ndx) {
+		unshare();
+		final int tail = size - ndx - 1;
+		System.arraycopy(rawNames, ndx + 1, rawNames, ndx, tail);
+		System.arraycopy(names, ndx + 1, names, ndx, tail);
+		System.arraycopy(values, ndx + 1, values, ndx, tail);
+		if (sourceRanges != null) {
+			System.arraycopy(sourceRanges, (ndx + 1) << 1, sourceRanges, ndx << 1, tail << 1);
+		}
+		size--;
+		rawNames[size] = null;
+		names[size] = null;
+		values[size] = null;
+		index = null;
+	}
+
+	// ---------------------------------------------------------------- values
+
+	/**
+	 * Returns the value, materializing the source-backed one.
+	 * Materialized value is the same for all copies sharing the arrays.
+	 */
+	String value(final int ndx) {
+		if (isSourceBacked(ndx)) {
+			final int range = ndx << 1;
+			values[ndx] = source.subSequence(sourceRanges[range], sourceRanges[range + 1]).toString();
+			sourceRanges[range] = -1;
+		}
+		return values[ndx];
+	}
+
+	void setValue(final int ndx, final String value) {
+		unshare();
+		values[ndx] = value;
+		if (sourceRanges != null) {
+			sourceRanges[ndx << 1] = -1;
+		}
+	}
+
+	/**
+	 * Sets the value as a range of the source. All source-backed values
+	 * share the same source; value from other source is stored as string.
+	 */
+	void setSourceValue(final int ndx, final CharSequence source, final int start, final int end) {
+		unshare();
+		if (this.source == null) {
+			this.source = source;
+		}
+		else if (this.source != source) {
+			setValue(ndx, source.subSequence(start, end).toString());
+			return;
+		}
+		if (sourceRanges == null) {
+			sourceRanges = new int[names.length << 1];
+			for (int i = 0; i < size; i++) {
+				sourceRanges[i << 1] = -1;
+			}
+		}
+		values[ndx] = null;
+		sourceRanges[ndx << 1] = start;
+		sourceRanges[(ndx << 1) + 1] = end;
+	}
+
+	boolean isSourceBacked(final int ndx) {
+		return sourceRanges != null && sourceRanges[ndx << 1] != -1;
+	}
+
+	/**
+	 * Returns {@code true} if space-separated value contains given word.
+	 */
+	static boolean containsWord(final String value, final String word) {
+		final int length = value.length();
+		final int wordLength = word.length();
+
+		if (wordLength == 0) {
+			return length == 0 || value.charAt(0) == ' ' || value.charAt(length - 1) == ' ';
+		}
+
+		int ndx = 0;
+		while (ndx < length) {
+			if (value.charAt(ndx) == ' ') {
+				ndx++;
+				continue;
+			}
+			final int end = ndx + wordLength;
+			if (end <= length && value.startsWith(word, ndx) && (end == length || value.charAt(end) == ' ')) {
+				return true;
+			}
+			while (ndx < length && value.charAt(ndx) != ' ') {
+				ndx++;
+			}
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- freeze
+
+	/**
+	 * Materializes all values and builds the index, so the storage
+	 * is not written when read. Any later modification copies the arrays.
+	 */
+	void freeze() {
+		for (int i = 0; i < size; i++) {
+			value(i);
+		}
+		if (size > INDEX_THRESHOLD && index == null) {
+			buildIndex();
+		}
+		shared = true;
+	}
+
+	// ---------------------------------------------------------------- copy
+
+	/**
+	 * Returns a copy that shares arrays with this storage until
+	 * either of them is modified.
+	 */
+	Attributes copy() {
+		final Attributes copy = new Attributes(this);
+		if (!shared) {
+			shared = true;
+		}
+		return copy;
+	}
+
+	// ---------------------------------------------------------------- names
+
+	/**
+	 * Small direct-mapped cache of attribute names of a document. Repeated
+	 * names are returned as the same instances without creating new strings,
+	 * and each name is lowercased only once. Colliding names simply replace
+	 * each other.
+	 */
+	static final class Names {
+
+		private static final int BITS = 8;
+		private static final int SIZE = 1 << BITS;
+
+		private final String[] rawNames = new String[SIZE];
+		private final String[] names = new String[SIZE];
+
+		/**
+		 * Returns the raw name equal to given characters.
+		 */
+		String rawName(final CharSequence name) {
+			final int slot = slot(hashCode(name));
+			final String cached = rawNames[slot];
+			if (cached != null && contentEquals(cached, name)) {
+				return cached;
+			}
+			final String rawName = name.toString();
+			rawNames[slot] = rawName;
+			names[slot] = null;
+			return rawName;
+		}
+
+		/**
+		 * Returns the lowercased name for the raw name returned by this cache.
+		 */
+		String lowerCaseName(final String rawName) {
+			final int slot = slot(rawName.hashCode());
+			if (rawNames[slot] != rawName) {
+				return rawName.toLowerCase();
+			}
+			String name = names[slot];
+			if (name == null) {
+				name = rawName.toLowerCase();
+				if (name != rawName) {
+					// different spellings share the lowercased instance
+					name = rawName(name);
+				}
+				names[slot] = name;
+			}
+			return name;
+		}
+
+		/**
+		 * Returns the same hash code as {@link String#hashCode()}.
+		 */
+		private static int hashCode(final CharSequence name) {
+			if (name instanceof String) {
+				return name.hashCode();
+			}
+			int h = 0;
+			for (int i = 0, length = name.length(); i < length; i++) {
+				h = 31 * h + name.charAt(i);
+			}
+			return h;
+		}
+
+		/**
+		 * Spreads the hash, as the low bits of names that differ
+		 * only in letter case are often the same.
+		 */
+		private static int slot(final int hash) {
+			return (hash * 0x9E3779B9) >>> (32 - BITS);
+		}
+
+		private static boolean contentEquals(final String string, final CharSequence name) {
+			final int length = string.length();
+			if (length != name.length()) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (string.charAt(i) != name.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,496 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, read-only representation of the DOM tree, for keeping many parsed
+ * documents in the memory. The tree is stored in primitive arrays (parent,
+ * first child, next sibling, name index, value offsets), all values share
+ * a single char array and names are stored once per document, as interned strings.
+ * <p>
+ * Nodes are accessed through lightweight {@link CompactNode} views that are
+ * created on demand. When the full {@link Node} API is needed (for example for
+ * {@link NodeSelector} or Jerry), the whole tree or any of its subtrees is
+ * materialized into regular nodes with {@link #toDocument()} and {@link #toNode(int)}.
+ * Compact documents are read-only views without query support: CSS selectors
+ * run only on the materialized nodes.
+ */
+public final class CompactDocument {
+
+	static final int NONE = -1;
+
+	private static final byte FLAG_VOID = 1;
+	private static final byte FLAG_SELF_CLOSED = 2;
+	private static final byte FLAG_RAW = 4;
+
+	private static final Node.NodeType[] NODE_TYPES = Node.NodeType.values();
+
+	private final LagartoDomBuilderConfig config;
+
+	// nodes
+
+	final int size;
+	final byte[] types;
+	final byte[] flags;
+	final int[] parent;
+	final int[] firstChild;
+	final int[] nextSibling;
+	final int[] name;
+	final int[] valueStart;
+	final int[] valueEnd;
+	final int[] attrStart;
+	final int[] attrEnd;
+
+	// attributes
+
+	final int[] attrName;
+	final int[] attrValueStart;
+	final int[] attrValueEnd;
+
+	// shared tables
+
+	final String[] names;
+	final char[] chars;
+	final Map<Integer, String[]> declarations;
+
+	/**
+	 * Creates compact copy of the document.
+	 */
+	public static CompactDocument of(final Document document) {
+		return new Builder(document).build();
+	}
+
+	/**
+	 * Parses HTML content into compact document.
+	 */
+	public static CompactDocument parse(final CharSequence content) {
+		return of(new LagartoDOMBuilder().parse(content));
+	}
+
+	/**
+	 * Parses content with given DOM builder into compact document.
+	 */
+	public static CompactDocument parse(final CharSequence content, final LagartoDOMBuilder domBuilder) {
+		return of(domBuilder.parse(content));
+	}
+
+	private CompactDocument(final Builder builder) {
+		this.config = builder.config;
+		this.size = builder.size;
+		this.types = builder.types;
+		this.flags = builder.flags;
+		this.parent = builder.parent;
+		this.firstChild = builder.firstChild;
+		this.nextSibling = builder.nextSibling;
+		this.name = builder.name;
+		this.valueStart = builder.valueStart;
+		this.valueEnd = builder.valueEnd;
+		this.attrStart = builder.attrStart;
+		this.attrEnd = builder.attrEnd;
+		this.attrName = Arrays.copyOf(builder.attrName, builder.attrsCount);
+		this.attrValueStart = Arrays.copyOf(builder.attrValueStart, builder.attrsCount);
+		this.attrValueEnd = Arrays.copyOf(builder.attrValueEnd, builder.attrsCount);
+		this.names = builder.names.toArray(new String[0]);
+		this.chars = builder.chars.toString().toCharArray();
+		this.declarations = builder.declarations;
+	}
+
+	// ---------------------------------------------------------------- access
+
+	/**
+	 * Returns the configuration of the original document.
+	 */
+	public LagartoDomBuilderConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Returns the total number of nodes, including the document node.
+	 */
+	public int getNodesCount() {
+		return size;
+	}
+
+	/**
+	 * Returns the view of the document node.
+	 */
+	public CompactNode getDocumentNode() {
+		return new CompactNode(this, 0);
+	}
+
+	/**
+	 * Returns the view of the node on given index. Nodes are indexed in the document order.
+	 */
+	public CompactNode getNode(final int index) {
+		if (index < 0 || index >= size) {
+			return null;
+		}
+		return new CompactNode(this, index);
+	}
+
+	Node.NodeType nodeType(final int index) {
+		return NODE_TYPES[types[index]];
+	}
+
+	String rawName(final int index) {
+		final int ndx = name[index];
+		return ndx == NONE ? null : names[ndx];
+	}
+
+	String nodeName(final int index) {
+		final String rawName = rawName(index);
+		if (rawName == null || config.parserConfig.isCaseSensitive()) {
+			return rawName;
+		}
+		return rawName.toLowerCase();
+	}
+
+	String value(final int index) {
+		final int start = valueStart[index];
+		return start == NONE ? null : new String(chars, start, valueEnd[index] - start);
+	}
+
+	String attributeRawName(final int attrIndex) {
+		return names[attrName[attrIndex]];
+	}
+
+	String attributeValue(final int attrIndex) {
+		final int start = attrValueStart[attrIndex];
+		return start == NONE ? null : new String(chars, start, attrValueEnd[attrIndex] - start);
+	}
+
+	/**
+	 * Finds the attribute of the node, returns its index or {@link #NONE}.
+	 */
+	int findAttribute(final int index, final String attributeName) {
+		final boolean caseSensitive = config.parserConfig.isCaseSensitive();
+		for (int i = attrStart[index]; i < attrEnd[index]; i++) {
+			final String rawName = names[attrName[i]];
+			if (caseSensitive ? rawName.equals(attributeName) : rawName.equalsIgnoreCase(attributeName)) {
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	void appendText(final int index, final StringBuilder sb) {
+		final int end = subtreeEnd(index);
+		for (int i = index; i < end; i++) {
+			final Node.NodeType type = nodeType(i);
+			if (type == Node.NodeType.TEXT || type == Node.NodeType.CDATA) {
+				sb.append(chars, valueStart[i], valueEnd[i] - valueStart[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index after the last descendant of the node. Nodes are
+	 * indexed in the document order, so the subtree is a continuous range.
+	 */
+	private int subtreeEnd(final int index) {
+		for (int node = index; node != NONE; node = parent[node]) {
+			if (nextSibling[node] != NONE) {
+				return nextSibling[node];
+			}
+		}
+		return size;
+	}
+
+	// ---------------------------------------------------------------- materialize
+
+	/**
+	 * Materializes the regular DOM tree.
+	 */
+	public Document toDocument() {
+		final Document document = new Document(config);
+		appendChildren(document, 0, document);
+		document.end();
+		return document;
+	}
+
+	/**
+	 * Materializes the regular DOM node on given index and all its children.
+	 * Node is owned by the new document, but is not attached to it.
+	 */
+	public Node toNode(final int index) {
+		if (index == 0) {
+			return toDocument();
+		}
+		final Document document = new Document(config);
+		final Node node = createNode(document, index);
+		appendChildren(node, index, document);
+		return node;
+	}
+
+	/**
+	 * Appends all descendants of the node on given index to the target node.
+	 * Tree is walked without recursion, so deeply nested trees can be materialized.
+	 */
+	private void appendChildren(final Node target, final int index, final Document document) {
+		Node parentNode = target;
+		int child = firstChild[index];
+
+		while (child != NONE) {
+			final Node node = createNode(document, child);
+			parentNode.addChild(node);
+
+			if (firstChild[child] != NONE) {
+				parentNode = node;
+				child = firstChild[child];
+				continue;
+			}
+			while (nextSibling[child] == NONE && parent[child] != index) {
+				child = parent[child];
+				parentNode = parentNode.getParentNode();
+			}
+			child = nextSibling[child];
+		}
+	}
+
+	private Node createNode(final Document document, final int index) {
+		switch (nodeType(index)) {
+			case ELEMENT:
+				final byte flag = flags[index];
+				final Element element = new Element(document, rawName(index),
+					(flag & FLAG_VOID) != 0, (flag & FLAG_SELF_CLOSED) != 0, (flag & FLAG_RAW) != 0);
+				for (int i = attrStart[index]; i < attrEnd[index]; i++) {
+					element.setAttribute(attributeRawName(i), attributeValue(i));
+				}
+				return element;
+			case TEXT:
+				return new Text(document, value(index));
+			case COMMENT:
+				return new Comment(document, value(index));
+			case CDATA:
+				return new CData(document, value(index));
+			case DOCUMENT_TYPE:
+				final String[] doctype = declarations.get(index);
+				return new DocumentType(document, value(index), doctype[0], doctype[1]);
+			case XML_DECLARATION:
+				final String[] xml = declarations.get(index);
+				return new XmlDeclaration(document, xml[0], xml[1], xml[2]);
+			default:
+				throw new LagartoDOMException("Invalid node type at: " + index);
+		}
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Flattens the DOM tree into arrays, in the document order.
+	 */
+	private static class Builder {
+		private final LagartoDomBuilderConfig config;
+		private final Node root;
+		private final int size;
+		private final byte[] types;
+		private final byte[] flags;
+		private final int[] parent;
+		private final int[] firstChild;
+		private final int[] nextSibling;
+		private final int[] name;
+		private final int[] valueStart;
+		private final int[] valueEnd;
+		private final int[] attrStart;
+		private final int[] attrEnd;
+
+		private int[] attrName = new int[64];
+		private int[] attrValueStart = new int[64];
+		private int[] attrValueEnd = new int[64];
+		private int attrsCount;
+
+		private final Map<String, Integer> nameIndexes = new HashMap<>();
+		private final List<String> names = new ArrayList<>();
+		private final StringBuilder chars = new StringBuilder();
+		private final Map<Integer, String[]> declarations = new HashMap<>();
+		private int count;
+
+		private Builder(final Document document) {
+			this.config = document.getConfig();
+			this.root = document;
+			this.size = countNodes(document);
+			this.types = new byte[size];
+			this.flags = new byte[size];
+			this.parent = new int[size];
+			this.firstChild = new int[size];
+			this.nextSibling = new int[size];
+			this.name = new int[size];
+			this.valueStart = new int[size];
+			this.valueEnd = new int[size];
+			this.attrStart = new int[size];
+			this.attrEnd = new int[size];
+		}
+
+		private static int countNodes(final Node root) {
+			int count = 0;
+			final ArrayDeque<Node> nodes = new ArrayDeque<>();
+			nodes.push(root);
+			while (!nodes.isEmpty()) {
+				final Node node = nodes.pop();
+				count++;
+				for (int i = node.getChildNodesCount() - 1; i >= 0; i--) {
+					nodes.push(node.getChild(i));
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Adds all nodes in the document order, walking the tree
+		 * without recursion.
+		 */
+		private CompactDocument build() {
+			Node node = root;
+			int parentIndex = NONE;
+			int previous = NONE;
+
+			while (true) {
+				final int index = add(node, parentIndex, previous);
+
+				if (node.hasChildNodes()) {
+					node = node.getFirstChild();
+					parentIndex = index;
+					previous = NONE;
+					continue;
+				}
+
+				int current = index;
+				while (node != root && node.getNextSibling() == null) {
+					node = node.getParentNode();
+					current = parentIndex;
+					parentIndex = parent[parentIndex];
+				}
+				if (node == root) {
+					break;
+				}
+				node = node.getNextSibling();
+				previous = current;
+			}
+			return new CompactDocument(this);
+		}
+
+		private int add(final Node node, final int parentIndex, final int previous) {
+			final int index = count++;
+
+			types[index] = (byte) node.getNodeType().ordinal();
+			parent[index] = parentIndex;
+			firstChild[index] = NONE;
+			nextSibling[index] = NONE;
+			if (previous != NONE) {
+				nextSibling[previous] = index;
+			}
+			else if (parentIndex != NONE) {
+				firstChild[parentIndex] = index;
+			}
+			name[index] = node.getNodeType() == Node.NodeType.ELEMENT ? nameIndex(node.getNodeRawName()) : NONE;
+
+			switch (node.getNodeType()) {
+				case TEXT:
+				case COMMENT:
+				case CDATA:
+				case DOCUMENT_TYPE:
+					final String value = node.getNodeValue();
+					valueStart[index] = appendChars(value);
+					valueEnd[index] = chars.length();
+					break;
+				default:
+					valueStart[index] = NONE;
+					valueEnd[index] = NONE;
+			}
+
+			if (node.getNodeType() == Node.NodeType.DOCUMENT_TYPE) {
+				final DocumentType documentType = (DocumentType) node;
+				declarations.put(index, new String[] {documentType.getPublicIdentifier(), documentType.getSystemIdentifier()});
+			}
+			else if (node.getNodeType() == Node.NodeType.XML_DECLARATION) {
+				final XmlDeclaration xml = (XmlDeclaration) node;
+				declarations.put(index, new String[] {xml.getVersion(), xml.getEncoding(), xml.getStandalone()});
+			}
+			else if (node.getNodeType() == Node.NodeType.ELEMENT) {
+				final Element element = (Element) node;
+				byte flag = 0;
+				if (element.isVoidElement()) {
+					flag |= FLAG_VOID;
+				}
+				if (element.isSelfClosed()) {
+					flag |= FLAG_SELF_CLOSED;
+				}
+				if (element.isRawTag()) {
+					flag |= FLAG_RAW;
+				}
+				flags[index] = flag;
+			}
+
+			attrStart[index] = attrsCount;
+			final int attributesCount = node.getAttributesCount();
+			for (int i = 0; i < attributesCount; i++) {
+				addAttribute(node.getAttribute(i));
+			}
+			attrEnd[index] = attrsCount;
+
+			return index;
+		}
+
+		private void addAttribute(final Attribute attribute) {
+			if (attrsCount == attrName.length) {
+				attrName = Arrays.copyOf(attrName, attrsCount << 1);
+				attrValueStart = Arrays.copyOf(attrValueStart, attrsCount << 1);
+				attrValueEnd = Arrays.copyOf(attrValueEnd, attrsCount << 1);
+			}
+			attrName[attrsCount] = nameIndex(attribute.getRawName());
+			attrValueStart[attrsCount] = appendChars(attribute.getValue());
+			attrValueEnd[attrsCount] = chars.length();
+			attrsCount++;
+		}
+
+		private int appendChars(final String value) {
+			if (value == null) {
+				return NONE;
+			}
+			final int start = chars.length();
+			chars.append(value);
+			return start;
+		}
+
+		private int nameIndex(final String name) {
+			final Integer index = nameIndexes.get(name);
+			if (index != null) {
+				return index.intValue();
+			}
+			final int newIndex = names.size();
+			names.add(name.intern());
+			nameIndexes.put(name, Integer.valueOf(newIndex));
+			return newIndex;
+		}
+	}
+}
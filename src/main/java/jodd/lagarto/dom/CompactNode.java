@@ -0,0 +1,243 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+/**
+ * Lightweight read-only view of the node in the {@link CompactDocument}.
+ * Views are created on demand and hold only the document and the node index,
+ * so they may be freely discarded. Two views of the same node are equal.
+ */
+public final class CompactNode {
+
+	private final CompactDocument document;
+	private final int index;
+
+	CompactNode(final CompactDocument document, final int index) {
+		this.document = document;
+		this.index = index;
+	}
+
+	private CompactNode view(final int nodeIndex) {
+		return nodeIndex == CompactDocument.NONE ? null : new CompactNode(document, nodeIndex);
+	}
+
+	// ---------------------------------------------------------------- basic
+
+	/**
+	 * Returns the compact document.
+	 */
+	public CompactDocument getDocument() {
+		return document;
+	}
+
+	/**
+	 * Returns the index of the node in the document order.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns {@link Node.NodeType node type}.
+	 */
+	public Node.NodeType getNodeType() {
+		return document.nodeType(index);
+	}
+
+	/**
+	 * Returns node name or {@code null} if name is not available.
+	 * @see Node#getNodeName()
+	 */
+	public String getNodeName() {
+		return document.nodeName(index);
+	}
+
+	/**
+	 * Returns node raw name, exactly as it was given in the input.
+	 */
+	public String getNodeRawName() {
+		return document.rawName(index);
+	}
+
+	/**
+	 * Returns node value or {@code null} if value is not available.
+	 */
+	public String getNodeValue() {
+		return document.value(index);
+	}
+
+	// ---------------------------------------------------------------- tree
+
+	/**
+	 * Returns parent node or {@code null} for the document node.
+	 */
+	public CompactNode getParentNode() {
+		return view(document.parent[index]);
+	}
+
+	/**
+	 * Returns first child or {@code null} if there are no children.
+	 */
+	public CompactNode getFirstChild() {
+		return view(document.firstChild[index]);
+	}
+
+	/**
+	 * Returns next sibling or {@code null} if this is the last sibling.
+	 */
+	public CompactNode getNextSibling() {
+		return view(document.nextSibling[index]);
+	}
+
+	/**
+	 * Returns first child element or {@code null} if there are no child elements.
+	 */
+	public CompactNode getFirstChildElement() {
+		return view(nextElement(document.firstChild[index]));
+	}
+
+	/**
+	 * Returns next sibling element or {@code null} if there is none.
+	 */
+	public CompactNode getNextSiblingElement() {
+		return view(nextElement(document.nextSibling[index]));
+	}
+
+	private int nextElement(int nodeIndex) {
+		while (nodeIndex != CompactDocument.NONE && document.nodeType(nodeIndex) != Node.NodeType.ELEMENT) {
+			nodeIndex = document.nextSibling[nodeIndex];
+		}
+		return nodeIndex;
+	}
+
+	/**
+	 * Returns {@code true} if node has child nodes.
+	 */
+	public boolean hasChildNodes() {
+		return document.firstChild[index] != CompactDocument.NONE;
+	}
+
+	/**
+	 * Returns number of child nodes.
+	 */
+	public int getChildNodesCount() {
+		int count = 0;
+		for (int child = document.firstChild[index]; child != CompactDocument.NONE; child = document.nextSibling[child]) {
+			count++;
+		}
+		return count;
+	}
+
+	// ---------------------------------------------------------------- attributes
+
+	/**
+	 * Returns total number of attributes.
+	 */
+	public int getAttributesCount() {
+		return document.attrEnd[index] - document.attrStart[index];
+	}
+
+	/**
+	 * Returns raw name of the attribute on given index.
+	 */
+	public String getAttributeName(final int attributeIndex) {
+		return document.attributeRawName(document.attrStart[index] + attributeIndex);
+	}
+
+	/**
+	 * Returns value of the attribute on given index.
+	 */
+	public String getAttributeValue(final int attributeIndex) {
+		return document.attributeValue(document.attrStart[index] + attributeIndex);
+	}
+
+	/**
+	 * Returns {@code true} if node contains an attribute.
+	 */
+	public boolean hasAttribute(final String name) {
+		return document.findAttribute(index, name) != CompactDocument.NONE;
+	}
+
+	/**
+	 * Returns attribute value or {@code null} when attribute does
+	 * not exist or has no value.
+	 */
+	public String getAttribute(final String name) {
+		final int attrIndex = document.findAttribute(index, name);
+		return attrIndex == CompactDocument.NONE ? null : document.attributeValue(attrIndex);
+	}
+
+	// ---------------------------------------------------------------- content
+
+	/**
+	 * Returns the text content of this node and its descendants.
+	 */
+	public String getTextContent() {
+		final StringBuilder sb = new StringBuilder();
+		document.appendText(index, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Materializes this node and its descendants into regular DOM nodes.
+	 * @see CompactDocument#toNode(int)
+	 */
+	public Node toNode() {
+		return document.toNode(index);
+	}
+
+	/**
+	 * Generates HTML of this node.
+	 */
+	public String getHtml() {
+		return toNode().getHtml();
+	}
+
+	// ---------------------------------------------------------------- object
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof CompactNode)) {
+			return false;
+		}
+		final CompactNode that = (CompactNode) o;
+		return index == that.index && document == that.document;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(document) + index;
+	}
+
+	@Override
+	public String toString() {
+		final String nodeName = getNodeName();
+		return nodeName != null ? '<' + nodeName + '>' : getNodeType().toString();
+	}
+}
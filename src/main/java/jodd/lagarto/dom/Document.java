@@ -24,8 +24,12 @@
 
 package jodd.lagarto.dom;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Document node is always a root node.
@@ -36,6 +40,33 @@ public class Document extends Node {
 	protected long elapsedTime;
 	protected final LagartoDomBuilderConfig config;
 	protected List<String> errors;
+	/**
+	 * Index of element ids, {@code null} until built. Duplicated
+	 * ids are mapped to {@code null}. Entries may be stale or point
+	 * to the detached trees, so they are verified on lookup.
+	 */
+	protected Map<String, Element> ids;
+	/**
+	 * Elements by name and by class, in document order. Built on
+	 * the first query and dropped on any tree or class modification.
+	 */
+	protected Map<String, List<Element>> elementsByName;
+	protected Map<String, List<Element>> elementsByClass;
+	/**
+	 * Token that stamps nodes numbered in the document order,
+	 * {@code null} after the tree is modified.
+	 */
+	protected Object ordinalsToken;
+	protected int ordinalsCount;
+	/**
+	 * Cache of attribute names, shared by all elements of the document.
+	 */
+	final Attributes.Names attributeNames = new Attributes.Names();
+	/**
+	 * Written once the document is frozen, so the frozen state
+	 * is visible to every thread that reads it.
+	 */
+	private volatile boolean frozenDocument;
 
 	public Document() {
 		this(new LagartoDomBuilderConfig());
@@ -54,6 +85,9 @@ public class Document extends Node {
 	public Document clone() {
 		final Document document = cloneTo(new Document(config));
 		document.elapsedTime = this.elapsedTime;
+		for (int i = 0, childCount = document.getChildNodesCount(); i < childCount; i++) {
+			document.changeOwnerDocument(document.childNodes.get(i), document);
+		}
 		return document;
 	}
 
@@ -102,6 +136,287 @@ public class Document extends Node {
 	public void setAttribute(final String name, final String value) {
 	}
 
+	// ---------------------------------------------------------------- ids
+
+	/**
+	 * Returns the first element with given id or {@code null} if there is
+	 * no such element in the document. Ids are indexed: the index is
+	 * created while the document is parsed or on the first call,
+	 * and kept current as the tree is modified.
+	 */
+	public Element getElementById(final String id) {
+		initIds();
+
+		final Element element = ids.get(id);
+		if (element == null) {
+			if (ids.containsKey(id)) {
+				return findElementById(this, id);
+			}
+			return null;
+		}
+		if (isIndexed(element, id)) {
+			return element;
+		}
+		ids.remove(id);
+		return null;
+	}
+
+	/**
+	 * Returns {@code true} if more than one element may have the given id.
+	 */
+	boolean isIdDuplicated(final String id) {
+		initIds();
+		return ids.containsKey(id) && ids.get(id) == null;
+	}
+
+	/**
+	 * Builds the id index if it does not exist.
+	 */
+	protected void initIds() {
+		if (ids == null) {
+			ids = new HashMap<>();
+			indexIds(this);
+		}
+	}
+
+	/**
+	 * Adds ids of the given node and all its descendants to the index.
+	 */
+	void indexIds(final Node node) {
+		if (frozen) {
+			return;
+		}
+		final ArrayDeque<Node> nodes = new ArrayDeque<>();
+		nodes.push(node);
+
+		while (!nodes.isEmpty()) {
+			final Node child = nodes.pop();
+			if (child.getNodeType() == NodeType.ELEMENT) {
+				final String id = child.getAttribute("id");
+				if (id != null) {
+					indexId((Element) child, id);
+				}
+			}
+			pushChildren(nodes, child);
+		}
+	}
+
+	/**
+	 * Adds element id to the index.
+	 */
+	void indexId(final Element element, final String id) {
+		if (frozen) {
+			return;
+		}
+		final Element indexed = ids.get(id);
+		if (indexed == null) {
+			if (!ids.containsKey(id)) {
+				ids.put(id, element);
+			}
+			return;
+		}
+		if (indexed == element) {
+			return;
+		}
+		ids.put(id, isIndexed(indexed, id) ? null : element);
+	}
+
+	private boolean isIndexed(final Element element, final String id) {
+		return id.equals(element.getAttribute("id")) && element.attachedDocument() == this;
+	}
+
+	private static Element findElementById(final Node node, final String id) {
+		final ArrayDeque<Node> nodes = new ArrayDeque<>();
+		pushChildren(nodes, node);
+
+		while (!nodes.isEmpty()) {
+			final Node child = nodes.pop();
+			if (child.getNodeType() == NodeType.ELEMENT && id.equals(child.getAttribute("id"))) {
+				return (Element) child;
+			}
+			pushChildren(nodes, child);
+		}
+		return null;
+	}
+
+	// ---------------------------------------------------------------- names and classes
+
+	/**
+	 * Returns all elements with given name in document order.
+	 * Elements are indexed on the first call; the index is
+	 * rebuilt after the tree is modified.
+	 */
+	public List<Element> getElementsByTagName(final String name) {
+		initElementIndexes();
+		return elementsOf(elementsByName, name);
+	}
+
+	/**
+	 * Returns all elements with given class in document order.
+	 * @see #getElementsByTagName(String)
+	 */
+	public List<Element> getElementsByClassName(final String className) {
+		initElementIndexes();
+		return elementsOf(elementsByClass, className);
+	}
+
+	/**
+	 * Builds name and class indexes if they do not exist.
+	 */
+	protected void initElementIndexes() {
+		if (elementsByName == null) {
+			elementsByName = new HashMap<>();
+			elementsByClass = new HashMap<>();
+			indexElements(this);
+		}
+	}
+
+	/**
+	 * Drops name and class indexes.
+	 */
+	void invalidateElementIndexes() {
+		if (frozen) {
+			return;
+		}
+		elementsByName = null;
+		elementsByClass = null;
+	}
+
+	/**
+	 * Indexes all descendants in document order. Tree is walked
+	 * without recursion, as documents may be very deep.
+	 */
+	private void indexElements(final Node node) {
+		final ArrayDeque<Node> nodes = new ArrayDeque<>();
+		pushChildren(nodes, node);
+
+		while (!nodes.isEmpty()) {
+			final Node child = nodes.pop();
+			if (child.getNodeType() == NodeType.ELEMENT) {
+				final Element element = (Element) child;
+				addElement(elementsByName, element.getNodeName(), element);
+
+				final String classNames = element.getAttribute("class");
+				if (classNames != null) {
+					indexClasses(element, classNames);
+				}
+			}
+			pushChildren(nodes, child);
+		}
+	}
+
+	private static void pushChildren(final ArrayDeque<Node> nodes, final Node node) {
+		for (int i = node.getChildNodesCount() - 1; i >= 0; i--) {
+			nodes.push(node.childNodes.get(i));
+		}
+	}
+
+	/**
+	 * Adds element to the index of each class. Class names are
+	 * separated the same way as in the {@code ~=} selector.
+	 */
+	private void indexClasses(final Element element, final String classNames) {
+		final int length = classNames.length();
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			final boolean separator = i == length || classNames.charAt(i) == ' ' || classNames.charAt(i) == '\t';
+			if (!separator) {
+				if (start == -1) {
+					start = i;
+				}
+				continue;
+			}
+			if (start != -1) {
+				final List<Element> elements = addElement(elementsByClass, classNames.substring(start, i), element);
+				if (elements.size() > 1 && elements.get(elements.size() - 2) == element) {
+					// class repeated in the same attribute
+					elements.remove(elements.size() - 1);
+				}
+				start = -1;
+			}
+		}
+	}
+
+	private static List<Element> addElement(final Map<String, List<Element>> index, final String key, final Element element) {
+		final List<Element> elements = index.computeIfAbsent(key, k -> new ArrayList<>());
+		elements.add(element);
+		return elements;
+	}
+
+	private static List<Element> elementsOf(final Map<String, List<Element>> index, final String key) {
+		final List<Element> elements = index.get(key);
+		if (elements == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(elements);
+	}
+
+	// ---------------------------------------------------------------- document order
+
+	/**
+	 * Returns the token of current node ordinals.
+	 * @see Node#initOrdinals()
+	 */
+	Object ordinalsToken() {
+		if (ordinalsToken == null) {
+			ordinalsToken = new Object();
+			ordinalsCount = 0;
+		}
+		return ordinalsToken;
+	}
+
+	/**
+	 * Invalidates all node ordinals.
+	 */
+	void invalidateOrdinals() {
+		if (frozen) {
+			return;
+		}
+		ordinalsToken = null;
+	}
+
+	// ---------------------------------------------------------------- freeze
+
+	/**
+	 * Freezes the document, so it can be queried from many threads at once,
+	 * e.g. by {@link NodeSelector} or Jerry, without locks or cloning. All
+	 * lazily built indexes and cached values are computed upfront, and
+	 * every modification of a frozen node throws {@link LagartoDOMException}.
+	 * Clones of frozen nodes are not frozen. Any thread that sees the
+	 * document {@link #isFrozen() as frozen}, or gets it after this method
+	 * returns via any safe publication, sees the complete frozen state.
+	 */
+	public Document freeze() {
+		if (frozenDocument) {
+			return this;
+		}
+
+		// ids are indexed from scratch, so there are no stale entries to remove
+		ids = null;
+		initIds();
+		initElementIndexes();
+		initOrdinals();
+
+		final ArrayDeque<Node> nodes = new ArrayDeque<>();
+		nodes.push(this);
+		while (!nodes.isEmpty()) {
+			final Node node = nodes.pop();
+			node.freezeNode();
+			pushChildren(nodes, node);
+		}
+
+		frozenDocument = true;
+		return this;
+	}
+
+	/**
+	 * Returns {@code true} if document is {@link #freeze() frozen}.
+	 */
+	@Override
+	public boolean isFrozen() {
+		return frozenDocument;
+	}
+
 	// ---------------------------------------------------------------- getter
 
 	/**
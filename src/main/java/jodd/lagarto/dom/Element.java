@@ -43,10 +43,20 @@ public class Element extends Node {
 		this.rawTag = tag.isRawTag();
 
 		final int attrCount = tag.getAttributeCount();
+		if (attrCount == 0) {
+			return;
+		}
+
+		final boolean caseSensitive = ownerNode.config.parserConfig.isCaseSensitive();
+		final Attributes.Names attributeNames = ownerNode.attributeNames;
+		attributes = new Attributes(attrCount);
+
 		for (int i = 0; i < attrCount; i++) {
-			final String key = Util.toString(tag.getAttributeName(i));
+			final String rawName = attributeNames.rawName(tag.getAttributeName(i));
+			final String name = caseSensitive ? rawName : attributeNames.lowerCaseName(rawName);
 			final String value = Util.toString(tag.getAttributeValue(i));
-			setAttribute(key, value);
+
+			attributes.set(rawName, name, value);
 		}
 	}
 
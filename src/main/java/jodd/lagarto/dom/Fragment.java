@@ -0,0 +1,71 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+/**
+ * Parsed content that is inserted at many places in the DOM tree.
+ * Fragment nodes are never modified nor attached; instead, each
+ * {@link #cloneFor(Node)} returns their fresh copies. Copies share
+ * attribute storage with the fragment until modified. Copies are owned
+ * by the document of the target, while the fragment nodes keep their owner.
+ */
+public final class Fragment {
+
+	private final Node[] nodes;
+
+	/**
+	 * Creates fragment from the child nodes of parsed document.
+	 * Document should not be used afterwards.
+	 */
+	public Fragment(final Document document) {
+		this.nodes = document.getChildNodes();
+	}
+
+	/**
+	 * Returns the number of fragment nodes.
+	 */
+	public int getNodesCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns detached copies of fragment nodes, owned by the document
+	 * of given node. Copies are ready to be added to that document tree.
+	 */
+	public Node[] cloneFor(final Node node) {
+		final Document document = node.documentOfTree();
+
+		final Node[] clones = new Node[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			final Node clone = nodes[i].clone();
+			if (document != null && clone.ownerDocument != document) {
+				clone.changeOwnerDocument(clone, document);
+			}
+			clones[i] = clone;
+		}
+		return clones;
+	}
+}
@@ -214,26 +214,26 @@ public class HtmlFosterRules {
 	 */
 	protected void fixElements() {
 		for (final Element fosterElement : fosterElements) {
-			// find parent table
+			// each element is moved before the next one looks up its table,
+			// as moves of the previous elements change the tree
 			final Element lastTable = findLastTable(fosterElement);
-			final Node fosterElementParent = fosterElement.getParentNode();
-
-			// filter our foster element
-			final Node[] fosterChilds = fosterElement.getChildNodes();
-			for (final Node fosterChild : fosterChilds) {
-				if (fosterChild.getNodeType() == Node.NodeType.ELEMENT) {
-					if (isOneOfTableElements((Element) fosterChild)) {
-						// move all child table elements outside
-						// the foster element
-						fosterChild.detachFromParent();
-						fosterElementParent.insertBefore(fosterChild, fosterElement);
+
+			Node.batch(nodeEditor -> {
+				// filter our foster element
+				final Node[] fosterChilds = fosterElement.getChildNodes();
+				for (final Node fosterChild : fosterChilds) {
+					if (fosterChild.getNodeType() == Node.NodeType.ELEMENT) {
+						if (isOneOfTableElements((Element) fosterChild)) {
+							// move all child table elements outside
+							// the foster element
+							nodeEditor.insertBefore(fosterChild, fosterElement);
+						}
 					}
 				}
-			}
 
-			// finally, move foster element above the table
-			fosterElement.detachFromParent();
-			lastTable.getParentNode().insertBefore(fosterElement, lastTable);
+				// finally, move foster element above the table
+				nodeEditor.insertBefore(fosterElement, lastTable);
+			});
 		}
 	}
 
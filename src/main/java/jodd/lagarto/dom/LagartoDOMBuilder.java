@@ -171,7 +171,7 @@ public class LagartoDOMBuilder implements DOMBuilder {
 	 */
 	protected Document parseWithLagarto(final LagartoParser lagartoParser) {
 		final LagartoDOMBuilderTagVisitor domBuilderTagVisitor =
-				new LagartoDOMBuilderTagVisitor(this);
+				new LagartoDOMBuilderTagVisitor(this, lagartoParser);
 
 		lagartoParser.parse(domBuilderTagVisitor);
 
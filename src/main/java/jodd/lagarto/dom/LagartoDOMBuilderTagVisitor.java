@@ -25,6 +25,7 @@
 package jodd.lagarto.dom;
 
 import jodd.lagarto.Doctype;
+import jodd.lagarto.LagartoParser;
 import jodd.lagarto.Tag;
 import jodd.lagarto.TagType;
 import jodd.lagarto.TagVisitor;
@@ -33,6 +34,9 @@ import jodd.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Lagarto tag visitor that builds a DOM tree.
  * It (still) does not build the tree <i>fully</i> by the HTML specs,
@@ -52,6 +56,7 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 
 	protected Document rootNode;
 	protected Node parentNode;
+	protected Map<String, Element> ids;
 
 	/**
 	 * While enabled, nodes will be added to the DOM tree.
@@ -59,8 +64,24 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 	 */
 	protected boolean enabled;
 
+	/**
+	 * Parser that feeds this visitor, used for source-backed values.
+	 * When {@code null}, all values are stored as strings.
+	 */
+	protected final LagartoParser parser;
+	protected CharSequence source;
+
 	public LagartoDOMBuilderTagVisitor(final LagartoDOMBuilder domBuilder) {
+		this(domBuilder, null);
+	}
+
+	/**
+	 * Creates visitor for the given parser. If enabled in the configuration,
+	 * text and attribute values are going to be backed by the parser input.
+	 */
+	public LagartoDOMBuilderTagVisitor(final LagartoDOMBuilder domBuilder, final LagartoParser parser) {
 		this.domBuilder = domBuilder;
+		this.parser = parser;
 	}
 
 	/**
@@ -83,10 +104,15 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 		}
 		parentNode = rootNode;
 		enabled = true;
+		ids = new HashMap<>();
 
 		if (domBuilder.config.isEnabledVoidTags()) {
 			htmlVoidRules = new HtmlVoidRules();
 		}
+
+		if (parser != null && domBuilder.config.isSourceBackedValues()) {
+			source = parser.getInput();
+		}
 	}
 
 	/**
@@ -125,6 +151,13 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 			fosterRules.fixFosterElements(rootNode);
 		}
 
+		// ids
+		if (rootNode.ids == null) {
+			rootNode.ids = ids;
+		} else {
+			rootNode.indexIds(rootNode);
+		}
+
 		// elapsed
 		rootNode.end();
 
@@ -157,7 +190,92 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 			selfClosed = domBuilder.config.isSelfCloseVoidTags();
 		}
 
-		return new Element(rootNode, tag, isVoid, selfClosed);
+		final Element element = new Element(rootNode, tag, isVoid, selfClosed);
+
+		final String id = element.getAttribute("id");
+		if (id != null) {
+			ids.put(id, ids.containsKey(id) ? null : element);
+		}
+
+		if (source != null && parser.getTokenValue() == tag) {
+			sourceBackAttributes(element, parser.getTokenStart(), parser.getTokenEnd());
+		}
+		return element;
+	}
+
+	// ---------------------------------------------------------------- source
+
+	/**
+	 * Replaces attribute values with the ranges of the tag markup.
+	 * Values that are not found in the markup, i.e. the ones changed
+	 * by entity decoding, remain as they are.
+	 */
+	protected void sourceBackAttributes(final Element element, final int tagStart, final int tagEnd) {
+		if (element.attributes == null) {
+			return;
+		}
+		int from = tagStart;
+
+		final Attributes attributes = element.attributes;
+
+		for (int i = 0; i < attributes.size; i++) {
+			final String value = attributes.values[i];
+
+			if (value == null || value.isEmpty()) {
+				continue;
+			}
+
+			int ndx = indexOfSource(value, from, tagEnd);
+			if (ndx == -1 && from != tagStart) {
+				ndx = indexOfSource(value, tagStart, from);
+			}
+			if (ndx == -1) {
+				continue;
+			}
+			from = ndx + value.length();
+			attributes.setSourceValue(i, source, ndx, from);
+		}
+	}
+
+	/**
+	 * Returns the start of the source range that is equal to the given text
+	 * emitted by the parser, or {@code -1} if text differs from the source.
+	 */
+	protected int sourceStartOf(final CharSequence text) {
+		if (source == null || parser.getTokenValue() != text) {
+			return -1;
+		}
+		final int end = parser.getTokenEnd();
+		final int start = end - text.length();
+
+		if (start < parser.getTokenStart() || !matchesSource(text, start)) {
+			return -1;
+		}
+		return start;
+	}
+
+	/**
+	 * Finds the value in the given source range.
+	 */
+	protected int indexOfSource(final CharSequence value, final int from, final int to) {
+		final int last = to - value.length();
+		final char first = value.charAt(0);
+
+		for (int i = from; i <= last; i++) {
+			if (source.charAt(i) == first && matchesSource(value, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean matchesSource(final CharSequence value, final int offset) {
+		for (int i = 0, len = value.length(); i < len; i++) {
+			if (source.charAt(offset + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -434,9 +552,14 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 			return;
 		}
 
-		final String textValue = text.toString();
+		final Node node;
+		final int sourceStart = sourceStartOf(text);
 
-		final Node node = new Text(rootNode, textValue);
+		if (sourceStart != -1) {
+			node = new Text(rootNode, source, sourceStart, parser.getTokenEnd());
+		} else {
+			node = new Text(rootNode, text.toString());
+		}
 
 		parentNode.addChild(node);
 	}
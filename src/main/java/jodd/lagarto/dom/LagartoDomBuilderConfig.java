@@ -46,6 +46,7 @@ public class LagartoDomBuilderConfig {
 
 	protected boolean useFosterRules;
 	protected boolean unclosedTagAsOrphanCheck;
+	protected boolean sourceBackedValues;
 
 	protected LagartoHtmlRenderer htmlRenderer = new LagartoHtmlRenderer();
 	protected LagartoParserConfig parserConfig = new LagartoParserConfig();
@@ -127,6 +128,25 @@ public class LagartoDomBuilderConfig {
 		return this;
 	}
 
+	public boolean isSourceBackedValues() {
+		return sourceBackedValues;
+	}
+
+	/**
+	 * Specifies if text and attribute values should be kept as offsets
+	 * into the parsed input instead of as separate strings. Strings are
+	 * created only when values are read; values changed by entity decoding
+	 * are still stored as strings. The input is retained as long as such
+	 * nodes are alive. Useful for read-mostly trees, as it significantly
+	 * reduces the heap retained by the DOM. It does not reduce allocation
+	 * while parsing: the parser still creates the value strings, and the
+	 * attribute ranges are found by scanning the tag markup afterwards.
+	 */
+	public LagartoDomBuilderConfig setSourceBackedValues(final boolean sourceBackedValues) {
+		this.sourceBackedValues = sourceBackedValues;
+		return this;
+	}
+
 	public boolean isCollectErrors() {
 		return collectErrors;
 	}
@@ -27,8 +27,10 @@ package jodd.lagarto.dom;
 import jodd.lagarto.dom.render.LagartoHtmlRenderer;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
@@ -54,7 +56,7 @@ public abstract class Node implements Cloneable {
 
 	// attributes
 
-	protected List<Attribute> attributes;
+	Attributes attributes;
 
 	// parent
 
@@ -66,12 +68,40 @@ public abstract class Node implements Cloneable {
 	protected int childElementNodesCount;
 	protected Element[] childElementNodes;
 
+	/**
+	 * Position of the first child which sibling indexes may be stale,
+	 * or {@link #INDEXES_VALID} when all children indexes are valid.
+	 */
+	protected int childIndexesDirtyFrom = INDEXES_VALID;
+	/**
+	 * Number of children added minus number of children removed
+	 * since indexes got stale. Used to locate a child from its stale index.
+	 */
+	protected int childIndexesShift;
+
+	protected static final int INDEXES_VALID = Integer.MAX_VALUE;
+
 	// siblings
 
 	protected int siblingIndex;
 	protected int siblingElementIndex = -1;
 	protected int siblingNameIndex = -1;
 
+	// document order
+
+	/**
+	 * Position of this node in the preorder walk of its tree and the
+	 * position of its last descendant. Valid only while the stamp is
+	 * the current ordinals token of the owner document.
+	 */
+	protected int ordinal;
+	protected int ordinalEnd;
+	protected Object ordinalsStamp;
+
+	// frozen
+
+	protected boolean frozen;
+
 	/**
 	 * Creates new node.
 	 */
@@ -90,18 +120,14 @@ public abstract class Node implements Cloneable {
 
 	/**
 	 * Copies all non-final values to the empty cloned object.
-	 * Cache-related values are not copied.
+	 * Cache-related values are not copied and the clone has no parent.
 	 */
 	protected <T extends Node> T cloneTo(final T dest) {
 //		dest.nodeValue = nodeValue;		// already  in clone implementations!
-		dest.parentNode = parentNode;
+		dest.parentNode = null;			// clone is detached, cloned children get their parent below
 
 		if (attributes != null) {
-			dest.attributes = new ArrayList<>(attributes.size());
-			for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
-				final Attribute attr = attributes.get(i);
-				dest.attributes.add(attr.clone());
-			}
+			dest.attributes = attributes.copy();
 		}
 
 		if (childNodes != null) {
@@ -113,11 +139,17 @@ public abstract class Node implements Cloneable {
 				childClone.parentNode = dest;    // fix parent!
 				dest.childNodes.add(childClone);
 			}
+			dest.childElementNodesCount = childElementNodesCount;
+			dest.childIndexesDirtyFrom = 0;
 		}
 
 		return dest;
 	}
 
+	/**
+	 * Returns the deep copy of this node. The copy is detached,
+	 * i.e. its parent is {@code null}, even when this node has a parent.
+	 */
 	@Override
 	public abstract Node clone();
 
@@ -155,6 +187,7 @@ public abstract class Node implements Cloneable {
 	 * Sets node value.
 	 */
 	public void setNodeValue(final String value) {
+		checkNotFrozen();
 		this.nodeValue = value;
 	}
 
@@ -174,23 +207,31 @@ public abstract class Node implements Cloneable {
 		if (parentNode == null) {
 			return;
 		}
+		checkNotFrozen();
 		if (parentNode.childNodes != null) {
-			parentNode.childNodes.remove(siblingIndex);
-			parentNode.reindexChildren();
+			final int index = parentNode.indexOfChild(this);
+			parentNode.childNodes.remove(index);
+			if (nodeType == NodeType.ELEMENT) {
+				parentNode.childElementNodesCount--;
+			}
+			parentNode.invalidateChildIndexes(index, -1);
+			parentNode.invalidateDocumentIndexes();
 		}
 		parentNode = null;
 	}
 
 	/**
-	 * Appends child node. Don't use this node in the loop,
-	 * since it might be slow due to {@link #reindexChildren()}.
+	 * Appends child node.
 	 */
 	public void addChild(final Node node) {
+		checkNotFrozen();
 		node.detachFromParent();
 		node.parentNode = this;
 		initChildNodes(node);
 		childNodes.add(node);
 		reindexChildrenOnAdd(1);
+		invalidateDocumentIndexes();
+		indexIds(node);
 	}
 
 	/**
@@ -201,6 +242,7 @@ public abstract class Node implements Cloneable {
 		if (nodes.length == 0) {
 			return;	// nothing to add
 		}
+		checkNotFrozen();
 		for (final Node node : nodes) {
 			node.detachFromParent();
 			node.parentNode = this;
@@ -208,12 +250,15 @@ public abstract class Node implements Cloneable {
 			childNodes.add(node);
 		}
 		reindexChildrenOnAdd(nodes.length);
+		invalidateDocumentIndexes();
+		indexIds(nodes);
 	}
 
 	/**
 	 * Inserts node at given index.
 	 */
 	public void insertChild(final Node node, final int index) {
+		checkNotFrozen();
 		node.detachFromParent();
 		node.parentNode = this;
 		try {
@@ -222,14 +267,17 @@ public abstract class Node implements Cloneable {
 		} catch (final IndexOutOfBoundsException ignore) {
 			throw new LagartoDOMException("Invalid node index: " + index);
 		}
-		reindexChildren();
+		reindexChildrenOnInsert(index, 1);
+		invalidateDocumentIndexes();
+		indexIds(node);
 	}
 
 	/**
-	 * Inserts several nodes at ones. Reindex is done onl once,
-	 * after all children are added.
+	 * Inserts several nodes at ones.
 	 */
 	public void insertChild(final Node[] nodes, int index) {
+		checkNotFrozen();
+		final int startIndex = index;
 		for (final Node node : nodes) {
 			node.detachFromParent();
 			node.parentNode = this;
@@ -241,14 +289,16 @@ public abstract class Node implements Cloneable {
 				throw new LagartoDOMException("Invalid node index: " + index);
 			}
 		}
-		reindexChildren();
+		reindexChildrenOnInsert(startIndex, nodes.length);
+		invalidateDocumentIndexes();
+		indexIds(nodes);
 	}
 
 	/**
 	 * Inserts node before provided node.
 	 */
 	public void insertBefore(final Node newChild, final Node refChild) {
-		final int siblingIndex = refChild.getSiblingIndex();
+		final int siblingIndex = refChild.parentNode.indexOfChild(refChild);
 		refChild.parentNode.insertChild(newChild, siblingIndex);
 	}
 
@@ -259,7 +309,7 @@ public abstract class Node implements Cloneable {
 		if (newChilds.length == 0) {
 			return;
 		}
-		final int siblingIndex = refChild.getSiblingIndex();
+		final int siblingIndex = refChild.parentNode.indexOfChild(refChild);
 		refChild.parentNode.insertChild(newChilds, siblingIndex);
 	}
 
@@ -267,7 +317,7 @@ public abstract class Node implements Cloneable {
 	 * Inserts node after provided node.
 	 */
 	public void insertAfter(final Node newChild, final Node refChild) {
-		final int siblingIndex = refChild.getSiblingIndex() + 1;
+		final int siblingIndex = refChild.parentNode.indexOfChild(refChild) + 1;
 		if (siblingIndex == refChild.parentNode.getChildNodesCount()) {
 			refChild.parentNode.addChild(newChild);
 		} else {
@@ -283,7 +333,7 @@ public abstract class Node implements Cloneable {
 			return;
 		}
 
-		final int siblingIndex = refChild.getSiblingIndex() + 1;
+		final int siblingIndex = refChild.parentNode.indexOfChild(refChild) + 1;
 		if (siblingIndex == refChild.parentNode.getChildNodesCount()) {
 			refChild.parentNode.addChild(newChilds);
 		} else {
@@ -320,16 +370,31 @@ public abstract class Node implements Cloneable {
 		childNode.detachFromParent();
 	}
 
+	/**
+	 * Modifies the DOM tree in a batch. Insertions, removals and moves
+	 * recorded by the {@link NodeEditor} are applied when the consumer
+	 * returns, so every modified parent is reindexed only once.
+	 */
+	public static void batch(final Consumer<NodeEditor> nodeEditorConsumer) {
+		final NodeEditor nodeEditor = new NodeEditor();
+		nodeEditorConsumer.accept(nodeEditor);
+		nodeEditor.apply();
+	}
+
 	/**
 	 * Removes all child nodes. Each child node will be detached from this parent.
 	 */
 	public void removeAllChilds() {
+		checkNotFrozen();
 		final List<Node> removedNodes = childNodes;
 		childNodes = null;
 		childElementNodes = null;
 		childElementNodesCount = 0;
+		childIndexesDirtyFrom = INDEXES_VALID;
+		childIndexesShift = 0;
 
 		if (removedNodes != null) {
+			invalidateDocumentIndexes();
 			for (int i = 0, removedNodesSize = removedNodes.size(); i < removedNodesSize; i++) {
 				final Node removedNode = removedNodes.get(i);
 				removedNode.detachFromParent();
@@ -353,7 +418,7 @@ public abstract class Node implements Cloneable {
 		if (attributes == null) {
 			return false;
 		}
-		return !attributes.isEmpty();
+		return attributes.size != 0;
 	}
 
 	/**
@@ -363,39 +428,28 @@ public abstract class Node implements Cloneable {
 		if (attributes == null) {
 			return 0;
 		}
-		return attributes.size();
+		return attributes.size;
 	}
 
 	/**
 	 * Returns attribute at given index or {@code null} if index not found.
+	 * Returned attribute is a view; it is valid until attributes are removed.
 	 */
 	public Attribute getAttribute(final int index) {
 		if (attributes == null) {
 			return null;
 		}
-		if ((index < 0) || (index >= attributes.size())) {
+		if ((index < 0) || (index >= attributes.size)) {
 			return null;
 		}
-		return attributes.get(index);
+		return new Attribute(this, index);
 	}
 
 	/**
 	 * Returns {@code true} if node contains an attribute.
 	 */
-	public boolean hasAttribute(String name) {
-		if (attributes == null) {
-			return false;
-		}
-		if (!ownerDocument.config.parserConfig.isCaseSensitive()) {
-			name = name.toLowerCase();
-		}
-		for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
-			final Attribute attr = attributes.get(i);
-			if (attr.getName().equals(name)) {
-				return true;
-			}
-		}
-		return false;
+	public boolean hasAttribute(final String name) {
+		return indexOfAttributeInstance(name) != -1;
 	}
 
 	/**
@@ -404,29 +458,19 @@ public abstract class Node implements Cloneable {
 	 * specify a value.
 	 */
 	public String getAttribute(final String name) {
-		final Attribute attribute = getAttributeInstance(name);
-		if (attribute == null) {
+		final int index = indexOfAttributeInstance(name);
+		if (index == -1) {
 			return null;
 		}
-		return attribute.getValue();
+		return attributes.value(index);
 	}
 
-	protected Attribute getAttributeInstance(String name) {
-		if (attributes == null) {
+	protected Attribute getAttributeInstance(final String name) {
+		final int index = indexOfAttributeInstance(name);
+		if (index == -1) {
 			return null;
 		}
-
-		if (!ownerDocument.config.parserConfig.isCaseSensitive()) {
-			name = name.toLowerCase();
-		}
-
-		for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
-			final Attribute attr = attributes.get(i);
-			if (attr.getName().equals(name)) {
-				return attr;
-			}
-		}
-		return null;
+		return new Attribute(this, index);
 	}
 
 	protected int indexOfAttributeInstance(String name) {
@@ -438,13 +482,7 @@ public abstract class Node implements Cloneable {
 			name = name.toLowerCase();
 		}
 
-		for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
-			final Attribute attr = attributes.get(i);
-			if (attr.getName().equals(name)) {
-				return i;
-			}
-		}
-		return -1;
+		return attributes.indexOf(name);
 	}
 
 	public boolean removeAttribute(final String name) {
@@ -452,6 +490,8 @@ public abstract class Node implements Cloneable {
 		if (index == -1) {
 			return false;
 		}
+		checkNotFrozen();
+		invalidateClassIndex(attributes.names[index]);
 		attributes.remove(index);
 		return true;
 	}
@@ -459,23 +499,31 @@ public abstract class Node implements Cloneable {
 	/**
 	 * Sets attribute value. Value may be {@code null}.
 	 */
-	public void setAttribute(String name, final String value) {
+	public void setAttribute(final String name, final String value) {
+		checkNotFrozen();
 		initAttributes();
 
-		final String rawAttributeName = name;
+		final Attributes.Names attributeNames = ownerDocument.attributeNames;
+		final String rawAttributeName = attributeNames.rawName(name);
+		String attributeName = rawAttributeName;
+
 		if (!ownerDocument.config.parserConfig.isCaseSensitive()) {
-			name = name.toLowerCase();
+			attributeName = attributeNames.lowerCaseName(rawAttributeName);
 		}
 
-		// search if attribute with the same name exist
-		for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
-			final Attribute attr = attributes.get(i);
-			if (attr.getName().equals(name)) {
-				attr.setValue(value);
-				return;
-			}
-		}
-		attributes.add(new Attribute(rawAttributeName, name, value));
+		attributes.set(rawAttributeName, attributeName, value);
+		indexIdAttribute(attributeName, value);
+		invalidateClassIndex(attributeName);
+	}
+
+	/**
+	 * Sets value of the attribute at given index.
+	 */
+	void setAttributeValue(final int index, final String value) {
+		checkNotFrozen();
+		attributes.setValue(index, value);
+		indexIdAttribute(attributes.names[index], value);
+		invalidateClassIndex(attributes.names[index]);
 	}
 
 	/**
@@ -489,11 +537,15 @@ public abstract class Node implements Cloneable {
 	 * Returns {@code true} if attribute containing some word.
 	 */
 	public boolean isAttributeContaining(final String name, final String word) {
-		final Attribute attr = getAttributeInstance(name);
-		if (attr == null) {
+		final int index = indexOfAttributeInstance(name);
+		if (index == -1) {
 			return false;
 		}
-		return attr.isContaining(word);
+		final String value = attributes.value(index);
+		if (value == null) {
+			return false;
+		}
+		return Attributes.containsWord(value, word);
 	}
 
 	// ---------------------------------------------------------------- children count
@@ -723,6 +775,8 @@ public abstract class Node implements Cloneable {
 			return true;
 		}
 
+		validateChildIndexes();
+
 		// children
 		int siblingElementIndex = 0;
 		for (int i = 0, childNodesSize = childNodes.size(); i < childNodesSize; i++) {
@@ -787,8 +841,7 @@ public abstract class Node implements Cloneable {
 	}
 
 	/**
-	 * Reindex children nodes. Must be called on every children addition/removal.
-	 * Iterates {@link #childNodes} list and:
+	 * Reindex children nodes. Iterates {@link #childNodes} list and:
 	 * <ul>
 	 * <li>calculates three different sibling indexes,</li>
 	 * <li>calculates total child element node count,</li>
@@ -810,21 +863,25 @@ public abstract class Node implements Cloneable {
 
 		childElementNodesCount = siblingElementIndex;
 		childElementNodes = null;	// reset child element nodes
+		childIndexesDirtyFrom = INDEXES_VALID;
+		childIndexesShift = 0;
 	}
 
 	/**
 	 * Optimized variant of {@link #reindexChildren()} for addition.
-	 * Only added children are optimized.
+	 * Only added children are indexed. When indexes are already
+	 * stale, added children just get the index that locates them.
 	 */
 	protected void reindexChildrenOnAdd(final int addedCount) {
 		final int childNodesSize = childNodes.size();
 		final int previousSize = childNodes.size() - addedCount;
+		final boolean valid = childIndexesDirtyFrom == INDEXES_VALID;
 
 		int siblingElementIndex = childElementNodesCount;
 		for (int i = previousSize; i < childNodesSize; i++) {
 			final Node childNode = childNodes.get(i);
 
-			childNode.siblingIndex = i;
+			childNode.siblingIndex = valid ? i : i - childIndexesShift;
 			childNode.siblingNameIndex = -1;	// reset sibling name info
 			if (childNode.getNodeType() == NodeType.ELEMENT) {
 				childNode.siblingElementIndex = siblingElementIndex;
@@ -836,11 +893,97 @@ public abstract class Node implements Cloneable {
 		childElementNodes = null;	// reset child element nodes
 	}
 
+	/**
+	 * Marks indexes of children after inserted ones as stale.
+	 */
+	protected void reindexChildrenOnInsert(final int index, final int insertedCount) {
+		invalidateChildIndexes(index, insertedCount);
+
+		for (int i = index, end = index + insertedCount; i < end; i++) {
+			final Node childNode = childNodes.get(i);
+
+			childNode.siblingIndex = i - childIndexesShift;
+			childNode.siblingNameIndex = -1;
+			if (childNode.getNodeType() == NodeType.ELEMENT) {
+				childElementNodesCount++;
+			}
+		}
+	}
+
+	/**
+	 * Marks indexes of children starting from given position as stale.
+	 * They are going to be recomputed by {@link #validateChildIndexes()}
+	 * only when needed, so bulk modifications don't reindex children
+	 * on every change.
+	 */
+	protected void invalidateChildIndexes(final int from, final int shift) {
+		if (from < childIndexesDirtyFrom) {
+			childIndexesDirtyFrom = from;
+		}
+		childIndexesShift += shift;
+		childElementNodes = null;	// reset child element nodes
+	}
+
+	/**
+	 * Recomputes stale indexes of the children.
+	 */
+	protected void validateChildIndexes() {
+		if (childIndexesDirtyFrom == INDEXES_VALID) {
+			return;
+		}
+		final int from = childIndexesDirtyFrom;
+
+		childIndexesDirtyFrom = INDEXES_VALID;
+		childIndexesShift = 0;
+
+		if (childNodes == null) {
+			return;
+		}
+		final int childNodesSize = childNodes.size();
+
+		int siblingElementIndex = 0;
+		for (int i = Math.min(from, childNodesSize) - 1; i >= 0; i--) {
+			final Node childNode = childNodes.get(i);
+			if (childNode.getNodeType() == NodeType.ELEMENT) {
+				siblingElementIndex = childNode.siblingElementIndex + 1;
+				break;
+			}
+		}
+
+		for (int i = from; i < childNodesSize; i++) {
+			final Node childNode = childNodes.get(i);
+
+			childNode.siblingIndex = i;
+			childNode.siblingNameIndex = -1;	// reset sibling name info
+			if (childNode.getNodeType() == NodeType.ELEMENT) {
+				childNode.siblingElementIndex = siblingElementIndex;
+				siblingElementIndex++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of the given child. Stale index of the child
+	 * is used to locate it; when that fails, indexes are recomputed.
+	 */
+	protected int indexOfChild(final Node child) {
+		int index = child.siblingIndex;
+		if (index >= childIndexesDirtyFrom) {
+			index += childIndexesShift;
+		}
+		if (index >= 0 && index < childNodes.size() && childNodes.get(index) == child) {
+			return index;
+		}
+		validateChildIndexes();
+		return child.siblingIndex;
+	}
+
 	/**
 	 * Initializes list of child elements.
 	 */
 	protected void initChildElementNodes() {
 		if (childElementNodes == null) {
+			validateChildIndexes();
 			childElementNodes = new Element[childElementNodesCount];
 
 			final int childCount = getChildNodesCount();
@@ -857,13 +1000,13 @@ public abstract class Node implements Cloneable {
 	 * Initializes siblings elements of the same name.
 	 */
 	protected void initSiblingNames() {
+		parentNode.validateChildIndexes();
 		if (siblingNameIndex == -1) {
 			final List<Node> siblings = parentNode.childNodes;
 			int index = 0;
 			for (int i = 0, siblingsSize = siblings.size(); i < siblingsSize; i++) {
 				final Node sibling = siblings.get(i);
-				if (sibling.siblingNameIndex == -1
-						&& nodeType == NodeType.ELEMENT
+				if (nodeType == NodeType.ELEMENT
 						&& nodeName.equals(sibling.getNodeName())) {
 					sibling.siblingNameIndex = index++;
 				}
@@ -876,7 +1019,7 @@ public abstract class Node implements Cloneable {
 	 */
 	protected void initAttributes() {
 		if (attributes == null) {
-			attributes = new ArrayList<>(5);
+			attributes = new Attributes();
 		}
 	}
 
@@ -888,9 +1031,10 @@ public abstract class Node implements Cloneable {
 		if (childNodes == null) {
 			childNodes = new ArrayList<>();
 		}
-		if (ownerDocument != null) {
-			if (newNode.ownerDocument != ownerDocument) {
-				changeOwnerDocument(newNode, ownerDocument);
+		final Document document = documentOfTree();
+		if (document != null) {
+			if (newNode.ownerDocument != document) {
+				changeOwnerDocument(newNode, document);
 			}
 		}
 	}
@@ -908,6 +1052,230 @@ public abstract class Node implements Cloneable {
 		}
 	}
 
+	// ---------------------------------------------------------------- ids
+
+	/**
+	 * Returns the document this node is attached to, or {@code null}
+	 * if the node is not part of a document tree.
+	 */
+	Document attachedDocument() {
+		Node node = this;
+		while (node.parentNode != null) {
+			node = node.parentNode;
+		}
+		return node.nodeType == NodeType.DOCUMENT ? (Document) node : null;
+	}
+
+	/**
+	 * Returns the document which id index is affected by the change of this node
+	 * or {@code null} if there is nothing to index. Trees that are not attached
+	 * to the document are indexed as well, since index entries are verified
+	 * on lookup; so there is no walk to the root on each change.
+	 */
+	Document idIndexingDocument() {
+		final Document document = documentOfTree();
+		if (document == null || document.ids == null) {
+			return null;
+		}
+		return document;
+	}
+
+	private void indexIds(final Node node) {
+		final Document document = idIndexingDocument();
+		if (document != null) {
+			document.indexIds(node);
+		}
+	}
+
+	private void indexIds(final Node[] nodes) {
+		final Document document = idIndexingDocument();
+		if (document != null) {
+			for (final Node node : nodes) {
+				document.indexIds(node);
+			}
+		}
+	}
+
+	private void indexIdAttribute(final String name, final String value) {
+		if (value == null || nodeType != NodeType.ELEMENT || !name.equals("id")) {
+			return;
+		}
+		final Document document = idIndexingDocument();
+		if (document != null) {
+			document.indexId((Element) this, value);
+		}
+	}
+
+	// ---------------------------------------------------------------- names and classes
+
+	/**
+	 * Drops name and class indexes and node ordinals of the owner document
+	 * after the tree has been modified. A tree that is not part of its frozen
+	 * owner document drops only its own ordinals.
+	 */
+	void invalidateDocumentIndexes() {
+		final Document document = documentOfTree();
+		if (document != null) {
+			document.invalidateElementIndexes();
+			document.invalidateOrdinals();
+			if (document.frozen) {
+				treeRoot().ordinalsStamp = null;
+			}
+		}
+	}
+
+	private void invalidateClassIndex(final String name) {
+		if (nodeType == NodeType.ELEMENT && name.equals("class") && ownerDocument != null) {
+			ownerDocument.invalidateElementIndexes();
+		}
+	}
+
+	/**
+	 * Returns the document that owns this node, or the node itself
+	 * if it is a document.
+	 */
+	Document documentOfTree() {
+		return nodeType == NodeType.DOCUMENT ? (Document) this : ownerDocument;
+	}
+
+	// ---------------------------------------------------------------- document order
+
+	/**
+	 * Returns {@code true} if given node is this node or one of its descendants.
+	 */
+	public boolean contains(final Node node) {
+		if (node == this) {
+			return true;
+		}
+		initOrdinals();
+		node.initOrdinals();
+		return ordinalsStamp == node.ordinalsStamp
+			&& ordinal < node.ordinal && node.ordinal <= ordinalEnd;
+	}
+
+	/**
+	 * Compares document position of this and given node. Returns negative
+	 * number if this node comes first in the document order, positive
+	 * if it comes after and {@code 0} if nodes are the same. Nodes
+	 * from different trees are ordered in arbitrary, but consistent way.
+	 */
+	public int compareDocumentPosition(final Node node) {
+		if (node == this) {
+			return 0;
+		}
+		initOrdinals();
+		node.initOrdinals();
+		if (ordinalsStamp != node.ordinalsStamp) {
+			return Integer.compare(System.identityHashCode(ordinalsStamp), System.identityHashCode(node.ordinalsStamp));
+		}
+		return Integer.compare(ordinal, node.ordinal);
+	}
+
+	/**
+	 * Numbers nodes of this node tree in the document order, if ordinals
+	 * are not valid anymore. Ordinals become invalid on any tree modification
+	 * within the owner document. All trees of the same document are numbered
+	 * with a distinct range of ordinals, so ordinals are comparable.
+	 */
+	protected void initOrdinals() {
+		final Document document = documentOfTree();
+		if (document.frozen && !frozen) {
+			// node is not part of the frozen tree, its tree is numbered apart
+			// and the token is kept by the tree root until the tree is modified
+			final Node root = treeRoot();
+			if (!(root.ordinalsStamp instanceof TreeOrdinalsToken) || ordinalsStamp != root.ordinalsStamp) {
+				numberTree(root, new TreeOrdinalsToken(), 0);
+			}
+			return;
+		}
+
+		final Object token = document.ordinalsToken();
+		if (ordinalsStamp == token) {
+			return;
+		}
+		document.ordinalsCount = numberTree(treeRoot(), token, document.ordinalsCount);
+	}
+
+	/**
+	 * Token of the ordinals of a tree that is not part of its frozen owner document.
+	 */
+	private static final class TreeOrdinalsToken {
+	}
+
+	private Node treeRoot() {
+		Node root = this;
+		while (root.parentNode != null) {
+			root = root.parentNode;
+		}
+		return root;
+	}
+
+	/**
+	 * Assigns ordinals to all nodes of the tree, starting from given ordinal.
+	 * Returns the next free ordinal.
+	 */
+	private static int numberTree(final Node root, final Object token, int next) {
+		final ArrayDeque<Node> nodes = new ArrayDeque<>();
+		nodes.push(root);
+		while (!nodes.isEmpty()) {
+			final Node node = nodes.pop();
+			node.ordinal = next++;
+			node.ordinalsStamp = token;
+			for (int i = node.getChildNodesCount() - 1; i >= 0; i--) {
+				nodes.push(node.childNodes.get(i));
+			}
+		}
+
+		// last descendant comes just before the next sibling
+		root.ordinalEnd = next - 1;
+		nodes.push(root);
+		while (!nodes.isEmpty()) {
+			final Node node = nodes.pop();
+			final int childCount = node.getChildNodesCount();
+			for (int i = 0; i < childCount; i++) {
+				final Node child = node.childNodes.get(i);
+				child.ordinalEnd = i + 1 < childCount ? node.childNodes.get(i + 1).ordinal - 1 : node.ordinalEnd;
+				nodes.push(child);
+			}
+		}
+		return next;
+	}
+
+	// ---------------------------------------------------------------- frozen
+
+	/**
+	 * Returns {@code true} if this node is part of a {@link Document#freeze() frozen}
+	 * document and can not be modified.
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Throws an exception if this node is frozen.
+	 */
+	protected void checkNotFrozen() {
+		if (frozen) {
+			throw new LagartoDOMException("Frozen document can not be modified");
+		}
+	}
+
+	/**
+	 * Initializes all lazily computed state of this node, so it is
+	 * never written again when read, and marks it as frozen.
+	 */
+	protected void freezeNode() {
+		validateChildIndexes();
+		initChildElementNodes();
+		if (parentNode != null && nodeType == NodeType.ELEMENT) {
+			initSiblingNames();
+		}
+		if (attributes != null) {
+			attributes.freeze();
+		}
+		frozen = true;
+	}
+
 	// ---------------------------------------------------------------- siblings index
 
 	/**
@@ -916,10 +1284,16 @@ public abstract class Node implements Cloneable {
 	 * Index address all nodes, i.e. of all node types.
 	 */
 	public int getSiblingIndex() {
+		if (parentNode != null) {
+			parentNode.validateChildIndexes();
+		}
 		return siblingIndex;
 	}
 
 	public int getSiblingElementIndex() {
+		if (parentNode != null) {
+			parentNode.validateChildIndexes();
+		}
 		return siblingElementIndex;
 	}
 
@@ -936,7 +1310,7 @@ public abstract class Node implements Cloneable {
 	 */
 	public Node getNextSibling() {
 		final List<Node> siblings = parentNode.childNodes;
-		final int index = siblingIndex + 1;
+		final int index = parentNode.indexOfChild(this) + 1;
 		if (index >= siblings.size()) {
 			return null;
 		}
@@ -972,12 +1346,10 @@ public abstract class Node implements Cloneable {
 		if (nodeName == null) {
 			return null;
 		}
-		initSiblingNames();
-		final int index = siblingNameIndex + 1;
 		final int max = parentNode.getChildNodesCount();
-		for (int i = siblingIndex + 1; i < max; i++) {
+		for (int i = parentNode.indexOfChild(this) + 1; i < max; i++) {
 			final Node sibling = parentNode.childNodes.get(i);
-			if ((index == sibling.siblingNameIndex) && nodeName.equals(sibling.getNodeName())) {
+			if (nodeName.equals(sibling.getNodeName())) {
 				return sibling;
 			}
 		}
@@ -993,7 +1365,7 @@ public abstract class Node implements Cloneable {
 	 */
 	public Node getPreviousSibling() {
 		final List<Node> siblings = parentNode.childNodes;
-		final int index = siblingIndex - 1;
+		final int index = parentNode.indexOfChild(this) - 1;
 		if (index < 0) {
 			return null;
 		}
@@ -1030,11 +1402,9 @@ public abstract class Node implements Cloneable {
 		if (nodeName == null) {
 			return null;
 		}
-		initSiblingNames();
-		final int index = siblingNameIndex -1;
-		for (int i = siblingIndex; i >= 0; i--) {
+		for (int i = parentNode.indexOfChild(this) - 1; i >= 0; i--) {
 			final Node sibling = parentNode.childNodes.get(i);
-			if ((index == sibling.siblingNameIndex) && nodeName.equals(sibling.getNodeName())) {
+			if (nodeName.equals(sibling.getNodeName())) {
 				return sibling;
 			}
 		}
@@ -0,0 +1,284 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records insertions, removals and moves of nodes and applies them
+ * at once, see {@link Node#batch(java.util.function.Consumer)}.
+ * Operations behave as if they were executed one after another, but
+ * the DOM tree is modified only when the batch ends: every modified parent
+ * gets its child list rebuilt and reindexed just once. Until then,
+ * the tree reflects the state before the batch.
+ */
+public final class NodeEditor {
+
+	/**
+	 * Position of a node in the edited child list.
+	 */
+	private static final class Link {
+		private final Node node;
+		private Node parent;
+		private Link prev;
+		private Link next;
+
+		private Link(final Node node) {
+			this.node = node;
+		}
+	}
+
+	private final Map<Node, Link> links = new IdentityHashMap<>();
+	private final Map<Node, Link> childLists = new IdentityHashMap<>();
+
+	NodeEditor() {
+	}
+
+	// ---------------------------------------------------------------- operations
+
+	/**
+	 * Removes node from its parent.
+	 */
+	public NodeEditor remove(final Node node) {
+		unlink(linkOf(node));
+		return this;
+	}
+
+	/**
+	 * Inserts node before the referent node.
+	 */
+	public NodeEditor insertBefore(final Node newChild, final Node refChild) {
+		final Link ref = attachedLinkOf(refChild);
+		final Link link = linkOf(newChild);
+		if (link != ref) {
+			unlink(link);
+			linkBefore(link, ref);
+		}
+		return this;
+	}
+
+	/**
+	 * Inserts several nodes before the referent node.
+	 */
+	public NodeEditor insertBefore(final Node[] newChilds, final Node refChild) {
+		final Link ref = attachedLinkOf(refChild);
+		for (final Node newChild : newChilds) {
+			final Link link = linkOf(newChild);
+			if (link != ref) {
+				unlink(link);
+				linkBefore(link, ref);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Inserts node after the referent node.
+	 */
+	public NodeEditor insertAfter(final Node newChild, final Node refChild) {
+		return insertAfter(new Node[] {newChild}, refChild);
+	}
+
+	/**
+	 * Inserts several nodes after the referent node.
+	 */
+	public NodeEditor insertAfter(final Node[] newChilds, final Node refChild) {
+		Link ref = attachedLinkOf(refChild);
+		for (final Node newChild : newChilds) {
+			final Link link = linkOf(newChild);
+			if (link != ref) {
+				unlink(link);
+				linkBefore(link, ref.next);
+				ref = link;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends nodes to the parent.
+	 */
+	public NodeEditor append(final Node parent, final Node... nodes) {
+		final Link end = childListOf(parent);
+		for (final Node node : nodes) {
+			final Link link = linkOf(node);
+			unlink(link);
+			linkBefore(link, end);
+		}
+		return this;
+	}
+
+	/**
+	 * Inserts nodes as the first children of the parent.
+	 */
+	public NodeEditor prepend(final Node parent, final Node... nodes) {
+		final Link list = childListOf(parent);
+		Link first = list.next;
+		for (int i = nodes.length - 1; i >= 0; i--) {
+			final Link link = linkOf(nodes[i]);
+			if (link == first) {
+				continue;
+			}
+			unlink(link);
+			linkBefore(link, first);
+			first = link;
+		}
+		return this;
+	}
+
+	// ---------------------------------------------------------------- links
+
+	/**
+	 * Returns the head of the edited child list of the parent.
+	 * The list is created from the current children on the first use.
+	 */
+	private Link childListOf(final Node parent) {
+		Link head = childLists.get(parent);
+		if (head != null) {
+			return head;
+		}
+		parent.checkNotFrozen();
+		head = new Link(null);
+		head.parent = parent;
+		head.prev = head;
+		head.next = head;
+		childLists.put(parent, head);
+
+		final int childCount = parent.getChildNodesCount();
+		for (int i = 0; i < childCount; i++) {
+			final Link link = new Link(parent.childNodes.get(i));
+			links.put(link.node, link);
+			linkBefore(link, head);
+		}
+		return head;
+	}
+
+	private Link linkOf(final Node node) {
+		Link link = links.get(node);
+		if (link != null) {
+			return link;
+		}
+		if (node.parentNode != null) {
+			childListOf(node.parentNode);
+			return links.get(node);
+		}
+		link = new Link(node);
+		links.put(node, link);
+		return link;
+	}
+
+	private Link attachedLinkOf(final Node refChild) {
+		final Link link = linkOf(refChild);
+		if (link.parent == null) {
+			throw new LagartoDOMException("Referent node has no parent");
+		}
+		return link;
+	}
+
+	private static void unlink(final Link link) {
+		if (link.parent == null) {
+			return;
+		}
+		link.prev.next = link.next;
+		link.next.prev = link.prev;
+		link.prev = null;
+		link.next = null;
+		link.parent = null;
+	}
+
+	private static void linkBefore(final Link link, final Link ref) {
+		link.parent = ref.parent;
+		link.prev = ref.prev;
+		link.next = ref;
+		ref.prev.next = link;
+		ref.prev = link;
+	}
+
+	// ---------------------------------------------------------------- apply
+
+	/**
+	 * Applies all recorded operations to the DOM tree.
+	 */
+	void apply() {
+		// nodes that change parent
+		final List<Link> moved = new ArrayList<>();
+
+		for (final Link link : links.values()) {
+			if (link.parent != null && link.parent != link.node.parentNode) {
+				moved.add(link);
+			}
+		}
+
+		for (final Link link : links.values()) {
+			if (link.parent == null) {
+				link.node.parentNode = null;
+			}
+		}
+
+		for (final Link head : childLists.values()) {
+			final Node parent = head.parent;
+
+			final List<Node> childNodes = new ArrayList<>();
+			for (Link link = head.next; link != head; link = link.next) {
+				link.node.parentNode = parent;
+				childNodes.add(link.node);
+			}
+
+			if (childNodes.isEmpty() && parent.childNodes == null) {
+				continue;
+			}
+			parent.childNodes = childNodes;
+			parent.reindexChildren();
+			parent.invalidateDocumentIndexes();
+		}
+
+		for (final Link head : childLists.values()) {
+			final Node parent = head.parent;
+			final Document document = parent.documentOfTree();
+			if (document == null) {
+				continue;
+			}
+			for (Link link = head.next; link != head; link = link.next) {
+				if (link.node.ownerDocument != document) {
+					parent.changeOwnerDocument(link.node, document);
+				}
+			}
+		}
+
+		for (final Link link : moved) {
+			final Document document = link.parent.idIndexingDocument();
+			if (document != null) {
+				document.indexIds(link.node);
+			}
+		}
+
+		links.clear();
+		childLists.clear();
+	}
+}
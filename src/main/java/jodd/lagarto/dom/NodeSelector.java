@@ -27,11 +27,17 @@ package jodd.lagarto.dom;
 import jodd.csselly.CSSelly;
 import jodd.csselly.Combinator;
 import jodd.csselly.CssSelector;
+import jodd.csselly.Selector;
+import jodd.csselly.selector.AttributeSelector;
+import jodd.csselly.selector.Match;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Node selector selects DOM nodes using {@link CSSelly CSS3 selectors}.
@@ -73,8 +79,16 @@ public class NodeSelector {
 	protected void processSelectors(final List<Node> results, final List<CssSelector> selectors) {
 		List<Node> selectedNodes = select(rootNode, selectors);
 
+		if (results.isEmpty()) {
+			results.addAll(selectedNodes);
+			return;
+		}
+
+		Set<Node> resultsSet = Collections.newSetFromMap(new IdentityHashMap<>(results.size() + selectedNodes.size()));
+		resultsSet.addAll(results);
+
 		for (Node selectedNode : selectedNodes) {
-			if (!results.contains(selectedNode)) {
+			if (resultsSet.add(selectedNode)) {
 				results.add(selectedNode);
 			}
 		}
@@ -133,11 +147,19 @@ public class NodeSelector {
 		// iterate all selectors
 		for (CssSelector cssSelector : selectors) {
 
+			// descendants of nested nodes are already found from the outer one
+			if (nodes.size() > 1 && combinatorOf(cssSelector) == Combinator.DESCENDANT) {
+				nodes = outermostNodes(nodes);
+			}
+
 			// create new set of results for current css selector
 			List<Node> selectedNodes = new ArrayList<>();
 			for (Node node : nodes) {
 				walk(node, cssSelector, selectedNodes);
 			}
+			if (nodes.size() > 1) {
+				selectedNodes = removeDuplicates(selectedNodes);
+			}
 
 			// post-processing: filter out the results
 			List<Node> resultNodes = new ArrayList<>();
@@ -157,6 +179,53 @@ public class NodeSelector {
 		return nodes;
 	}
 
+	/**
+	 * Returns the combinator that relates the selector to the previous one.
+	 */
+	protected Combinator combinatorOf(final CssSelector cssSelector) {
+		CssSelector previousCssSelector = cssSelector.getPrevCssSelector();
+
+		return previousCssSelector != null ?
+				previousCssSelector.getCombinator() :
+				Combinator.DESCENDANT;
+	}
+
+	/**
+	 * Sorts nodes in the document order and removes the ones
+	 * contained in some other node of the list, as there is no
+	 * need to walk their descendants twice.
+	 */
+	protected List<Node> outermostNodes(final List<Node> nodes) {
+		List<Node> sortedNodes = new ArrayList<>(nodes);
+		sortedNodes.sort(Node::compareDocumentPosition);
+
+		// contained nodes come right after the node that contains them
+		List<Node> outermostNodes = new ArrayList<>(sortedNodes.size());
+		Node outerNode = null;
+		for (Node node : sortedNodes) {
+			if (outerNode != null && outerNode.contains(node)) {
+				continue;
+			}
+			outermostNodes.add(node);
+			outerNode = node;
+		}
+		return outermostNodes;
+	}
+
+	/**
+	 * Removes duplicated nodes, keeping the first occurrence.
+	 */
+	protected List<Node> removeDuplicates(final List<Node> nodes) {
+		Set<Node> nodesSet = Collections.newSetFromMap(new IdentityHashMap<>(nodes.size()));
+		List<Node> uniqueNodes = new ArrayList<>(nodes.size());
+		for (Node node : nodes) {
+			if (nodesSet.add(node)) {
+				uniqueNodes.add(node);
+			}
+		}
+		return uniqueNodes;
+	}
+
 	/**
 	 * Walks over the child notes, maintaining the tree order and not using recursion.
 	 */
@@ -179,14 +248,16 @@ public class NodeSelector {
 	protected void walk(final Node rootNode, final CssSelector cssSelector, final List<Node> result) {
 
 		// previous combinator determines the behavior
-		CssSelector previousCssSelector = cssSelector.getPrevCssSelector();
-
-		Combinator combinator = previousCssSelector != null ?
-				previousCssSelector.getCombinator() :
-				Combinator.DESCENDANT;
+		Combinator combinator = combinatorOf(cssSelector);
 
 		switch (combinator) {
 			case DESCENDANT:
+				if (selectById(rootNode, cssSelector, result)) {
+					break;
+				}
+				if (selectByIndex(rootNode, cssSelector, result)) {
+					break;
+				}
 				LinkedList<Node> nodes = new LinkedList<>();
 				int childCount = rootNode.getChildNodesCount();
 				for (int i = 0; i < childCount; i++) {
@@ -222,6 +293,95 @@ public class NodeSelector {
 				break;
 		}	}
 
+	/**
+	 * Selects descendant using the {@link Document#getElementById(String) document id index},
+	 * when selector contains an id. Returns {@code false} if index can not be used
+	 * and the tree has to be walked.
+	 */
+	protected boolean selectById(final Node rootNode, final CssSelector cssSelector, final List<Node> result) {
+		final String id = resolveId(cssSelector);
+		if (id == null) {
+			return false;
+		}
+		final Document document = rootNode.attachedDocument();
+		if (document == null || document.isIdDuplicated(id)) {
+			return false;
+		}
+
+		final Element element = document.getElementById(id);
+		if (element == null) {
+			return true;
+		}
+
+		Node parent = element.getParentNode();
+		while (parent != null) {
+			if (parent == rootNode) {
+				selectAndAdd(element, cssSelector, result);
+				break;
+			}
+			parent = parent.getParentNode();
+		}
+		return true;
+	}
+
+	/**
+	 * Selects document descendants starting from the smallest set of elements
+	 * with the required {@link Document#getElementsByTagName(String) name} or
+	 * {@link Document#getElementsByClassName(String) class}. Returns {@code false}
+	 * if selector has no name nor class, or the root is not a document.
+	 */
+	protected boolean selectByIndex(final Node rootNode, final CssSelector cssSelector, final List<Node> result) {
+		if (rootNode.getNodeType() != Node.NodeType.DOCUMENT) {
+			return false;
+		}
+		final Document document = (Document) rootNode;
+
+		List<Element> candidates = null;
+
+		final String elementName = cssSelector.getElement();
+		if (!elementName.equals("*")) {
+			candidates = document.getElementsByTagName(elementName);
+		}
+		for (int i = 0, count = cssSelector.selectorsCount(); i < count; i++) {
+			final Selector selector = cssSelector.getSelector(i);
+			if (selector.getType() != Selector.Type.ATTRIBUTE) {
+				continue;
+			}
+			final AttributeSelector attributeSelector = (AttributeSelector) selector;
+			if (attributeSelector.getMatch() == Match.INCLUDES && attributeSelector.getName().equals("class")) {
+				final List<Element> elements = document.getElementsByClassName(attributeSelector.getValue());
+				if (candidates == null || elements.size() < candidates.size()) {
+					candidates = elements;
+				}
+			}
+		}
+		if (candidates == null) {
+			return false;
+		}
+
+		for (final Element element : candidates) {
+			selectAndAdd(element, cssSelector, result);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the id required by the selector, or {@code null}.
+	 */
+	protected String resolveId(final CssSelector cssSelector) {
+		for (int i = 0, count = cssSelector.selectorsCount(); i < count; i++) {
+			final Selector selector = cssSelector.getSelector(i);
+			if (selector.getType() != Selector.Type.ATTRIBUTE) {
+				continue;
+			}
+			final AttributeSelector attributeSelector = (AttributeSelector) selector;
+			if (attributeSelector.getMatch() == Match.EQUALS && attributeSelector.getName().equals("id")) {
+				return attributeSelector.getValue();
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Selects single node for single selector and appends it to the results.
 	 */
@@ -232,11 +392,6 @@ public class NodeSelector {
 		}
 		boolean matched = cssSelector.accept(node);
 		if (matched) {
-			// check for duplicates
-			if (result.contains(node)) {
-				return;
-			}
-			// no duplicate found, add it to the results
 			result.add(node);
 		}
 	}
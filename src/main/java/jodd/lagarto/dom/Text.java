@@ -26,25 +26,49 @@ package jodd.lagarto.dom;
 
 import jodd.net.HtmlDecoder;
 import jodd.net.HtmlEncoder;
+import jodd.util.CharUtil;
 import jodd.util.StringUtil;
 
+import java.io.IOException;
+
 /**
  * Text node. Text value is stored as node value in decoded, readable form.
  * There is also an option to get and set <b>html content</b> in
  * raw, html form.
+ * <p>
+ * Text may also be <i>source-backed</i>: instead of the string, it
+ * holds the range of the parsed input and the value is created on the
+ * first {@link #getNodeValue()} call.
  */
 public class Text extends Node {
 
 	protected String encodedText;
 
+	protected CharSequence source;
+	protected int sourceStart;
+	protected int sourceEnd;
+
 	public Text(final Document ownerDocument, final String text) {
 		super(ownerDocument, NodeType.TEXT, null);
 		this.nodeValue = text;
 		this.encodedText = null;
 	}
 
+	/**
+	 * Creates source-backed text, which value is the given range of the source.
+	 */
+	Text(final Document ownerDocument, final CharSequence source, final int sourceStart, final int sourceEnd) {
+		super(ownerDocument, NodeType.TEXT, null);
+		this.source = source;
+		this.sourceStart = sourceStart;
+		this.sourceEnd = sourceEnd;
+	}
+
 	@Override
 	public Text clone() {
+		if (source != null) {
+			return cloneTo(new Text(ownerDocument, source, sourceStart, sourceEnd));
+		}
 		return cloneTo(new Text(ownerDocument, nodeValue));
 	}
 	
@@ -55,17 +79,53 @@ public class Text extends Node {
 	 */
 	public boolean isBlank() {
 		if (blank == null) {
-			blank = Boolean.valueOf(StringUtil.isBlank(nodeValue));
+			if (source != null) {
+				blank = Boolean.valueOf(isBlankSource());
+			} else {
+				blank = Boolean.valueOf(StringUtil.isBlank(nodeValue));
+			}
 		}
 		return blank.booleanValue();
 	}
 
+	private boolean isBlankSource() {
+		for (int i = sourceStart; i < sourceEnd; i++) {
+			if (!CharUtil.isWhitespace(source.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if the text value is still kept
+	 * as a range of the parsed input.
+	 */
+	public boolean isSourceBacked() {
+		return source != null;
+	}
+
+	/**
+	 * Returns the plain text. Source-backed value is materialized
+	 * on the first call and the reference to the source is released.
+	 */
+	@Override
+	public String getNodeValue() {
+		if (source != null) {
+			nodeValue = source.subSequence(sourceStart, sourceEnd).toString();
+			source = null;
+		}
+		return nodeValue;
+	}
+
 	/**
 	 * Sets the plain text as node value.
 	 */
 	@Override
 	public void setNodeValue(final String value) {
+		checkNotFrozen();
 		encodedText = null;
+		source = null;
 		super.setNodeValue(value);
 	}
 
@@ -73,20 +133,53 @@ public class Text extends Node {
 	 * Sets HTML text, but decodes it first.
 	 */
 	public void setTextValue(final String text) {
+		checkNotFrozen();
 		encodedText = text;
+		source = null;
 		nodeValue = HtmlDecoder.decode(text);
 	}
 
 	/**
-	 * Returns encoded HTML text.
+	 * Returns encoded HTML text. Source-backed text is encoded
+	 * without being materialized and the result is not cached.
 	 */
 	public String getTextValue() {
+		if (source != null) {
+			return HtmlEncoder.text(source.subSequence(sourceStart, sourceEnd));
+		}
 		if (encodedText == null) {
 			encodedText = HtmlEncoder.text(nodeValue);
 		}
 		return encodedText;
 	}
 
+	/**
+	 * Appends source-backed text directly from the source, without materializing it.
+	 */
+	@Override
+	public void appendTextContent(final Appendable appendable) {
+		if (source == null) {
+			super.appendTextContent(appendable);
+			return;
+		}
+		try {
+			appendable.append(source, sourceStart, sourceEnd);
+		} catch (final IOException ioex) {
+			throw new LagartoDOMException(ioex);
+		}
+	}
+
+	/**
+	 * Materializes the value and computes all cached values.
+	 */
+	@Override
+	protected void freezeNode() {
+		getNodeValue();
+		isBlank();
+		getTextValue();
+		super.freezeNode();
+	}
+
 	@Override
 	protected void visitNode(final NodeVisitor nodeVisitor) {
 		nodeVisitor.text(this);
@@ -0,0 +1,177 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import jodd.lagarto.LagartoException;
+
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
+
+/**
+ * Common converters of extracted {@link RecordSchema record fields}.
+ * Numeric converters are lenient: they convert the first number in the value,
+ * skipping currency signs and grouping commas; integer converters truncate
+ * the fraction. All converters return {@code null} for empty values.
+ */
+public class FieldConverters {
+
+	/**
+	 * Converts to an integer.
+	 */
+	public static final Function<String, Integer> INT = value -> {
+		final String number = numeric(value, false);
+		return number == null ? null : Integer.valueOf(number);
+	};
+
+	/**
+	 * Converts to a long.
+	 */
+	public static final Function<String, Long> LONG = value -> {
+		final String number = numeric(value, false);
+		return number == null ? null : Long.valueOf(number);
+	};
+
+	/**
+	 * Converts to a decimal number. Dot is the decimal separator.
+	 */
+	public static final Function<String, BigDecimal> DECIMAL = value -> {
+		final String number = numeric(value, true);
+		return number == null ? null : new BigDecimal(number);
+	};
+
+	/**
+	 * Converts ISO date, e.g. {@code 2020-01-31}.
+	 */
+	public static final Function<String, LocalDate> DATE = date(DateTimeFormatter.ISO_LOCAL_DATE);
+
+	/**
+	 * Returns converter of dates in given pattern.
+	 */
+	public static Function<String, LocalDate> date(final String pattern) {
+		return date(DateTimeFormatter.ofPattern(pattern));
+	}
+
+	/**
+	 * Returns converter of dates in given format.
+	 */
+	public static Function<String, LocalDate> date(final DateTimeFormatter formatter) {
+		return value -> {
+			if (value == null) {
+				return null;
+			}
+			value = value.trim();
+			if (value.isEmpty()) {
+				return null;
+			}
+			return LocalDate.parse(value, formatter);
+		};
+	}
+
+	/**
+	 * Returns converter of URLs, relative to the given base URL.
+	 */
+	public static Function<String, URL> url(final String baseUrl) {
+		final URL base;
+		try {
+			base = new URL(baseUrl);
+		}
+		catch (final MalformedURLException muex) {
+			throw new LagartoException(muex);
+		}
+
+		return value -> {
+			if (value == null) {
+				return null;
+			}
+			value = value.trim();
+			if (value.isEmpty()) {
+				return null;
+			}
+			try {
+				return new URL(base, value);
+			}
+			catch (final MalformedURLException muex) {
+				throw new LagartoException(muex);
+			}
+		};
+	}
+
+	/**
+	 * Returns the first number in the value, without grouping commas,
+	 * or {@code null} if there are no digits. Characters before the number,
+	 * like currency signs, are skipped; minus sign right before the first
+	 * digit is kept. Number ends at the first character that can not continue
+	 * it. Integers end before the decimal dot, i.e. their fraction is truncated.
+	 */
+	private static String numeric(final String value, final boolean decimal) {
+		if (value == null) {
+			return null;
+		}
+
+		final int length = value.length();
+		int i = 0;
+		while (i < length && !isDigit(value.charAt(i))) {
+			i++;
+		}
+		if (i == length) {
+			return null;
+		}
+
+		final StringBuilder number = new StringBuilder(length - i + 1);
+		if (i > 0 && value.charAt(i - 1) == '-') {
+			number.append('-');
+		}
+
+		boolean fraction = false;
+		for (; i < length; i++) {
+			final char c = value.charAt(i);
+
+			if (isDigit(c)) {
+				number.append(c);
+				continue;
+			}
+			final boolean digitFollows = i + 1 < length && isDigit(value.charAt(i + 1));
+			if (c == ',' && !fraction && digitFollows) {
+				continue;
+			}
+			if (c == '.' && !fraction && digitFollows && decimal) {
+				number.append(c);
+				fraction = true;
+				continue;
+			}
+			break;
+		}
+		return number.toString();
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+}
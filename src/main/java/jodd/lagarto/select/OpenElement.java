@@ -0,0 +1,218 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import jodd.lagarto.Tag;
+import jodd.util.CharSequenceUtil;
+import jodd.util.Util;
+
+/**
+ * Element on the {@link OpenElementStack stack of open elements}.
+ * Holds a snapshot of the tag name and attributes, as they were
+ * when element has been opened. Instances are reused for each
+ * nesting level, therefore they must not be kept after the
+ * element is closed.
+ */
+public class OpenElement {
+
+	protected final int depth;
+	protected OpenElement parent;
+	protected boolean caseSensitive;
+	protected CharSequence name;
+	protected String nameString;
+	protected int attributesCount;
+	protected CharSequence[] attrNames = new CharSequence[8];
+	protected CharSequence[] attrValues = new CharSequence[8];
+	protected boolean voidElement;
+	protected int position;
+	protected int siblingElementIndex;
+	protected int childElementsCount;
+
+	protected OpenElement(final int depth) {
+		this.depth = depth;
+	}
+
+	/**
+	 * Copies tag name and attributes into this element.
+	 */
+	protected void init(final OpenElement parent, final int siblingElementIndex, final Tag tag, final boolean voidElement) {
+		this.parent = parent;
+		this.siblingElementIndex = siblingElementIndex;
+		this.childElementsCount = 0;
+		this.caseSensitive = tag.isCaseSensitive();
+		this.name = tag.getName();
+		this.nameString = null;
+		this.voidElement = voidElement;
+		this.position = tag.getTagPosition();
+
+		final int count = tag.getAttributeCount();
+		if (count > attrNames.length) {
+			attrNames = new CharSequence[count];
+			attrValues = new CharSequence[count];
+		}
+		for (int i = 0; i < count; i++) {
+			attrNames[i] = tag.getAttributeName(i);
+			attrValues[i] = tag.getAttributeValue(i);
+		}
+		for (int i = count; i < attributesCount; i++) {
+			attrNames[i] = null;
+			attrValues[i] = null;
+		}
+		this.attributesCount = count;
+	}
+
+	// ---------------------------------------------------------------- tree
+
+	/**
+	 * Returns parent open element or {@code null} for top-level elements.
+	 */
+	public OpenElement getParent() {
+		return parent;
+	}
+
+	/**
+	 * Returns elements depth, starting from 1 for top-level elements.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns {@code true} if element is void, i.e. it does not have the content.
+	 */
+	public boolean isVoidElement() {
+		return voidElement;
+	}
+
+	/**
+	 * Returns the index of this element among its sibling elements, starting from 0.
+	 * Only preceding siblings are counted, as following ones are not parsed yet.
+	 */
+	public int getSiblingElementIndex() {
+		return siblingElementIndex;
+	}
+
+	/**
+	 * Returns the number of child elements opened so far.
+	 */
+	public int getChildElementsCount() {
+		return childElementsCount;
+	}
+
+	/**
+	 * Returns the position of elements start tag in the input.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	// ---------------------------------------------------------------- name
+
+	/**
+	 * Returns elements name. Name is lowercased when
+	 * parsing is not case sensitive.
+	 */
+	public String getName() {
+		if (nameString == null) {
+			nameString = Util.toString(name);
+			if (!caseSensitive) {
+				nameString = nameString.toLowerCase();
+			}
+		}
+		return nameString;
+	}
+
+	/**
+	 * Returns {@code true} if elements name equals to given one.
+	 */
+	public boolean nameEquals(final CharSequence elementName) {
+		if (caseSensitive) {
+			return CharSequenceUtil.equals(name, elementName);
+		}
+		return CharSequenceUtil.equalsIgnoreCase(name, elementName);
+	}
+
+	// ---------------------------------------------------------------- attributes
+
+	/**
+	 * Returns number of attributes.
+	 */
+	public int getAttributeCount() {
+		return attributesCount;
+	}
+
+	/**
+	 * Returns attribute name at given index.
+	 */
+	public CharSequence getAttributeName(final int index) {
+		return attrNames[index];
+	}
+
+	/**
+	 * Returns attribute value at given index.
+	 */
+	public CharSequence getAttributeValue(final int index) {
+		return attrValues[index];
+	}
+
+	/**
+	 * Returns index of an attribute or {@code -1} if attribute does not exist.
+	 */
+	public int getAttributeIndex(final CharSequence attributeName) {
+		for (int i = 0; i < attributesCount; i++) {
+			final CharSequence attrName = attrNames[i];
+			if (caseSensitive ?
+				CharSequenceUtil.equals(attrName, attributeName) :
+				CharSequenceUtil.equalsIgnoreCase(attrName, attributeName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns {@code true} if attribute is present.
+	 */
+	public boolean hasAttribute(final CharSequence attributeName) {
+		return getAttributeIndex(attributeName) != -1;
+	}
+
+	/**
+	 * Returns attribute value or {@code null} if attribute does not exist.
+	 */
+	public CharSequence getAttributeValue(final CharSequence attributeName) {
+		final int index = getAttributeIndex(attributeName);
+		if (index == -1) {
+			return null;
+		}
+		return attrValues[index];
+	}
+
+	@Override
+	public String toString() {
+		return '<' + getName() + '>';
+	}
+}
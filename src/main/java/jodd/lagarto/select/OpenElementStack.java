@@ -0,0 +1,243 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.lagarto.dom.HtmlImplicitClosingRules;
+import jodd.lagarto.dom.HtmlVoidRules;
+import jodd.util.Util;
+
+/**
+ * Stack of open elements, built from the stream of tags. Follows the
+ * same rules as the DOM builder (void tags, optional implied end tags),
+ * but keeps only the currently open elements, so the memory is bounded
+ * by the nesting depth and not by the document size.
+ */
+public class OpenElementStack {
+
+	/**
+	 * Receives elements start and end events.
+	 */
+	public interface Handler {
+
+		/**
+		 * Invoked when element is opened.
+		 */
+		void elementStart(OpenElement element, Tag tag);
+
+		/**
+		 * Invoked when element is closed, while it is still on the stack.
+		 * End tag is {@code null} when element is closed implicitly or when
+		 * element does not have the end tag, like void and self-closing elements.
+		 */
+		void elementEnd(OpenElement element, Tag endTag);
+	}
+
+	protected final HtmlVoidRules voidRules = new HtmlVoidRules();
+	protected final HtmlImplicitClosingRules implRules = new HtmlImplicitClosingRules();
+	protected boolean enabledVoidTags = true;
+	protected boolean impliedEndTags = false;
+
+	protected OpenElement[] elements = new OpenElement[16];
+	protected int size;
+	protected int rootElementsCount;
+
+	// ---------------------------------------------------------------- config
+
+	/**
+	 * Enables usage of void tags.
+	 */
+	public OpenElementStack setEnabledVoidTags(final boolean enabledVoidTags) {
+		this.enabledVoidTags = enabledVoidTags;
+		return this;
+	}
+
+	/**
+	 * Enables implied end tags for certain tags.
+	 */
+	public OpenElementStack setImpliedEndTags(final boolean impliedEndTags) {
+		this.impliedEndTags = impliedEndTags;
+		return this;
+	}
+
+	// ---------------------------------------------------------------- stack
+
+	/**
+	 * Returns number of open elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns current, i.e. the last open element or {@code null} if stack is empty.
+	 */
+	public OpenElement current() {
+		if (size == 0) {
+			return null;
+		}
+		return elements[size - 1];
+	}
+
+	/**
+	 * Returns open element at given depth, starting from 1.
+	 */
+	public OpenElement get(final int depth) {
+		if (depth < 1 || depth > size) {
+			throw new IndexOutOfBoundsException(String.valueOf(depth));
+		}
+		return elements[depth - 1];
+	}
+
+	/**
+	 * Pushes new element to the stack. Element is not closed, even if it is void.
+	 */
+	public OpenElement push(final Tag tag) {
+		if (size == elements.length) {
+			final OpenElement[] newElements = new OpenElement[size << 1];
+			System.arraycopy(elements, 0, newElements, 0, size);
+			elements = newElements;
+		}
+
+		OpenElement element = elements[size];
+		if (element == null) {
+			element = createOpenElement(size + 1);
+			elements[size] = element;
+		}
+
+		final boolean voidElement = enabledVoidTags && voidRules.isVoidTag(tag.getName());
+
+		final OpenElement parent = current();
+		final int siblingElementIndex = parent == null ? rootElementsCount++ : parent.childElementsCount++;
+
+		element.init(parent, siblingElementIndex, tag, voidElement);
+		size++;
+		return element;
+	}
+
+	/**
+	 * Creates new open element for given depth. Invoked once per nesting level.
+	 */
+	protected OpenElement createOpenElement(final int depth) {
+		return new OpenElement(depth);
+	}
+
+	/**
+	 * Removes current element from the stack.
+	 */
+	public OpenElement pop() {
+		if (size == 0) {
+			throw new IllegalStateException("No open element");
+		}
+		return elements[--size];
+	}
+
+	/**
+	 * Finds the depth of the last open element with given name.
+	 * Returns {@code 0} if element is not found.
+	 */
+	public int find(final CharSequence elementName) {
+		for (int i = size - 1; i >= 0; i--) {
+			if (elements[i].nameEquals(elementName)) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Removes all elements from the stack, without any notification.
+	 */
+	public void reset() {
+		size = 0;
+		rootElementsCount = 0;
+	}
+
+	// ---------------------------------------------------------------- events
+
+	/**
+	 * Processes a tag and notifies the handler about all opened and closed elements.
+	 * Returns {@code false} when end tag does not match any open element;
+	 * such orphan end tags are ignored.
+	 */
+	public boolean tag(final Tag tag, final Handler handler) {
+		final TagType tagType = tag.getType();
+
+		switch (tagType) {
+			case START:
+				if (impliedEndTags && size != 0) {
+					final String tagName = Util.toString(tag.getName());
+
+					while (size != 0 && implRules.implicitlyCloseParentTagOnNewTag(current().getName(), tagName)) {
+						closeCurrent(null, handler);
+					}
+				}
+
+				final OpenElement element = push(tag);
+				handler.elementStart(element, tag);
+
+				if (element.isVoidElement()) {
+					closeCurrent(null, handler);
+				}
+				return true;
+
+			case SELF_CLOSING:
+				handler.elementStart(push(tag), tag);
+				closeCurrent(null, handler);
+				return true;
+
+			case END:
+				final int depth = find(tag.getName());
+				if (depth == 0) {
+					return false;
+				}
+				while (size > depth) {
+					closeCurrent(null, handler);
+				}
+				closeCurrent(tag, handler);
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Closes all open elements. Should be invoked on the end of the input.
+	 */
+	public void end(final Handler handler) {
+		while (size != 0) {
+			closeCurrent(null, handler);
+		}
+	}
+
+	/**
+	 * Notifies the handler and pops the current element.
+	 */
+	protected void closeCurrent(final Tag endTag, final Handler handler) {
+		handler.elementEnd(current(), endTag);
+		size--;
+	}
+}
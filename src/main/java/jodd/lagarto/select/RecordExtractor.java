@@ -0,0 +1,297 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+import jodd.util.CharUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Extracts records defined by the {@link RecordSchema} while the input is parsed,
+ * without building the DOM tree. Record is passed to the consumer as soon as
+ * its element is closed. Records nested in other records are ignored.
+ * Memory usage depends only on the nesting depth and the size of field values.
+ */
+public class RecordExtractor<T> extends EmptyTagVisitor {
+
+	protected final List<RecordSchema.Field<T>> fields;
+	protected final StreamSelector recordSelector;
+	protected final RecordSchema<T> schema;
+	protected final Consumer<T> consumer;
+	protected final OpenElementStack stack = new OpenElementStack();
+	protected final OpenElementStack.Handler elementHandler = new ElementHandler();
+
+	protected final StringBuilder[] texts;
+	protected final int[] textDepths;
+	protected final boolean[] extracted;
+	protected int textFields;
+
+	protected T record;
+	protected int recordDepth;
+
+	public RecordExtractor(final RecordSchema<T> schema, final Consumer<T> consumer) {
+		this.schema = schema;
+		this.consumer = consumer;
+		this.recordSelector = schema.recordSelector;
+		this.fields = new ArrayList<>(schema.fields);
+		this.texts = new StringBuilder[fields.size()];
+		this.textDepths = new int[fields.size()];
+		this.extracted = new boolean[fields.size()];
+
+		for (int i = 0; i < fields.size(); i++) {
+			if (fields.get(i).attribute == null) {
+				texts[i] = new StringBuilder();
+			}
+		}
+	}
+
+	/**
+	 * Returns an iterator over records of the parsed input. The input is parsed
+	 * lazily, just enough to return the next record.
+	 */
+	public static <T> Iterator<T> iterator(final LagartoParser parser, final RecordSchema<T> schema) {
+		final ArrayDeque<T> records = new ArrayDeque<>();
+
+		parser.parseStart(new RecordExtractor<>(schema, records::add));
+
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				while (records.isEmpty()) {
+					if (!parser.parseNext()) {
+						// the last step may end the parsing and complete pending records
+						return !records.isEmpty();
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return records.poll();
+			}
+		};
+	}
+
+	/**
+	 * Returns the stack of open elements, so it can be configured.
+	 */
+	public OpenElementStack getOpenElementStack() {
+		return stack;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		stack.reset();
+		record = null;
+		recordDepth = 0;
+		textFields = 0;
+	}
+
+	@Override
+	public void end() {
+		stack.end(elementHandler);
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		stack.tag(tag, elementHandler);
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		final OpenElement element = stack.push(tag);
+		elementHandler.elementStart(element, tag);
+		text(body);
+		elementHandler.elementEnd(element, tag);
+		stack.pop();
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (textFields == 0) {
+			return;
+		}
+		for (int i = 0; i < fields.size(); i++) {
+			if (textDepths[i] != 0) {
+				texts[i].append(text);
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- elements
+
+	/**
+	 * Runs the extraction on elements events.
+	 */
+	protected class ElementHandler implements OpenElementStack.Handler {
+
+		@Override
+		public void elementStart(final OpenElement element, final Tag tag) {
+			if (recordDepth == 0) {
+				if (!recordSelector.matches(element)) {
+					return;
+				}
+				startRecord(element);
+
+				for (int i = 0; i < fields.size(); i++) {
+					if (fields.get(i).selector == null) {
+						startField(i, element);
+					}
+				}
+				return;
+			}
+
+			for (int i = 0; i < fields.size(); i++) {
+				if (extracted[i] || textDepths[i] != 0) {
+					continue;
+				}
+				final RecordSchema.Field<T> field = fields.get(i);
+				if (field.selector == null) {
+					continue;
+				}
+				if (field.attribute != null && !element.hasAttribute(field.attribute)) {
+					continue;
+				}
+				if (field.selector.matches(element)) {
+					startField(i, element);
+				}
+			}
+		}
+
+		@Override
+		public void elementEnd(final OpenElement element, final Tag endTag) {
+			if (recordDepth == 0) {
+				return;
+			}
+
+			final int depth = element.getDepth();
+
+			if (textFields != 0) {
+				for (int i = 0; i < fields.size(); i++) {
+					if (textDepths[i] == depth) {
+						endTextField(i);
+					}
+				}
+			}
+
+			if (depth == recordDepth) {
+				final T completed = record;
+				record = null;
+				recordDepth = 0;
+				consumer.accept(completed);
+			}
+		}
+	}
+
+	/**
+	 * Starts new record.
+	 */
+	protected void startRecord(final OpenElement element) {
+		record = schema.recordFactory.get();
+		recordDepth = element.getDepth();
+
+		for (int i = 0; i < fields.size(); i++) {
+			extracted[i] = false;
+			textDepths[i] = 0;
+		}
+		textFields = 0;
+	}
+
+	/**
+	 * Extracts attribute field or starts collecting the text of text field.
+	 */
+	protected void startField(final int index, final OpenElement element) {
+		final RecordSchema.Field<T> field = fields.get(index);
+
+		if (field.attribute != null) {
+			final CharSequence value = element.getAttributeValue(field.attribute);
+			if (value != null) {
+				setField(index, value.toString());
+			}
+			return;
+		}
+
+		texts[index].setLength(0);
+		textDepths[index] = element.getDepth();
+		textFields++;
+	}
+
+	/**
+	 * Ends collecting the text of the field.
+	 */
+	protected void endTextField(final int index) {
+		textDepths[index] = 0;
+		textFields--;
+		setField(index, normalize(texts[index]));
+	}
+
+	/**
+	 * Converts the value and sets it to the record.
+	 */
+	protected void setField(final int index, final String value) {
+		final RecordSchema.Field<T> field = fields.get(index);
+		extracted[index] = true;
+		field.setter.accept(record, field.converter.apply(value));
+	}
+
+	/**
+	 * Collapses whitespaces and trims the text.
+	 */
+	protected String normalize(final StringBuilder text) {
+		final int length = text.length();
+		int ndx = 0;
+		boolean space = false;
+
+		for (int i = 0; i < length; i++) {
+			final char c = text.charAt(i);
+			if (CharUtil.isWhitespace(c)) {
+				space = ndx != 0;
+				continue;
+			}
+			if (space) {
+				text.setCharAt(ndx++, ' ');
+				space = false;
+			}
+			text.setCharAt(ndx++, c);
+		}
+		text.setLength(ndx);
+		return text.toString();
+	}
+}
@@ -0,0 +1,171 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Schema of records extracted by {@link RecordExtractor}. Each element matched
+ * by the record query yields one record. Record fields are extracted from
+ * elements inside the record element, matched by field queries; the first
+ * matching element is used. Field value is either an attribute value or
+ * the text content of the element, with normalized whitespaces.
+ * Field queries are matched like in {@code find()}: only descendants
+ * of the record element are matched, but the rest of the selector may match
+ * any ancestors. Use {@code null} query to extract the field from the record element itself.
+ */
+public class RecordSchema<T> {
+
+	/**
+	 * Sets named field value to the record.
+	 */
+	@FunctionalInterface
+	public interface FieldSetter<T> {
+		void set(T record, String name, Object value);
+	}
+
+	/**
+	 * Single field definition.
+	 */
+	public static class Field<T> {
+		protected final String name;
+		protected final StreamSelector selector;
+		protected final String attribute;
+		protected final Function<String, ?> converter;
+		protected final BiConsumer<T, Object> setter;
+
+		protected Field(final String name, final StreamSelector selector, final String attribute, final Function<String, ?> converter, final BiConsumer<T, Object> setter) {
+			this.name = name;
+			this.selector = selector;
+			this.attribute = attribute;
+			this.converter = converter;
+			this.setter = setter;
+		}
+
+		/**
+		 * Returns field name.
+		 */
+		public String getName() {
+			return name;
+		}
+	}
+
+	protected final StreamSelector recordSelector;
+	protected final Supplier<T> recordFactory;
+	protected final FieldSetter<T> fieldSetter;
+	protected final List<Field<T>> fields = new ArrayList<>();
+
+	/**
+	 * Creates schema of records created by the factory. Field setter is used for
+	 * named fields; it may be {@code null} when only fields with setters are defined.
+	 */
+	public RecordSchema(final String recordQuery, final Supplier<T> recordFactory, final FieldSetter<T> fieldSetter) {
+		this.recordSelector = new StreamSelector(recordQuery);
+		this.recordFactory = recordFactory;
+		this.fieldSetter = fieldSetter;
+	}
+
+	/**
+	 * Creates schema of records that are maps of field names to their values.
+	 */
+	public static RecordSchema<Map<String, Object>> ofMaps(final String recordQuery) {
+		return new RecordSchema<>(recordQuery, LinkedHashMap::new, Map::put);
+	}
+
+	// ---------------------------------------------------------------- named fields
+
+	/**
+	 * Defines text field.
+	 */
+	public RecordSchema<T> text(final String name, final String query) {
+		return text(name, query, Function.identity());
+	}
+
+	/**
+	 * Defines converted text field.
+	 */
+	public RecordSchema<T> text(final String name, final String query, final Function<String, ?> converter) {
+		return add(name, query, null, converter, namedSetter(name));
+	}
+
+	/**
+	 * Defines attribute field.
+	 */
+	public RecordSchema<T> attr(final String name, final String query, final String attribute) {
+		return attr(name, query, attribute, Function.identity());
+	}
+
+	/**
+	 * Defines converted attribute field.
+	 */
+	public RecordSchema<T> attr(final String name, final String query, final String attribute, final Function<String, ?> converter) {
+		return add(name, query, attribute, converter, namedSetter(name));
+	}
+
+	protected BiConsumer<T, Object> namedSetter(final String name) {
+		if (fieldSetter == null) {
+			throw new IllegalStateException("Field setter is not defined for: " + name);
+		}
+		return (record, value) -> fieldSetter.set(record, name, value);
+	}
+
+	// ---------------------------------------------------------------- typed fields
+
+	/**
+	 * Defines converted text field, set with given setter.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> RecordSchema<T> text(final String query, final Function<String, V> converter, final BiConsumer<T, V> setter) {
+		return add(query, query, null, converter, (BiConsumer<T, Object>) setter);
+	}
+
+	/**
+	 * Defines converted attribute field, set with given setter.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> RecordSchema<T> attr(final String query, final String attribute, final Function<String, V> converter, final BiConsumer<T, V> setter) {
+		return add(query + '@' + attribute, query, attribute, converter, (BiConsumer<T, Object>) setter);
+	}
+
+	protected RecordSchema<T> add(final String name, final String query, final String attribute, final Function<String, ?> converter, final BiConsumer<T, Object> setter) {
+		final StreamSelector selector = query == null ? null : new StreamSelector(query);
+		fields.add(new Field<>(name, selector, attribute, converter, setter));
+		return this;
+	}
+
+	/**
+	 * Returns defined fields.
+	 */
+	public List<Field<T>> getFields() {
+		return fields;
+	}
+}
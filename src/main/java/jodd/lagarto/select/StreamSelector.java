@@ -0,0 +1,248 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import jodd.csselly.CSSelly;
+import jodd.csselly.CSSellyException;
+import jodd.csselly.Combinator;
+import jodd.csselly.CssSelector;
+import jodd.csselly.Selector;
+import jodd.csselly.selector.AttributeSelector;
+import jodd.csselly.selector.PseudoClass;
+import jodd.csselly.selector.PseudoClassSelector;
+import jodd.csselly.selector.PseudoClasses;
+import jodd.csselly.selector.PseudoFunctionExpression;
+import jodd.csselly.selector.PseudoFunctionSelector;
+import jodd.csselly.selector.PseudoFunctions;
+import jodd.util.Util;
+
+import java.util.List;
+
+/**
+ * CSS selector compiled for matching {@link OpenElement open elements}
+ * while the input is being parsed. Since only the open elements are known,
+ * just a subset of CSS selectors is supported: element names, ids, classes,
+ * attribute selectors, descendant and child combinators and pseudo-classes
+ * that depend only on preceding siblings: {@code :first-child}, {@code :nth-child()}
+ * and {@code :root}.
+ * Unsupported selectors are rejected when selector is created.
+ */
+public class StreamSelector {
+
+	private static final String STAR = "*";
+
+	protected final String query;
+	protected final CssSelector[][] chains;
+
+	/**
+	 * Parses and compiles CSS query. Query may contain several selectors
+	 * separated with comma; element is matched if any of them match.
+	 */
+	public StreamSelector(final String query) {
+		this(query, CSSelly.parse(query));
+	}
+
+	/**
+	 * Compiles already parsed CSS selectors.
+	 */
+	public StreamSelector(final List<List<CssSelector>> selectors) {
+		this(toString(selectors), selectors);
+	}
+
+	protected StreamSelector(final String query, final List<List<CssSelector>> selectors) {
+		this.query = query;
+		this.chains = new CssSelector[selectors.size()][];
+
+		for (int i = 0; i < chains.length; i++) {
+			final List<CssSelector> selectorList = selectors.get(i);
+			final CssSelector[] chain = selectorList.toArray(new CssSelector[0]);
+
+			for (final CssSelector cssSelector : chain) {
+				validate(cssSelector);
+			}
+			chains[i] = chain;
+		}
+	}
+
+	/**
+	 * Validates CSS selector and throws an exception if it can not be
+	 * matched while streaming.
+	 */
+	protected void validate(final CssSelector cssSelector) {
+		if (cssSelector.getNextCssSelector() != null) {
+			final Combinator combinator = cssSelector.getCombinator();
+			if (combinator != Combinator.DESCENDANT && combinator != Combinator.CHILD) {
+				throw new CSSellyException("Unsupported combinator in streaming selector: " + combinator.getSign());
+			}
+		}
+
+		final int total = cssSelector.selectorsCount();
+		for (int i = 0; i < total; i++) {
+			final Selector selector = cssSelector.getSelector(i);
+			if (!isSupported(selector)) {
+				throw new CSSellyException("Unsupported selector in streaming selector: " + cssSelector);
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if selector is supported.
+	 */
+	protected boolean isSupported(final Selector selector) {
+		switch (selector.getType()) {
+			case ATTRIBUTE:
+				return true;
+			case PSEUDO_CLASS:
+				final PseudoClass pseudoClass = ((PseudoClassSelector) selector).getPseudoClass();
+				return pseudoClass instanceof PseudoClasses.FIRST_CHILD || pseudoClass instanceof PseudoClasses.ROOT;
+			case PSEUDO_FUNCTION:
+				return ((PseudoFunctionSelector<?>) selector).getPseudoFunction() instanceof PseudoFunctions.NTH_CHILD;
+		}
+		return false;
+	}
+
+	/**
+	 * Builds query string from parsed selectors.
+	 */
+	private static String toString(final List<List<CssSelector>> selectors) {
+		final StringBuilder sb = new StringBuilder();
+		for (final List<CssSelector> selectorList : selectors) {
+			if (sb.length() != 0) {
+				sb.append(", ");
+			}
+			sb.append(CSSelly.toString(selectorList));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the query.
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	// ---------------------------------------------------------------- match
+
+	/**
+	 * Returns {@code true} if open element matches this selector.
+	 */
+	public boolean matches(final OpenElement element) {
+		for (final CssSelector[] chain : chains) {
+			if (matches(chain, chain.length - 1, element)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches the chain from given index towards the beginning,
+	 * walking up the open elements.
+	 */
+	protected boolean matches(final CssSelector[] chain, final int index, final OpenElement element) {
+		if (!accept(chain[index], element)) {
+			return false;
+		}
+		if (index == 0) {
+			return true;
+		}
+
+		final Combinator combinator = chain[index - 1].getCombinator();
+
+		if (combinator == Combinator.CHILD) {
+			final OpenElement parent = element.getParent();
+			return parent != null && matches(chain, index - 1, parent);
+		}
+
+		// descendant
+		OpenElement parent = element.getParent();
+		while (parent != null) {
+			if (matches(chain, index - 1, parent)) {
+				return true;
+			}
+			parent = parent.getParent();
+		}
+		return false;
+	}
+
+	/**
+	 * Accepts single open element.
+	 */
+	protected boolean accept(final CssSelector cssSelector, final OpenElement element) {
+		final String elementName = cssSelector.getElement();
+		if (!elementName.equals(STAR) && !element.nameEquals(elementName)) {
+			return false;
+		}
+
+		final int total = cssSelector.selectorsCount();
+		for (int i = 0; i < total; i++) {
+			if (!accept(cssSelector.getSelector(i), element)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Accepts single selector of an open element.
+	 */
+	protected boolean accept(final Selector selector, final OpenElement element) {
+		switch (selector.getType()) {
+			case PSEUDO_CLASS:
+				final PseudoClass pseudoClass = ((PseudoClassSelector) selector).getPseudoClass();
+				if (pseudoClass instanceof PseudoClasses.ROOT) {
+					return element.getParent() == null;
+				}
+				return element.getSiblingElementIndex() == 0;
+			case PSEUDO_FUNCTION:
+				final PseudoFunctionExpression expression =
+					(PseudoFunctionExpression) ((PseudoFunctionSelector<?>) selector).getParsedExpression();
+				return expression.match(element.getSiblingElementIndex() + 1);
+		}
+
+		final AttributeSelector attributeSelector = (AttributeSelector) selector;
+
+		final int index = element.getAttributeIndex(attributeSelector.getName());
+		if (index == -1) {
+			return false;
+		}
+		if (attributeSelector.getValue() == null) {
+			return true;
+		}
+
+		final CharSequence value = element.getAttributeValue(index);
+		if (value == null) {
+			return false;
+		}
+		return attributeSelector.getMatch().compare(Util.toString(value), attributeSelector.getValue());
+	}
+
+	@Override
+	public String toString() {
+		return query;
+	}
+}
@@ -0,0 +1,338 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.util.CharSequenceUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Extracts absolute {@code http} and {@code https} links from the page.
+ * Links are found in {@code a}, {@code area} and {@code link} hrefs, {@code iframe},
+ * {@code frame}, {@code img} and {@code source} sources and image candidates and
+ * in the {@code meta} refresh. Relative links are resolved against the {@code base}
+ * href, if present, or the document URL.
+ * <p>
+ * Links are resolved into a reused buffer and deduplicated by their 64-bit
+ * hash, so a string is created only for the new links. Extraction stops when
+ * the link budget is reached; use {@link #parse(LagartoParser)} to stop the
+ * parsing as well.
+ */
+public class LinkExtractingTagVisitor extends EmptyTagVisitor {
+
+	protected final String documentUrl;
+	protected final UrlResolver resolver;
+	protected final Consumer<String> consumer;
+	protected final List<String> links;
+	private final LongHashSet hashes = new LongHashSet();
+
+	protected int maxLinks = Integer.MAX_VALUE;
+	protected boolean removeFragment = true;
+	protected boolean baseFound;
+	protected int linksCount;
+
+	/**
+	 * Creates visitor that passes links to the consumer.
+	 */
+	public LinkExtractingTagVisitor(final String documentUrl, final Consumer<String> consumer) {
+		this.documentUrl = documentUrl;
+		this.resolver = new UrlResolver(documentUrl);
+		this.consumer = consumer;
+		this.links = null;
+	}
+
+	/**
+	 * Creates visitor that collects links.
+	 * @see #getLinks()
+	 */
+	public LinkExtractingTagVisitor(final String documentUrl) {
+		this.documentUrl = documentUrl;
+		this.resolver = new UrlResolver(documentUrl);
+		this.links = new ArrayList<>();
+		this.consumer = links::add;
+	}
+
+	/**
+	 * Defines maximal number of extracted links.
+	 */
+	public LinkExtractingTagVisitor setMaxLinks(final int maxLinks) {
+		this.maxLinks = maxLinks;
+		return this;
+	}
+
+	/**
+	 * Defines if fragments are removed from links, enabled by default.
+	 */
+	public LinkExtractingTagVisitor setRemoveFragment(final boolean removeFragment) {
+		this.removeFragment = removeFragment;
+		return this;
+	}
+
+	/**
+	 * Returns collected links, or {@code null} if links are passed to the consumer.
+	 */
+	public List<String> getLinks() {
+		return links;
+	}
+
+	/**
+	 * Returns the number of extracted links.
+	 */
+	public int getLinksCount() {
+		return linksCount;
+	}
+
+	/**
+	 * Returns {@code true} if the link budget is reached.
+	 */
+	public boolean isBudgetReached() {
+		return linksCount >= maxLinks;
+	}
+
+	/**
+	 * Parses the input until the end or until the link budget is reached.
+	 */
+	public void parse(final LagartoParser parser) {
+		parser.parseStart(this);
+
+		while (!isBudgetReached() && parser.parseNext()) {
+		}
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		resolver.setBase(documentUrl);
+		hashes.clear();
+		baseFound = false;
+		linksCount = 0;
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		if (tag.getType() == TagType.END || tag.getAttributeCount() == 0 || isBudgetReached()) {
+			return;
+		}
+
+		final CharSequence name = tag.getName();
+
+		switch (name.length()) {
+			case 1:
+				if (is(name, "a")) {
+					link(tag.getAttributeValue("href"));
+				}
+				return;
+			case 3:
+				if (is(name, "img")) {
+					link(tag.getAttributeValue("src"));
+					srcset(tag.getAttributeValue("srcset"));
+				}
+				return;
+			case 4:
+				if (is(name, "area") || is(name, "link")) {
+					link(tag.getAttributeValue("href"));
+				}
+				else if (is(name, "base")) {
+					base(tag.getAttributeValue("href"));
+				}
+				else if (is(name, "meta")) {
+					refresh(tag);
+				}
+				return;
+			case 5:
+				if (is(name, "frame")) {
+					link(tag.getAttributeValue("src"));
+				}
+				return;
+			case 6:
+				if (is(name, "iframe")) {
+					link(tag.getAttributeValue("src"));
+				}
+				else if (is(name, "source")) {
+					link(tag.getAttributeValue("src"));
+					srcset(tag.getAttributeValue("srcset"));
+				}
+				return;
+			default:
+		}
+	}
+
+	// ---------------------------------------------------------------- links
+
+	/**
+	 * Sets the base URL, only the first one is used.
+	 */
+	protected void base(final CharSequence href) {
+		if (href == null || baseFound) {
+			return;
+		}
+		baseFound = true;
+		resolver.setBase(resolver.resolve(href).toString());
+	}
+
+	/**
+	 * Parses URL from the meta refresh content, like: {@code 5; url=/page}.
+	 */
+	protected void refresh(final Tag tag) {
+		final CharSequence httpEquiv = tag.getAttributeValue("http-equiv");
+		if (httpEquiv == null || !CharSequenceUtil.equalsIgnoreCase(httpEquiv, "refresh")) {
+			return;
+		}
+		final CharSequence content = tag.getAttributeValue("content");
+		if (content == null) {
+			return;
+		}
+
+		final int length = content.length();
+		int ndx = 0;
+		while (ndx < length && content.charAt(ndx) != ';' && content.charAt(ndx) != ',') {
+			ndx++;
+		}
+		ndx++;
+		while (ndx < length && content.charAt(ndx) <= ' ') {
+			ndx++;
+		}
+		if (startsWithIgnoreCase(content, ndx, "url")) {
+			int eq = ndx + 3;
+			while (eq < length && content.charAt(eq) <= ' ') {
+				eq++;
+			}
+			if (eq < length && content.charAt(eq) == '=') {
+				ndx = eq + 1;
+				while (ndx < length && content.charAt(ndx) <= ' ') {
+					ndx++;
+				}
+			}
+		}
+		if (ndx >= length) {
+			return;
+		}
+
+		int end = length;
+		final char quote = content.charAt(ndx);
+		if (quote == '\'' || quote == '"') {
+			ndx++;
+			for (int i = ndx; i < length; i++) {
+				if (content.charAt(i) == quote) {
+					end = i;
+					break;
+				}
+			}
+		}
+		link(content, ndx, end);
+	}
+
+	/**
+	 * Extracts URLs from the list of image candidates.
+	 */
+	protected void srcset(final CharSequence srcset) {
+		if (srcset == null) {
+			return;
+		}
+		final int length = srcset.length();
+		int ndx = 0;
+
+		while (ndx < length) {
+			while (ndx < length && (srcset.charAt(ndx) <= ' ' || srcset.charAt(ndx) == ',')) {
+				ndx++;
+			}
+			final int start = ndx;
+			while (ndx < length && srcset.charAt(ndx) > ' ') {
+				ndx++;
+			}
+			int end = ndx;
+			while (end > start && srcset.charAt(end - 1) == ',') {
+				end--;
+			}
+			if (end > start) {
+				link(srcset, start, end);
+			}
+			if (end == ndx) {
+				// skip the descriptors
+				while (ndx < length && srcset.charAt(ndx) != ',') {
+					ndx++;
+				}
+			}
+		}
+	}
+
+	protected void link(final CharSequence url) {
+		if (url != null) {
+			link(url, 0, url.length());
+		}
+	}
+
+	/**
+	 * Resolves the link, checks the scheme and passes the new link to the consumer.
+	 */
+	protected void link(final CharSequence input, final int from, final int to) {
+		if (isBudgetReached()) {
+			return;
+		}
+
+		final StringBuilder url = resolver.resolve(input, from, to);
+
+		if (!startsWithIgnoreCase(url, 0, "http:") && !startsWithIgnoreCase(url, 0, "https:")) {
+			return;
+		}
+		if (removeFragment) {
+			final int hashNdx = url.indexOf("#");
+			if (hashNdx != -1) {
+				url.setLength(hashNdx);
+			}
+		}
+
+		if (!hashes.add(Hashing.fnv(url))) {
+			return;
+		}
+
+		linksCount++;
+		consumer.accept(url.toString());
+	}
+
+	private static boolean startsWithIgnoreCase(final CharSequence value, final int from, final String lowercasePrefix) {
+		if (value.length() - from < lowercasePrefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < lowercasePrefix.length(); i++) {
+			if (Character.toLowerCase(value.charAt(from + i)) != lowercasePrefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean is(final CharSequence name, final String lowercaseName) {
+		return CharSequenceUtil.equalsToLowercase(name, lowercaseName);
+	}
+}
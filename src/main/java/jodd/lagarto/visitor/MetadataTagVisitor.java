@@ -0,0 +1,364 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.util.CharSequenceUtil;
+import jodd.util.CharUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects page metadata from the document head: title, meta tags
+ * (including OpenGraph and Twitter properties), canonical link, charset
+ * and JSON-LD scripts. The head is done on {@code </head>}, or on the
+ * first element or text that belongs to the body. Use {@link #parse(LagartoParser)}
+ * to stop the parsing at that point, so the body is not parsed at all.
+ */
+public class MetadataTagVisitor extends EmptyTagVisitor {
+
+	private static final String[] HEAD_TAGS = {
+		"base", "basefont", "bgsound", "head", "html", "link", "meta", "noscript", "script",
+		"style", "template", "title"
+	};
+
+	private static final String[] RAW_TEXT_TAGS = {"noscript", "style", "template"};
+
+	protected Metadata metadata = new Metadata();
+	protected boolean done;
+	protected int titleDepth;
+	protected int rawTextDepth;
+	protected StringBuilder title = new StringBuilder();
+
+	/**
+	 * Returns collected metadata.
+	 */
+	public Metadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Returns {@code true} when the end of the head is reached.
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Parses the input until the end of the head and returns collected metadata.
+	 */
+	public Metadata parse(final LagartoParser parser) {
+		parser.parseStart(this);
+
+		while (!done && parser.parseNext()) {
+		}
+		return metadata;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		metadata = new Metadata();
+		done = false;
+		titleDepth = 0;
+		rawTextDepth = 0;
+		title.setLength(0);
+	}
+
+	@Override
+	public void end() {
+		finish();
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		if (done) {
+			return;
+		}
+
+		final TagType type = tag.getType();
+
+		if (!isOneOf(tag, HEAD_TAGS)) {
+			if (rawTextDepth == 0) {
+				finish();
+			}
+			return;
+		}
+
+		if (type == TagType.END) {
+			if (is(tag, "head")) {
+				finish();
+			}
+			else if (is(tag, "title")) {
+				titleDepth = 0;
+			}
+			else if (isOneOf(tag, RAW_TEXT_TAGS) && rawTextDepth > 0) {
+				rawTextDepth--;
+			}
+			return;
+		}
+
+		if (is(tag, "meta")) {
+			meta(tag);
+		}
+		else if (is(tag, "link")) {
+			link(tag);
+		}
+		else if (type == TagType.START) {
+			if (is(tag, "title")) {
+				titleDepth = 1;
+			}
+			else if (isOneOf(tag, RAW_TEXT_TAGS)) {
+				rawTextDepth++;
+			}
+		}
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		if (done) {
+			return;
+		}
+		final CharSequence type = tag.getAttributeValue("type");
+
+		if (type != null && CharSequenceUtil.equalsIgnoreCase(type.toString().trim(), "application/ld+json")) {
+			metadata.jsonLd.add(body.toString().trim());
+		}
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (done) {
+			return;
+		}
+		if (titleDepth != 0) {
+			title.append(text);
+			return;
+		}
+		if (rawTextDepth != 0) {
+			return;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			if (!CharUtil.isWhitespace(text.charAt(i))) {
+				// text belongs to the body
+				finish();
+				return;
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- head
+
+	/**
+	 * Marks the end of the head.
+	 */
+	protected void finish() {
+		if (done) {
+			return;
+		}
+		done = true;
+		if (title.length() != 0) {
+			metadata.title = normalize(title);
+		}
+	}
+
+	protected void meta(final Tag tag) {
+		final CharSequence charset = tag.getAttributeValue("charset");
+		if (charset != null) {
+			metadata.charset = charset.toString().trim();
+			return;
+		}
+
+		final CharSequence content = tag.getAttributeValue("content");
+		if (content == null) {
+			return;
+		}
+
+		final CharSequence httpEquiv = tag.getAttributeValue("http-equiv");
+		if (httpEquiv != null) {
+			if (metadata.charset == null && CharSequenceUtil.equalsIgnoreCase(httpEquiv, "content-type")) {
+				metadata.charset = charsetOf(content.toString());
+			}
+			return;
+		}
+
+		CharSequence key = tag.getAttributeValue("property");
+		if (key == null) {
+			key = tag.getAttributeValue("name");
+		}
+		if (key == null) {
+			key = tag.getAttributeValue("itemprop");
+		}
+		if (key == null) {
+			return;
+		}
+
+		metadata.properties.putIfAbsent(key.toString().trim().toLowerCase(), content.toString().trim());
+	}
+
+	protected void link(final Tag tag) {
+		final CharSequence rel = tag.getAttributeValue("rel");
+		final CharSequence href = tag.getAttributeValue("href");
+
+		if (rel != null && href != null && metadata.canonical == null
+			&& CharSequenceUtil.equalsIgnoreCase(rel.toString().trim(), "canonical")) {
+			metadata.canonical = href.toString().trim();
+		}
+	}
+
+	private static String charsetOf(final String contentType) {
+		final int ndx = contentType.toLowerCase().indexOf("charset=");
+		if (ndx == -1) {
+			return null;
+		}
+		int end = contentType.indexOf(';', ndx);
+		if (end == -1) {
+			end = contentType.length();
+		}
+		return contentType.substring(ndx + 8, end).trim();
+	}
+
+	private static String normalize(final CharSequence text) {
+		final StringBuilder sb = new StringBuilder(text.length());
+		boolean space = true;
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (CharUtil.isWhitespace(c)) {
+				if (!space) {
+					sb.append(' ');
+					space = true;
+				}
+				continue;
+			}
+			sb.append(c);
+			space = false;
+		}
+		if (space && sb.length() != 0) {
+			sb.setLength(sb.length() - 1);
+		}
+		return sb.toString();
+	}
+
+	private static boolean is(final Tag tag, final String lowercaseName) {
+		return CharSequenceUtil.equalsToLowercase(tag.getName(), lowercaseName);
+	}
+
+	private static boolean isOneOf(final Tag tag, final String[] lowercaseNames) {
+		final CharSequence name = tag.getName();
+		for (final String lowercaseName : lowercaseNames) {
+			if (CharSequenceUtil.equalsToLowercase(name, lowercaseName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- metadata
+
+	/**
+	 * Page metadata.
+	 */
+	public static class Metadata {
+		protected String title;
+		protected String charset;
+		protected String canonical;
+		protected final Map<String, String> properties = new LinkedHashMap<>();
+		protected final List<String> jsonLd = new ArrayList<>(1);
+
+		/**
+		 * Returns the title or {@code null} if not present.
+		 */
+		public String getTitle() {
+			return title;
+		}
+
+		/**
+		 * Returns the description from meta tags.
+		 */
+		public String getDescription() {
+			return properties.get("description");
+		}
+
+		/**
+		 * Returns the charset, defined either with the {@code charset}
+		 * or {@code http-equiv} meta tag.
+		 */
+		public String getCharset() {
+			return charset;
+		}
+
+		/**
+		 * Returns the canonical link.
+		 */
+		public String getCanonical() {
+			return canonical;
+		}
+
+		/**
+		 * Returns the content of the meta tag, by its (lowercased) name or property,
+		 * for example {@code keywords} or {@code og:image}. First meta tag wins.
+		 */
+		public String getProperty(final String name) {
+			return properties.get(name);
+		}
+
+		/**
+		 * Returns OpenGraph property, for example {@code title} for {@code og:title}.
+		 */
+		public String getOpenGraph(final String name) {
+			return properties.get("og:" + name);
+		}
+
+		/**
+		 * Returns Twitter card property, for example {@code card} for {@code twitter:card}.
+		 */
+		public String getTwitter(final String name) {
+			return properties.get("twitter:" + name);
+		}
+
+		/**
+		 * Returns all meta properties.
+		 */
+		public Map<String, String> getProperties() {
+			return Collections.unmodifiableMap(properties);
+		}
+
+		/**
+		 * Returns the content of all JSON-LD scripts.
+		 */
+		public List<String> getJsonLd() {
+			return Collections.unmodifiableList(jsonLd);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.Doctype;
+import jodd.lagarto.LagartoException;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Tag writer that copies the input of all tokens left untouched by the
+ * adapter chain, and re-serializes only the modified ones. Tags are copied
+ * when they are not {@link Tag#isModified() modified}; text, comments,
+ * conditional comments, CDATA, scripts, DOCTYPE and XML declarations are copied when the visitor receives the very
+ * same value the parser emitted. Unmodified markup is therefore preserved
+ * as it is in the input, including quotes, letter case and character references.
+ * <p>
+ * Writer must be created for the same parser that emits the content:
+ * <pre>{@code
+ * LagartoParser parser = new LagartoParser(html);
+ * PassthroughTagWriter writer = new PassthroughTagWriter(parser, out);
+ * parser.parse(new UrlRewriterTagAdapter(writer, rewriter));
+ * }</pre>
+ */
+public class PassthroughTagWriter extends TagWriter {
+
+	protected final LagartoParser parser;
+
+	public PassthroughTagWriter(final LagartoParser parser, final Appendable appendable) {
+		super(appendable);
+		this.parser = parser;
+	}
+
+	public PassthroughTagWriter(final LagartoParser parser) {
+		super();
+		this.parser = parser;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void tag(final Tag tag) {
+		if (tag.isModified() || tag != parser.getTokenValue()) {
+			super.tag(tag);
+			return;
+		}
+		final int tagStart = tag.getTagPosition();
+		writeInput(tagStart, tagStart + tag.getTagLength());
+		isRawTag = tag.isRawTag();
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		if (tag.isModified() || body != parser.getTokenValue()) {
+			super.script(tag, body);
+			return;
+		}
+		writeToken();
+	}
+
+	@Override
+	public void comment(final CharSequence comment) {
+		if (comment != parser.getTokenValue()) {
+			super.comment(comment);
+			return;
+		}
+		writeToken();
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (text != parser.getTokenValue()) {
+			super.text(text);
+			return;
+		}
+		writeToken();
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		if (cdata != parser.getTokenValue()) {
+			super.cdata(cdata);
+			return;
+		}
+		writeToken();
+	}
+
+	@Override
+	public void xml(final CharSequence version, final CharSequence encoding, final CharSequence standalone) {
+		if (version == null || version != parser.getTokenValue()) {
+			super.xml(version, encoding, standalone);
+			return;
+		}
+		writeToken();
+	}
+
+	@Override
+	public void condComment(final CharSequence expression, final boolean isStartingTag, final boolean isHidden, final boolean isHiddenEndTag) {
+		if (expression != parser.getTokenValue()) {
+			super.condComment(expression, isStartingTag, isHidden, isHiddenEndTag);
+			return;
+		}
+		writeToken();
+	}
+
+	@Override
+	public void doctype(final Doctype doctype) {
+		if (doctype != parser.getTokenValue()) {
+			super.doctype(doctype);
+			return;
+		}
+		writeToken();
+	}
+
+	// ---------------------------------------------------------------- input
+
+	/**
+	 * Copies the input of the last emitted token.
+	 */
+	protected void writeToken() {
+		writeInput(parser.getTokenStart(), parser.getTokenEnd());
+	}
+
+	/**
+	 * Copies the input range to the output. When parser works on
+	 * a {@code char[]}, the range is appended as a bulk array copy.
+	 */
+	protected void writeInput(final int from, final int to) {
+		if (from >= to) {
+			return;
+		}
+		final CharSequence input = parser.getInput().subSequence(from, to);
+
+		try {
+			if (input instanceof CharBuffer && ((CharBuffer) input).hasArray()) {
+				final CharBuffer buffer = (CharBuffer) input;
+				final int offset = buffer.arrayOffset() + buffer.position();
+
+				if (appendable instanceof StringBuilder) {
+					((StringBuilder) appendable).append(buffer.array(), offset, buffer.remaining());
+					return;
+				}
+				if (appendable instanceof Writer) {
+					((Writer) appendable).write(buffer.array(), offset, buffer.remaining());
+					return;
+				}
+			}
+			appendable.append(input);
+		} catch (final IOException ioex) {
+			throw new LagartoException(ioex);
+		}
+	}
+
+}
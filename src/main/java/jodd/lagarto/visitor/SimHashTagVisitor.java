@@ -0,0 +1,347 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.lagarto.select.OpenElement;
+import jodd.lagarto.select.OpenElementStack;
+import jodd.lagarto.select.StreamSelector;
+import jodd.util.CharSequenceUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes near-duplicate fingerprints of the visible text while parsing:
+ * 64-bit SimHash and, optionally, MinHash signature over shingles of
+ * consecutive words. Words are sequences of letters and digits, compared
+ * ignoring the case; tags always separate words. Content of {@code script},
+ * {@code style}, {@code noscript} and {@code template} is skipped, as well as
+ * content of elements matched by the {@link #exclude(String) excluded selectors}.
+ * <p>
+ * Words are hashed char by char and shingles with the rolling hash over the
+ * last words, so no strings are created. Use {@link jodd.lagarto.TagVisitors}
+ * to compute the fingerprint in the same pass with other visitors.
+ */
+public class SimHashTagVisitor extends EmptyTagVisitor {
+
+	private static final String[] SKIP_TAGS = {"script", "style", "noscript", "template"};
+
+	private static final long SHINGLE_PRIME = 0x9E3779B97F4A7C15L;
+
+	protected final int shingleSize;
+	protected final long shinglePower;
+	protected final List<StreamSelector> excludes = new ArrayList<>();
+	protected final OpenElementStack stack = new OpenElementStack();
+	protected final OpenElementStack.Handler elementHandler = new ExcludeHandler();
+
+	protected long[] minHash = new long[0];
+	protected long[] minHashSeeds = new long[0];
+
+	protected final long[] words;
+	protected final int[] bits = new int[64];
+	protected int wordsCount;
+	protected int shinglesCount;
+	protected long shingle;
+	protected long word;
+	protected boolean inWord;
+	protected int skipDepth;
+	protected int excludedDepth;
+	protected long simHash;
+
+	/**
+	 * Creates visitor with shingles of 3 words.
+	 */
+	public SimHashTagVisitor() {
+		this(3);
+	}
+
+	/**
+	 * Creates visitor with shingles of given number of words.
+	 */
+	public SimHashTagVisitor(final int shingleSize) {
+		if (shingleSize < 1) {
+			throw new IllegalArgumentException("Invalid shingle size: " + shingleSize);
+		}
+		this.shingleSize = shingleSize;
+		this.words = new long[shingleSize];
+
+		long power = 1;
+		for (int i = 1; i < shingleSize; i++) {
+			power *= SHINGLE_PRIME;
+		}
+		this.shinglePower = power;
+	}
+
+	/**
+	 * Excludes the content of elements that match the CSS selector query,
+	 * like {@code nav, footer}.
+	 */
+	public SimHashTagVisitor exclude(final String query) {
+		excludes.add(new StreamSelector(query));
+		return this;
+	}
+
+	/**
+	 * Enables computing of MinHash signature with given number of hash functions.
+	 */
+	public SimHashTagVisitor setMinHashSize(final int size) {
+		minHash = new long[size];
+		minHashSeeds = new long[size];
+
+		long seed = 0;
+		for (int i = 0; i < size; i++) {
+			seed += SHINGLE_PRIME;
+			minHashSeeds[i] = Hashing.mix(seed);
+		}
+		return this;
+	}
+
+	// ---------------------------------------------------------------- result
+
+	/**
+	 * Returns the SimHash, available after the parsing.
+	 */
+	public long getSimHash() {
+		return simHash;
+	}
+
+	/**
+	 * Returns the MinHash signature, available after the parsing.
+	 */
+	public long[] getMinHash() {
+		return minHash.clone();
+	}
+
+	/**
+	 * Returns the number of hashed shingles.
+	 */
+	public int getShinglesCount() {
+		return shinglesCount;
+	}
+
+	/**
+	 * Returns the number of different bits of two SimHash values.
+	 * Near-duplicates usually differ in at most 3 bits.
+	 */
+	public static int hammingDistance(final long simHash1, final long simHash2) {
+		return Long.bitCount(simHash1 ^ simHash2);
+	}
+
+	/**
+	 * Estimates Jaccard similarity of shingle sets from their MinHash signatures.
+	 */
+	public static double similarity(final long[] minHash1, final long[] minHash2) {
+		if (minHash1.length != minHash2.length) {
+			throw new IllegalArgumentException("Signatures of different size");
+		}
+		if (minHash1.length == 0) {
+			return 0;
+		}
+		int same = 0;
+		for (int i = 0; i < minHash1.length; i++) {
+			if (minHash1[i] == minHash2[i]) {
+				same++;
+			}
+		}
+		return (double) same / minHash1.length;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		stack.reset();
+		Arrays.fill(bits, 0);
+		Arrays.fill(minHash, Long.MAX_VALUE);
+		wordsCount = 0;
+		shinglesCount = 0;
+		shingle = 0;
+		inWord = false;
+		skipDepth = 0;
+		excludedDepth = 0;
+		simHash = 0;
+	}
+
+	@Override
+	public void end() {
+		endWord();
+
+		// text shorter than a shingle is hashed as a single shingle
+		if (shinglesCount == 0 && wordsCount != 0) {
+			addShingle(shingle);
+		}
+
+		long hash = 0;
+		for (int i = 0; i < 64; i++) {
+			if (bits[i] > 0) {
+				hash |= 1L << i;
+			}
+		}
+		simHash = hash;
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		endWord();
+
+		if (!excludes.isEmpty()) {
+			stack.tag(tag, elementHandler);
+		}
+
+		if (isSkipTag(tag)) {
+			final TagType type = tag.getType();
+			if (type == TagType.START) {
+				skipDepth++;
+			}
+			else if (type == TagType.END && skipDepth > 0) {
+				skipDepth--;
+			}
+		}
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		endWord();
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (skipDepth != 0 || excludedDepth != 0) {
+			return;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+
+			if (Character.isLetterOrDigit(c)) {
+				if (!inWord) {
+					inWord = true;
+					word = Hashing.FNV_OFFSET;
+				}
+				word ^= Character.toLowerCase(c);
+				word *= Hashing.FNV_PRIME;
+			}
+			else {
+				endWord();
+			}
+		}
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		endWord();
+		text(cdata);
+		endWord();
+	}
+
+	// ---------------------------------------------------------------- hashing
+
+	/**
+	 * Ends current word and rolls the shingle hash.
+	 */
+	protected void endWord() {
+		if (!inWord) {
+			return;
+		}
+		inWord = false;
+
+		final int ndx = wordsCount % shingleSize;
+
+		if (wordsCount >= shingleSize) {
+			shingle -= words[ndx] * shinglePower;
+		}
+		shingle = shingle * SHINGLE_PRIME + word;
+		words[ndx] = word;
+		wordsCount++;
+
+		if (wordsCount >= shingleSize) {
+			addShingle(shingle);
+		}
+	}
+
+	/**
+	 * Adds shingle hash to the SimHash bit counters and to the MinHash signature.
+	 */
+	protected void addShingle(final long shingleHash) {
+		shinglesCount++;
+
+		final long hash = Hashing.mix(shingleHash);
+		for (int i = 0; i < 64; i++) {
+			if ((hash & (1L << i)) != 0) {
+				bits[i]++;
+			}
+			else {
+				bits[i]--;
+			}
+		}
+
+		for (int i = 0; i < minHash.length; i++) {
+			final long value = Hashing.mix(shingleHash ^ minHashSeeds[i]);
+			if (value < minHash[i]) {
+				minHash[i] = value;
+			}
+		}
+	}
+
+	private static boolean isSkipTag(final Tag tag) {
+		final CharSequence name = tag.getName();
+		for (final String skipTag : SKIP_TAGS) {
+			if (CharSequenceUtil.equalsToLowercase(name, skipTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tracks the outermost open element matched by the excluded selectors.
+	 */
+	protected class ExcludeHandler implements OpenElementStack.Handler {
+		@Override
+		public void elementStart(final OpenElement element, final Tag tag) {
+			if (excludedDepth != 0) {
+				return;
+			}
+			for (final StreamSelector exclude : excludes) {
+				if (exclude.matches(element)) {
+					excludedDepth = element.getDepth();
+					return;
+				}
+			}
+		}
+
+		@Override
+		public void elementEnd(final OpenElement element, final Tag endTag) {
+			if (element.getDepth() == excludedDepth) {
+				excludedDepth = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,218 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.Tag;
+import jodd.lagarto.select.OpenElement;
+import jodd.lagarto.select.OpenElementStack;
+import jodd.util.CharUtil;
+
+import java.util.Arrays;
+
+/**
+ * Computes the structural signature of the document, used for clustering
+ * pages by their template. Each element contributes a shingle of its tag path:
+ * the element and its closest ancestors, like {@code div.main>ul>li}, where
+ * each step is the tag name and the set of class names. Shingle hashes are
+ * counted in a fixed-size sketch (weighted by frequency), which is compared
+ * using {@link #similarity(int[], int[])}.
+ * <p>
+ * The visitor keeps only the hash of each open element, so no path strings are created.
+ */
+public class StructureFingerprintTagVisitor extends EmptyTagVisitor {
+
+	private static final long PATH_PRIME = 0x9E3779B97F4A7C15L;
+
+	protected final int pathLength;
+	protected final int[] sketch;
+	protected final OpenElementStack stack = new OpenElementStack();
+	protected final OpenElementStack.Handler elementHandler = new PathHandler();
+
+	protected boolean includeClasses = true;
+	protected long[] elementHashes = new long[32];
+	protected int elementsCount;
+
+	/**
+	 * Creates visitor with paths of 4 elements and the sketch of size 128.
+	 */
+	public StructureFingerprintTagVisitor() {
+		this(4, 128);
+	}
+
+	/**
+	 * Creates visitor with given length of path shingles and the size of the sketch.
+	 */
+	public StructureFingerprintTagVisitor(final int pathLength, final int sketchSize) {
+		if (pathLength < 1 || sketchSize < 1) {
+			throw new IllegalArgumentException("Invalid path length or sketch size");
+		}
+		this.pathLength = pathLength;
+		this.sketch = new int[sketchSize];
+	}
+
+	/**
+	 * Defines if class names are part of the path, enabled by default.
+	 */
+	public StructureFingerprintTagVisitor setIncludeClasses(final boolean includeClasses) {
+		this.includeClasses = includeClasses;
+		return this;
+	}
+
+	// ---------------------------------------------------------------- result
+
+	/**
+	 * Returns the sketch, available after the parsing.
+	 */
+	public int[] getSketch() {
+		return sketch.clone();
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int getElementsCount() {
+		return elementsCount;
+	}
+
+	/**
+	 * Returns cosine similarity of two sketches, between 0 and 1.
+	 */
+	public static double similarity(final int[] sketch1, final int[] sketch2) {
+		if (sketch1.length != sketch2.length) {
+			throw new IllegalArgumentException("Sketches of different size");
+		}
+		double dot = 0;
+		double norm1 = 0;
+		double norm2 = 0;
+		for (int i = 0; i < sketch1.length; i++) {
+			dot += (double) sketch1[i] * sketch2[i];
+			norm1 += (double) sketch1[i] * sketch1[i];
+			norm2 += (double) sketch2[i] * sketch2[i];
+		}
+		if (norm1 == 0 || norm2 == 0) {
+			return norm1 == norm2 ? 1 : 0;
+		}
+		return dot / Math.sqrt(norm1 * norm2);
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		stack.reset();
+		Arrays.fill(sketch, 0);
+		elementsCount = 0;
+	}
+
+	@Override
+	public void end() {
+		stack.end(elementHandler);
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		stack.tag(tag, elementHandler);
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		final OpenElement element = stack.push(tag);
+		elementHandler.elementStart(element, tag);
+		elementHandler.elementEnd(element, null);
+		stack.pop();
+	}
+
+	// ---------------------------------------------------------------- hashing
+
+	/**
+	 * Hashes tag name and class names. Class names are combined
+	 * so their order does not matter.
+	 */
+	protected long elementHash(final Tag tag) {
+		long hash = Hashing.fnvLowercase(tag.getName(), 0, tag.getName().length());
+
+		if (!includeClasses) {
+			return hash;
+		}
+		final CharSequence classNames = tag.getAttributeValue("class");
+		if (classNames == null) {
+			return hash;
+		}
+
+		long classes = 0;
+		final int length = classNames.length();
+		int ndx = 0;
+		while (ndx < length) {
+			while (ndx < length && CharUtil.isWhitespace(classNames.charAt(ndx))) {
+				ndx++;
+			}
+			final int start = ndx;
+			while (ndx < length && !CharUtil.isWhitespace(classNames.charAt(ndx))) {
+				ndx++;
+			}
+			if (ndx > start) {
+				classes ^= Hashing.mix(Hashing.fnvLowercase(classNames, start, ndx));
+			}
+		}
+		return hash * PATH_PRIME + classes;
+	}
+
+	/**
+	 * Adds path shingle of the element on given depth to the sketch.
+	 */
+	protected void addPath(final int depth) {
+		final int from = Math.max(1, depth - pathLength + 1);
+
+		long hash = 0;
+		for (int i = from; i <= depth; i++) {
+			hash = hash * PATH_PRIME + elementHashes[i];
+		}
+		hash = Hashing.mix(hash + depth - from);
+
+		sketch[(int) ((hash >>> 1) % sketch.length)]++;
+		elementsCount++;
+	}
+
+	/**
+	 * Stores hashes of the open elements and adds their paths to the sketch.
+	 */
+	protected class PathHandler implements OpenElementStack.Handler {
+		@Override
+		public void elementStart(final OpenElement element, final Tag tag) {
+			final int depth = element.getDepth();
+			if (depth >= elementHashes.length) {
+				elementHashes = Arrays.copyOf(elementHashes, depth << 1);
+			}
+			elementHashes[depth] = elementHash(tag);
+			addPath(depth);
+		}
+
+		@Override
+		public void elementEnd(final OpenElement element, final Tag endTag) {
+		}
+	}
+}
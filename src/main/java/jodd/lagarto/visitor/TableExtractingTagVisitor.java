@@ -0,0 +1,496 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.LagartoException;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.util.CharSequenceUtil;
+import jodd.util.CharUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams content of HTML tables as rows of cell texts, without building the DOM.
+ * Missing end tags of rows and cells are implied. Cells spanning over several
+ * columns or rows are repeated in all of them, so each row has all the columns.
+ * Nested tables are reported as separate tables and their text is not part
+ * of the outer cell, where they only separate the words. Only the current row of each open table is kept in the memory.
+ */
+public class TableExtractingTagVisitor extends EmptyTagVisitor {
+
+	/**
+	 * Listener of table rows.
+	 */
+	public interface Listener {
+
+		/**
+		 * Invoked when table is opened. Tables are indexed in the order of appearance.
+		 */
+		default void tableStart(final int tableIndex) {
+		}
+
+		/**
+		 * Invoked for each row. Row is a header if it is in the {@code thead}
+		 * or if all its cells are {@code th}. The list of cells is reused
+		 * and is valid only during the invocation.
+		 */
+		void row(int tableIndex, List<String> cells, boolean header);
+
+		/**
+		 * Invoked when table is closed.
+		 */
+		default void tableEnd(final int tableIndex) {
+		}
+	}
+
+	private static final int MAX_COLSPAN = 1000;
+	private static final int MAX_ROWSPAN = 65534;
+
+	private static final String[] SKIP_TAGS = {"script", "style", "template"};
+
+	protected final Listener listener;
+
+	protected Table[] tables = new Table[4];
+	protected int tablesDepth;
+	protected int tablesCount;
+	protected int skipDepth;
+
+	public TableExtractingTagVisitor(final Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates visitor that writes rows as CSV, tables are separated with an empty line.
+	 */
+	public static TableExtractingTagVisitor csv(final Appendable out) {
+		return new TableExtractingTagVisitor(new DelimitedWriter(out, ','));
+	}
+
+	/**
+	 * Creates visitor that writes rows as tab-separated values.
+	 */
+	public static TableExtractingTagVisitor tsv(final Appendable out) {
+		return new TableExtractingTagVisitor(new DelimitedWriter(out, '\t'));
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		tablesDepth = 0;
+		tablesCount = 0;
+		skipDepth = 0;
+	}
+
+	@Override
+	public void end() {
+		while (tablesDepth > 0) {
+			endTable();
+		}
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		final TagType type = tag.getType();
+		final CharSequence name = tag.getName();
+
+		if (isOneOf(name, SKIP_TAGS)) {
+			if (type == TagType.START) {
+				skipDepth++;
+			}
+			else if (type == TagType.END && skipDepth > 0) {
+				skipDepth--;
+			}
+			return;
+		}
+
+		if (is(name, "table")) {
+			if (type == TagType.START) {
+				startTable();
+			}
+			else if (type == TagType.END && tablesDepth > 0) {
+				endTable();
+			}
+			return;
+		}
+
+		if (tablesDepth == 0) {
+			return;
+		}
+
+		final Table table = tables[tablesDepth - 1];
+
+		if (is(name, "td") || is(name, "th")) {
+			if (type == TagType.END) {
+				table.endCell();
+				return;
+			}
+			table.startCell(is(name, "th"), span(tag, "colspan", MAX_COLSPAN), span(tag, "rowspan", MAX_ROWSPAN));
+			if (type == TagType.SELF_CLOSING) {
+				table.endCell();
+			}
+			return;
+		}
+
+		if (is(name, "tr")) {
+			if (type == TagType.START) {
+				table.startRow();
+			}
+			else {
+				table.endRow();
+			}
+			return;
+		}
+
+		if (is(name, "thead") || is(name, "tbody") || is(name, "tfoot")) {
+			table.endRow();
+			table.clearSpans();
+			table.headSection = type == TagType.START && is(name, "thead");
+			return;
+		}
+
+		if (table.cellStarted && (is(name, "br") || is(name, "p") || is(name, "div") || is(name, "li"))) {
+			table.separate();
+		}
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (tablesDepth == 0 || skipDepth != 0) {
+			return;
+		}
+		final Table table = tables[tablesDepth - 1];
+		if (table.cellStarted) {
+			table.append(text);
+		}
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		text(cdata);
+	}
+
+	// ---------------------------------------------------------------- tables
+
+	protected void startTable() {
+		if (tablesDepth > 0) {
+			tables[tablesDepth - 1].separate();
+		}
+		if (tablesDepth == tables.length) {
+			tables = Arrays.copyOf(tables, tablesDepth << 1);
+		}
+		Table table = tables[tablesDepth];
+		if (table == null) {
+			table = new Table();
+			tables[tablesDepth] = table;
+		}
+		table.reset(tablesCount++);
+		tablesDepth++;
+
+		listener.tableStart(table.index);
+	}
+
+	protected void endTable() {
+		final Table table = tables[--tablesDepth];
+		table.endRow();
+		listener.tableEnd(table.index);
+
+		if (tablesDepth > 0) {
+			tables[tablesDepth - 1].separate();
+		}
+	}
+
+	private static int span(final Tag tag, final String attributeName, final int max) {
+		final CharSequence value = tag.getAttributeValue(attributeName);
+		if (value == null) {
+			return 1;
+		}
+		int span = 0;
+		boolean digits = false;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits = true;
+				span = span * 10 + (c - '0');
+				if (span > max) {
+					return max;
+				}
+			}
+			else if (digits || !CharUtil.isWhitespace(c)) {
+				break;
+			}
+		}
+		if (!digits) {
+			return 1;
+		}
+		// rowspan 0 spans till the end of the row group
+		return span == 0 ? (max == MAX_ROWSPAN ? max : 1) : span;
+	}
+
+	private static boolean is(final CharSequence name, final String lowercaseName) {
+		return CharSequenceUtil.equalsToLowercase(name, lowercaseName);
+	}
+
+	private static boolean isOneOf(final CharSequence name, final String[] lowercaseNames) {
+		for (final String lowercaseName : lowercaseNames) {
+			if (CharSequenceUtil.equalsToLowercase(name, lowercaseName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * State of the open table: the current row and cells that span into the following rows.
+	 */
+	protected class Table {
+		protected int index;
+		protected final List<String> cells = new ArrayList<>();
+		protected final StringBuilder cell = new StringBuilder();
+		protected boolean rowStarted;
+		protected boolean cellStarted;
+		protected boolean headSection;
+		protected boolean cellHeader;
+		protected int cellsCount;
+		protected int headerCellsCount;
+		protected int cellColspan;
+		protected int cellRowspan;
+		protected boolean space;
+
+		// remaining rows and values of the cells spanning over rows, per column
+		protected int[] spans = new int[8];
+		protected String[] spanValues = new String[8];
+
+		protected void reset(final int index) {
+			this.index = index;
+			cells.clear();
+			cell.setLength(0);
+			rowStarted = false;
+			cellStarted = false;
+			headSection = false;
+			cellsCount = 0;
+			headerCellsCount = 0;
+			clearSpans();
+		}
+
+		protected void clearSpans() {
+			Arrays.fill(spans, 0);
+			Arrays.fill(spanValues, null);
+		}
+
+		protected void startRow() {
+			endRow();
+			rowStarted = true;
+		}
+
+		protected void startCell(final boolean header, final int colspan, final int rowspan) {
+			endCell();
+			rowStarted = true;
+			cellStarted = true;
+			cellHeader = header;
+			cellColspan = colspan;
+			cellRowspan = rowspan;
+			space = true;
+		}
+
+		protected void append(final CharSequence text) {
+			for (int i = 0; i < text.length(); i++) {
+				final char c = text.charAt(i);
+				if (CharUtil.isWhitespace(c)) {
+					space = true;
+					continue;
+				}
+				if (space && cell.length() != 0) {
+					cell.append(' ');
+				}
+				space = false;
+				cell.append(c);
+			}
+		}
+
+		protected void separate() {
+			space = true;
+		}
+
+		protected void endCell() {
+			if (!cellStarted) {
+				return;
+			}
+			cellStarted = false;
+
+			final String value = cell.toString();
+			cell.setLength(0);
+
+			cellsCount++;
+			if (cellHeader) {
+				headerCellsCount++;
+			}
+
+			for (int i = 0; i < cellColspan; i++) {
+				fillSpannedCells();
+
+				final int column = cells.size();
+				cells.add(value);
+
+				if (cellRowspan > 1) {
+					if (column >= spans.length) {
+						final int newLength = Math.max(column + 1, spans.length << 1);
+						spans = Arrays.copyOf(spans, newLength);
+						spanValues = Arrays.copyOf(spanValues, newLength);
+					}
+					spans[column] = cellRowspan - 1;
+					spanValues[column] = value;
+				}
+			}
+		}
+
+		/**
+		 * Adds values of the cells from the previous rows that span into the next columns.
+		 */
+		protected void fillSpannedCells() {
+			int column = cells.size();
+			while (column < spans.length && spans[column] > 0) {
+				cells.add(spanValues[column]);
+				spans[column]--;
+				column++;
+			}
+		}
+
+		protected void endRow() {
+			endCell();
+			if (!rowStarted) {
+				return;
+			}
+			rowStarted = false;
+
+			// remaining spanned cells, with empty cells in the gaps
+			int last = spans.length - 1;
+			while (last >= cells.size() && spans[last] == 0) {
+				last--;
+			}
+			for (int column = cells.size(); column <= last; column++) {
+				if (spans[column] > 0) {
+					cells.add(spanValues[column]);
+					spans[column]--;
+				}
+				else {
+					cells.add("");
+				}
+			}
+
+			final boolean header = headSection || (headerCellsCount != 0 && headerCellsCount == cellsCount);
+			cellsCount = 0;
+			headerCellsCount = 0;
+
+			listener.row(index, cells, header);
+
+			cells.clear();
+		}
+	}
+
+	/**
+	 * Writes rows as delimiter-separated values. Values with delimiters,
+	 * quotes or new lines are quoted, top-level tables are separated with an empty line.
+	 */
+	protected static class DelimitedWriter implements Listener {
+		protected final Appendable out;
+		protected final char delimiter;
+		protected boolean first = true;
+		protected int depth;
+
+		protected DelimitedWriter(final Appendable out, final char delimiter) {
+			this.out = out;
+			this.delimiter = delimiter;
+		}
+
+		@Override
+		public void tableStart(final int tableIndex) {
+			if (depth++ != 0) {
+				return;
+			}
+			if (first) {
+				first = false;
+				return;
+			}
+			try {
+				out.append('\n');
+			}
+			catch (final IOException ioex) {
+				throw new LagartoException(ioex);
+			}
+		}
+
+		@Override
+		public void tableEnd(final int tableIndex) {
+			depth--;
+		}
+
+		@Override
+		public void row(final int tableIndex, final List<String> cells, final boolean header) {
+			try {
+				for (int i = 0; i < cells.size(); i++) {
+					if (i != 0) {
+						out.append(delimiter);
+					}
+					writeValue(cells.get(i));
+				}
+				out.append('\n');
+			}
+			catch (final IOException ioex) {
+				throw new LagartoException(ioex);
+			}
+		}
+
+		protected void writeValue(final String value) throws IOException {
+			boolean quote = false;
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+					quote = true;
+					break;
+				}
+			}
+			if (!quote) {
+				out.append(value);
+				return;
+			}
+			out.append('"');
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				if (c == '"') {
+					out.append('"');
+				}
+				out.append(c);
+			}
+			out.append('"');
+		}
+	}
+}
@@ -66,7 +66,7 @@ public class TagWriter implements TagVisitor {
 	public void end() {
 	}
 
-	private boolean isRawTag;
+	protected boolean isRawTag;
 
 	@Override
 	public void tag(final Tag tag) {
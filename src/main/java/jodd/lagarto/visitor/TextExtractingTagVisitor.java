@@ -0,0 +1,440 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.LagartoException;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.util.CharSequenceUtil;
+import jodd.util.CharUtil;
+
+import java.io.IOException;
+
+/**
+ * Extracts readable plain text and the title from HTML, without building the DOM.
+ * Each block (paragraph, heading, list item, table cell...) is written
+ * as a single line with normalized whitespaces. Content of {@code script},
+ * {@code style}, {@code noscript} and {@code template} is skipped.
+ * <p>
+ * When boilerplate removal is enabled (default), blocks are scored as they
+ * stream. Blocks inside {@code nav}, {@code aside}, {@code footer} and page
+ * {@code header}, and blocks with high link density are dropped. Blocks with
+ * enough words are kept. Short blocks (like headings) are kept only when
+ * surrounded by content, which requires a lookahead of one block; therefore
+ * at most two blocks are buffered at any time.
+ */
+public class TextExtractingTagVisitor extends EmptyTagVisitor {
+
+	private static final String[] SKIP_TAGS = {"script", "style", "noscript", "template"};
+
+	private static final String[] BOILERPLATE_TAGS = {"nav", "aside", "footer", "menu"};
+
+	private static final String[] ARTICLE_TAGS = {"article", "main"};
+
+	private static final String[] HEADING_TAGS = {"h1", "h2", "h3", "h4", "h5", "h6"};
+
+	private static final String[] BLOCK_TAGS = {
+		"address", "article", "aside", "blockquote", "body", "caption", "dd", "details", "div", "dl", "dt",
+		"fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6",
+		"head", "header", "hr", "html", "li", "main", "menu", "nav", "ol", "option", "p", "pre",
+		"section", "summary", "table", "tbody", "td", "tfoot", "th", "thead", "title", "tr", "ul"
+	};
+
+	protected final Appendable out;
+
+	protected boolean removeBoilerplate = true;
+	protected int minWords = 10;
+	protected double maxLinkDensity = 0.33;
+
+	protected final StringBuilder title = new StringBuilder();
+
+	public TextExtractingTagVisitor(final Appendable out) {
+		this.out = out;
+	}
+
+	public TextExtractingTagVisitor() {
+		this(new StringBuilder());
+	}
+
+	// ---------------------------------------------------------------- config
+
+	/**
+	 * Enables scoring of blocks and removal of boilerplate, like navigation.
+	 * When disabled, text of all blocks is extracted.
+	 */
+	public TextExtractingTagVisitor setRemoveBoilerplate(final boolean removeBoilerplate) {
+		this.removeBoilerplate = removeBoilerplate;
+		return this;
+	}
+
+	/**
+	 * Defines minimal number of words of a block that is considered
+	 * as a content on its own.
+	 */
+	public TextExtractingTagVisitor setMinWords(final int minWords) {
+		this.minWords = minWords;
+		return this;
+	}
+
+	/**
+	 * Defines maximal ratio of the link text in the block that is
+	 * considered as a content.
+	 */
+	public TextExtractingTagVisitor setMaxLinkDensity(final double maxLinkDensity) {
+		this.maxLinkDensity = maxLinkDensity;
+		return this;
+	}
+
+	// ---------------------------------------------------------------- output
+
+	/**
+	 * Returns the output.
+	 */
+	public Appendable getOutput() {
+		return out;
+	}
+
+	/**
+	 * Returns normalized text of the document title.
+	 */
+	public String getTitle() {
+		return title.toString().trim();
+	}
+
+	/**
+	 * Returns extracted text.
+	 */
+	public String getText() {
+		return out.toString();
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	protected int skipDepth;
+	protected int titleDepth;
+	protected int preDepth;
+	protected int linkDepth;
+	protected int headingDepth;
+	protected int boilerplateDepth;
+	protected int articleDepth;
+	protected int pageHeaderDepth;
+	protected int blocksCount;
+	protected boolean prevContent;
+
+	protected Block block = new Block();
+	protected Block pending = new Block();
+
+	@Override
+	public void start() {
+		title.setLength(0);
+		skipDepth = 0;
+		titleDepth = 0;
+		preDepth = 0;
+		linkDepth = 0;
+		headingDepth = 0;
+		boilerplateDepth = 0;
+		articleDepth = 0;
+		pageHeaderDepth = 0;
+		blocksCount = 0;
+		prevContent = false;
+		block.reset();
+		pending.reset();
+	}
+
+	@Override
+	public void end() {
+		endBlock();
+		if (pending.pending) {
+			pending.reset();
+		}
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		final TagType type = tag.getType();
+
+		if (type == TagType.SELF_CLOSING) {
+			if (is(tag, "br")) {
+				block.lineBreak();
+			}
+			else if (isOneOf(tag, BLOCK_TAGS)) {
+				endBlock();
+			}
+			return;
+		}
+
+		final int delta = type == TagType.START ? 1 : -1;
+
+		if (isOneOf(tag, SKIP_TAGS)) {
+			skipDepth = depth(skipDepth, delta);
+			return;
+		}
+		if (skipDepth != 0) {
+			return;
+		}
+
+		if (isOneOf(tag, BLOCK_TAGS)) {
+			endBlock();
+
+			if (is(tag, "title")) {
+				titleDepth = depth(titleDepth, delta);
+			}
+			else if (is(tag, "pre")) {
+				preDepth = depth(preDepth, delta);
+			}
+			else if (isOneOf(tag, HEADING_TAGS)) {
+				headingDepth = depth(headingDepth, delta);
+			}
+			else if (isOneOf(tag, BOILERPLATE_TAGS)) {
+				boilerplateDepth = depth(boilerplateDepth, delta);
+			}
+			else if (isOneOf(tag, ARTICLE_TAGS)) {
+				articleDepth = depth(articleDepth, delta);
+			}
+			else if (is(tag, "header") && (articleDepth == 0 || pageHeaderDepth != 0)) {
+				pageHeaderDepth = depth(pageHeaderDepth, delta);
+			}
+			return;
+		}
+
+		if (is(tag, "br")) {
+			if (type == TagType.START) {
+				block.lineBreak();
+			}
+		}
+		else if (is(tag, "a")) {
+			linkDepth = depth(linkDepth, delta);
+		}
+		else if (is(tag, "img") || is(tag, "input")) {
+			block.separate();
+		}
+	}
+
+	@Override
+	public void text(final CharSequence text) {
+		if (skipDepth != 0) {
+			return;
+		}
+		if (titleDepth != 0) {
+			appendNormalized(title, text);
+			return;
+		}
+
+		block.append(text, preDepth != 0, linkDepth != 0);
+
+		if (headingDepth != 0) {
+			block.heading = true;
+		}
+		if (boilerplateDepth != 0 || pageHeaderDepth != 0) {
+			block.boilerplate = true;
+		}
+	}
+
+	@Override
+	public void cdata(final CharSequence cdata) {
+		text(cdata);
+	}
+
+	private static int depth(final int depth, final int delta) {
+		final int newDepth = depth + delta;
+		return newDepth < 0 ? 0 : newDepth;
+	}
+
+	private static void appendNormalized(final StringBuilder sb, final CharSequence text) {
+		boolean space = sb.length() == 0 || sb.charAt(sb.length() - 1) == ' ';
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (CharUtil.isWhitespace(c)) {
+				if (!space) {
+					sb.append(' ');
+					space = true;
+				}
+				continue;
+			}
+			sb.append(c);
+			space = false;
+		}
+	}
+
+	private static boolean is(final Tag tag, final String lowercaseName) {
+		return CharSequenceUtil.equalsToLowercase(tag.getName(), lowercaseName);
+	}
+
+	private static boolean isOneOf(final Tag tag, final String[] lowercaseNames) {
+		final CharSequence name = tag.getName();
+		for (final String lowercaseName : lowercaseNames) {
+			if (CharSequenceUtil.equalsToLowercase(name, lowercaseName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- blocks
+
+	/**
+	 * Ends current block and decides if it is a content.
+	 */
+	protected void endBlock() {
+		block.trim();
+
+		if (block.text.length() == 0) {
+			block.reset();
+			return;
+		}
+
+		if (!removeBoilerplate) {
+			write(block);
+			block.reset();
+			return;
+		}
+
+		final boolean boilerplate = block.boilerplate || block.linkDensity() > maxLinkDensity;
+		final boolean dense = !boilerplate && block.wordsCount >= minWords;
+
+		if (pending.pending) {
+			if (dense) {
+				write(pending);
+			}
+			pending.reset();
+		}
+
+		if (dense) {
+			write(block);
+			prevContent = true;
+			block.reset();
+		}
+		else if (boilerplate) {
+			prevContent = false;
+			block.reset();
+		}
+		else {
+			// short block, decided by the next one
+			block.pending = prevContent || block.heading;
+			prevContent = false;
+
+			final Block swap = pending;
+			pending = block;
+			block = swap;
+			block.reset();
+		}
+	}
+
+	/**
+	 * Writes block text to the output.
+	 */
+	protected void write(final Block block) {
+		try {
+			if (blocksCount++ != 0) {
+				out.append('\n');
+			}
+			out.append(block.text);
+		}
+		catch (final IOException ioex) {
+			throw new LagartoException(ioex);
+		}
+	}
+
+	/**
+	 * Text block with its statistics.
+	 */
+	protected static class Block {
+		protected final StringBuilder text = new StringBuilder();
+		protected int wordsCount;
+		protected int charsCount;
+		protected int linkCharsCount;
+		protected boolean heading;
+		protected boolean boilerplate;
+		protected boolean pending;
+		protected boolean space = true;
+
+		protected void reset() {
+			text.setLength(0);
+			wordsCount = 0;
+			charsCount = 0;
+			linkCharsCount = 0;
+			heading = false;
+			boilerplate = false;
+			pending = false;
+			space = true;
+		}
+
+		protected void append(final CharSequence value, final boolean preformatted, final boolean link) {
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+
+				if (CharUtil.isWhitespace(c)) {
+					if (preformatted) {
+						text.append(c);
+						space = true;
+					}
+					else if (!space) {
+						text.append(' ');
+						space = true;
+					}
+					continue;
+				}
+				if (space) {
+					wordsCount++;
+				}
+				text.append(c);
+				space = false;
+				charsCount++;
+				if (link) {
+					linkCharsCount++;
+				}
+			}
+		}
+
+		protected void separate() {
+			if (!space) {
+				text.append(' ');
+				space = true;
+			}
+		}
+
+		protected void lineBreak() {
+			trim();
+			if (text.length() != 0) {
+				text.append('\n');
+			}
+			space = true;
+		}
+
+		protected void trim() {
+			int length = text.length();
+			while (length > 0 && CharUtil.isWhitespace(text.charAt(length - 1))) {
+				length--;
+			}
+			text.setLength(length);
+		}
+
+		protected double linkDensity() {
+			return charsCount == 0 ? 0 : (double) linkCharsCount / charsCount;
+		}
+	}
+}
@@ -0,0 +1,279 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+/**
+ * Resolves relative URL references against the base URL, as defined
+ * by RFC 3986. The base is parsed once; references are given as regions
+ * of any {@code CharSequence} and resolved into the reusable
+ * {@code StringBuilder}, so resolving does not allocate.
+ * Resolver is not thread-safe.
+ */
+public class UrlResolver {
+
+	private String base;
+	private int schemeEnd;
+	private int authorityEnd;
+	private int pathEnd;
+	private int queryEnd;
+
+	private final StringBuilder out = new StringBuilder(128);
+	private char[] segments = new char[128];
+
+	public UrlResolver(final String base) {
+		setBase(base);
+	}
+
+	/**
+	 * Sets the absolute base URL.
+	 */
+	public void setBase(final String base) {
+		this.base = base;
+
+		final int length = base.length();
+		final int scheme = schemeLength(base, 0, length);
+		schemeEnd = scheme == -1 ? 0 : scheme + 1;
+
+		int ndx = schemeEnd;
+		if (base.startsWith("//", ndx)) {
+			ndx += 2;
+			while (ndx < length && "/?#".indexOf(base.charAt(ndx)) == -1) {
+				ndx++;
+			}
+		}
+		authorityEnd = ndx;
+
+		while (ndx < length && base.charAt(ndx) != '?' && base.charAt(ndx) != '#') {
+			ndx++;
+		}
+		pathEnd = ndx;
+
+		while (ndx < length && base.charAt(ndx) != '#') {
+			ndx++;
+		}
+		queryEnd = ndx;
+	}
+
+	/**
+	 * Returns the base URL.
+	 */
+	public String getBase() {
+		return base;
+	}
+
+	/**
+	 * Resolves the whole reference.
+	 * @see #resolve(CharSequence, int, int)
+	 */
+	public StringBuilder resolve(final CharSequence ref) {
+		return resolve(ref, 0, ref.length());
+	}
+
+	/**
+	 * Resolves reference given as a region of the input. Leading and trailing
+	 * whitespaces are ignored. Returns the reused builder with the
+	 * absolute URL, that is valid until the next invocation.
+	 */
+	public StringBuilder resolve(final CharSequence input, int from, int to) {
+		while (from < to && input.charAt(from) <= ' ') {
+			from++;
+		}
+		while (to > from && input.charAt(to - 1) <= ' ') {
+			to--;
+		}
+
+		out.setLength(0);
+
+		if (schemeLength(input, from, to) != -1) {
+			// absolute URL
+			final int start = from;
+			int ndx = from + schemeLength(input, from, to) + 1;
+			if (startsWith(input, ndx, to, "//")) {
+				ndx += 2;
+				while (ndx < to && "/?#".indexOf(input.charAt(ndx)) == -1) {
+					ndx++;
+				}
+			}
+			out.append(input, start, ndx);
+			appendPath(input, ndx, to);
+			return out;
+		}
+
+		if (startsWith(input, from, to, "//")) {
+			out.append(base, 0, schemeEnd);
+			int ndx = from + 2;
+			while (ndx < to && "/?#".indexOf(input.charAt(ndx)) == -1) {
+				ndx++;
+			}
+			out.append(input, from, ndx);
+			appendPath(input, ndx, to);
+			return out;
+		}
+
+		if (from == to) {
+			out.append(base, 0, queryEnd);
+			return out;
+		}
+
+		final char first = input.charAt(from);
+
+		if (first == '#') {
+			out.append(base, 0, queryEnd).append(input, from, to);
+			return out;
+		}
+		if (first == '?') {
+			out.append(base, 0, pathEnd).append(input, from, to);
+			return out;
+		}
+
+		out.append(base, 0, authorityEnd);
+
+		if (first == '/') {
+			appendPath(input, from, to);
+			return out;
+		}
+
+		// merge with the base path
+		final int mark = out.length();
+		int lastSlash = pathEnd - 1;
+		while (lastSlash >= authorityEnd && base.charAt(lastSlash) != '/') {
+			lastSlash--;
+		}
+		if (lastSlash < authorityEnd) {
+			out.append('/');
+		}
+		else {
+			out.append(base, authorityEnd, lastSlash + 1);
+		}
+		out.append(input, from, to);
+		removeDotSegments(mark);
+		return out;
+	}
+
+	/**
+	 * Appends path, query and fragment and removes dot segments from the path.
+	 */
+	private void appendPath(final CharSequence input, final int from, final int to) {
+		final int mark = out.length();
+		out.append(input, from, to);
+		removeDotSegments(mark);
+	}
+
+	/**
+	 * Removes {@code .} and {@code ..} segments from the path that
+	 * starts at given index of the output.
+	 */
+	private void removeDotSegments(final int pathStart) {
+		int pathStop = pathStart;
+		final int length = out.length();
+		while (pathStop < length && out.charAt(pathStop) != '?' && out.charAt(pathStop) != '#') {
+			pathStop++;
+		}
+
+		final int pathLength = pathStop - pathStart;
+		if (pathLength == 0 || out.indexOf(".", pathStart) == -1 || out.indexOf(".", pathStart) >= pathStop) {
+			return;
+		}
+		if (segments.length < pathLength) {
+			segments = new char[pathLength << 1];
+		}
+
+		final char[] dest = segments;
+		int destNdx = 0;
+		int ndx = pathStart;
+
+		while (ndx < pathStop) {
+			int segmentEnd = ndx + 1;
+			while (segmentEnd < pathStop && out.charAt(segmentEnd) != '/') {
+				segmentEnd++;
+			}
+			// segment is [ndx, segmentEnd), starting with '/' except for the relative path
+			final int nameStart = out.charAt(ndx) == '/' ? ndx + 1 : ndx;
+			final int nameLength = segmentEnd - nameStart;
+
+			if (nameLength == 1 && out.charAt(nameStart) == '.') {
+				if (segmentEnd == pathStop) {
+					dest[destNdx++] = '/';
+				}
+			}
+			else if (nameLength == 2 && out.charAt(nameStart) == '.' && out.charAt(nameStart + 1) == '.') {
+				while (destNdx > 0 && dest[--destNdx] != '/') {
+				}
+				if (segmentEnd == pathStop) {
+					dest[destNdx++] = '/';
+				}
+			}
+			else {
+				if (nameStart != ndx) {
+					dest[destNdx++] = '/';
+				}
+				for (int i = nameStart; i < segmentEnd; i++) {
+					dest[destNdx++] = out.charAt(i);
+				}
+			}
+			ndx = segmentEnd;
+		}
+
+		// copy the path back and move the query and fragment
+		int outNdx = pathStart;
+		for (int i = 0; i < destNdx; i++) {
+			out.setCharAt(outNdx++, dest[i]);
+		}
+		for (int i = pathStop; i < length; i++) {
+			out.setCharAt(outNdx++, out.charAt(i));
+		}
+		out.setLength(outNdx);
+	}
+
+	/**
+	 * Returns the length of the scheme or {@code -1} if input region does not start with the scheme.
+	 */
+	private static int schemeLength(final CharSequence input, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			final char c = input.charAt(i);
+			if (c == ':') {
+				return i == from ? -1 : i - from;
+			}
+			final boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+			if (!letter && (i == from || ((c < '0' || c > '9') && c != '+' && c != '-' && c != '.'))) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean startsWith(final CharSequence input, final int from, final int to, final String prefix) {
+		if (to - from < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (input.charAt(from + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,501 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.visitor;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagType;
+import jodd.lagarto.dom.HtmlImplicitClosingRules;
+import jodd.lagarto.dom.HtmlVoidRules;
+import jodd.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Validates HTML in one streaming pass and reports problems as
+ * {@link Diagnostic diagnostics} with the input offsets: tokenizer errors,
+ * unclosed elements, orphan end tags, misnested formatting elements,
+ * duplicate ids and invalid nesting of elements. End tags that may be
+ * omitted are not reported. Memory is bounded by the maximal depth of
+ * the open elements; ids are remembered by their 64-bit hashes.
+ */
+public class ValidatingTagVisitor extends EmptyTagVisitor {
+
+	/**
+	 * Kind of the problem.
+	 */
+	public enum Problem {
+		PARSE_ERROR,
+		UNCLOSED_ELEMENT,
+		ORPHAN_END_TAG,
+		MISNESTED_TAG,
+		DUPLICATE_ID,
+		INVALID_NESTING,
+		TOO_DEEP
+	}
+
+	/**
+	 * Single validation problem.
+	 */
+	public static class Diagnostic {
+		private final Problem problem;
+		private final String message;
+		private final int offset;
+
+		public Diagnostic(final Problem problem, final String message, final int offset) {
+			this.problem = problem;
+			this.message = message;
+			this.offset = offset;
+		}
+
+		/**
+		 * Returns the kind of the problem.
+		 */
+		public Problem getProblem() {
+			return problem;
+		}
+
+		/**
+		 * Returns the message.
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * Returns the offset in the input or {@code -1} if not known.
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		@Override
+		public String toString() {
+			return problem + ": " + message + " [@" + offset + ']';
+		}
+	}
+
+	private static final String[] FORMATTING_TAGS = {
+		"a", "b", "big", "code", "em", "font", "i", "nobr", "s", "small", "strike", "strong", "tt", "u"
+	};
+
+	private static final String[] PHRASING_TAGS = {
+		"abbr", "b", "bdi", "bdo", "cite", "code", "data", "dfn", "em", "i", "kbd", "label", "mark",
+		"q", "s", "samp", "small", "span", "strong", "sub", "sup", "time", "u", "var",
+		"h1", "h2", "h3", "h4", "h5", "h6", "p", "pre"
+	};
+
+	private static final String[] FLOW_TAGS = {
+		"address", "article", "aside", "blockquote", "details", "div", "dl", "fieldset", "figure",
+		"footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "main", "nav", "ol",
+		"p", "pre", "section", "table", "ul"
+	};
+
+	private static final String[] HEADING_TAGS = {"h1", "h2", "h3", "h4", "h5", "h6"};
+
+	private static final String[] INTERACTIVE_TAGS = {"a", "button", "input", "select", "textarea"};
+
+	private static final String[] INTERACTIVE_CONTAINERS = {"a", "button"};
+
+	private static final String[] FORM_TAGS = {"form"};
+
+	private static final String[] TABLE_SECTIONS = {"table", "thead", "tbody", "tfoot"};
+
+	private static final String[] OPTION_CONTAINERS = {"select", "optgroup", "datalist"};
+
+	protected final Consumer<Diagnostic> consumer;
+	protected final List<Diagnostic> diagnostics;
+	protected final HtmlVoidRules voidRules = new HtmlVoidRules();
+	protected final HtmlImplicitClosingRules closingRules = new HtmlImplicitClosingRules();
+	private final LongHashSet ids = new LongHashSet();
+
+	protected int maxDepth = 1024;
+	protected int maxDiagnostics = 1000;
+
+	protected String[] names = new String[32];
+	protected int[] offsets = new int[32];
+	protected int depth;
+	protected String overflowName;
+	protected int overflowDepth;
+	protected int[] overflowCounts = new int[32];
+	protected boolean tooDeepReported;
+	protected String[] misnested = new String[8];
+	protected int misnestedCount;
+	protected int problemsCount;
+
+	/**
+	 * Creates visitor that collects diagnostics.
+	 * @see #getDiagnostics()
+	 */
+	public ValidatingTagVisitor() {
+		this.diagnostics = new ArrayList<>();
+		this.consumer = diagnostics::add;
+	}
+
+	/**
+	 * Creates visitor that passes diagnostics to the consumer.
+	 */
+	public ValidatingTagVisitor(final Consumer<Diagnostic> consumer) {
+		this.diagnostics = null;
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Defines maximal depth of nested elements that are validated.
+	 */
+	public ValidatingTagVisitor setMaxDepth(final int maxDepth) {
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Defines maximal number of reported diagnostics.
+	 */
+	public ValidatingTagVisitor setMaxDiagnostics(final int maxDiagnostics) {
+		this.maxDiagnostics = maxDiagnostics;
+		return this;
+	}
+
+	/**
+	 * Returns collected diagnostics, or {@code null} if diagnostics are passed to the consumer.
+	 */
+	public List<Diagnostic> getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * Returns the total number of found problems, including the not reported ones.
+	 */
+	public int getProblemsCount() {
+		return problemsCount;
+	}
+
+	/**
+	 * Returns {@code true} if no problem was found.
+	 */
+	public boolean isValid() {
+		return problemsCount == 0;
+	}
+
+	// ---------------------------------------------------------------- visitor
+
+	@Override
+	public void start() {
+		endOverflow();
+		Arrays.fill(names, 0, depth, null);
+		depth = 0;
+		tooDeepReported = false;
+		misnestedCount = 0;
+		problemsCount = 0;
+		ids.clear();
+		if (diagnostics != null) {
+			diagnostics.clear();
+		}
+	}
+
+	@Override
+	public void end() {
+		while (depth > 0) {
+			final String name = names[depth - 1];
+			if (!closingRules.implicitlyCloseTagOnEOF(name)) {
+				report(Problem.UNCLOSED_ELEMENT, "Unclosed element: <" + name + '>', offsets[depth - 1]);
+			}
+			pop();
+		}
+	}
+
+	@Override
+	public void tag(final Tag tag) {
+		final String name = tag.getName().toString().toLowerCase();
+
+		if (tag.getType() == TagType.END) {
+			endTag(tag, name);
+			return;
+		}
+
+		checkId(tag);
+		startTag(tag, name, tag.getType() == TagType.START && !voidRules.isVoidTag(name));
+	}
+
+	@Override
+	public void script(final Tag tag, final CharSequence body) {
+		checkId(tag);
+		startTag(tag, "script", false);
+	}
+
+	/**
+	 * Reports tokenizer error. The offset is parsed from the message.
+	 */
+	@Override
+	public void error(final String message) {
+		int offset = -1;
+		String text = message;
+
+		final int ndx = message.lastIndexOf('@');
+		if (ndx != -1 && message.endsWith("]")) {
+			try {
+				offset = Integer.parseInt(message.substring(ndx + 1, message.length() - 1));
+				text = message.substring(0, message.lastIndexOf('[')).trim();
+			}
+			catch (final NumberFormatException ignore) {
+			}
+		}
+		report(Problem.PARSE_ERROR, text, offset);
+	}
+
+	// ---------------------------------------------------------------- tree
+
+	protected void startTag(final Tag tag, final String name, final boolean open) {
+		if (overflowName != null) {
+			if (overflowDepth != 1 || !closingRules.implicitlyCloseParentTagOnNewTag(overflowName, name)) {
+				if (open) {
+					countOverflowStart(name);
+				}
+				return;
+			}
+			// new tag implicitly closes the element that was too deep
+			endOverflow();
+		}
+
+		while (depth > 0 && closingRules.implicitlyCloseParentTagOnNewTag(names[depth - 1], name)) {
+			pop();
+		}
+
+		checkNesting(tag, name);
+
+		if (!open) {
+			return;
+		}
+		if (depth == maxDepth) {
+			if (!tooDeepReported) {
+				report(Problem.TOO_DEEP, "Elements nested too deep: <" + name + '>', tag.getTagPosition());
+				tooDeepReported = true;
+			}
+			overflowName = name;
+			overflowDepth = 1;
+			return;
+		}
+		if (depth == names.length) {
+			names = Arrays.copyOf(names, depth << 1);
+			offsets = Arrays.copyOf(offsets, depth << 1);
+			overflowCounts = Arrays.copyOf(overflowCounts, depth << 1);
+		}
+		names[depth] = name;
+		offsets[depth] = tag.getTagPosition();
+		depth++;
+	}
+
+	protected void endTag(final Tag tag, final String name) {
+		int ndx = indexOfOpen(name);
+
+		if (overflowName != null) {
+			if (name.equals(overflowName)) {
+				if (--overflowDepth == 0) {
+					endOverflow();
+				}
+				return;
+			}
+			if (ndx == -1) {
+				// closes an element inside the subtree that is too deep
+				return;
+			}
+			if (overflowCounts[ndx] != 0) {
+				overflowCounts[ndx]--;
+				return;
+			}
+			// end tag of an open element closes the subtree that is too deep
+			endOverflow();
+		}
+
+		if (ndx == -1) {
+			if (!removeMisnested(name)) {
+				report(Problem.ORPHAN_END_TAG, "Orphan end tag: </" + name + '>', tag.getTagPosition());
+			}
+			return;
+		}
+
+		while (depth - 1 > ndx) {
+			final String current = names[depth - 1];
+
+			if (!closingRules.implicitlyCloseParentTagOnTagEnd(current, name)
+				&& !closingRules.implicitlyCloseTagOnEOF(current)) {
+
+				if (StringUtil.equalsOne(current, FORMATTING_TAGS) != -1) {
+					report(Problem.MISNESTED_TAG,
+						"Misnested tag: </" + name + "> closes <" + current + '>', tag.getTagPosition());
+					addMisnested(current);
+				}
+				else {
+					report(Problem.UNCLOSED_ELEMENT,
+						"Unclosed element: <" + current + "> closed by </" + name + '>', offsets[depth - 1]);
+				}
+			}
+			pop();
+		}
+		pop();
+	}
+
+	/**
+	 * Checks the content model of the parent for the most common mistakes.
+	 */
+	protected void checkNesting(final Tag tag, final String name) {
+		final String parent = depth == 0 ? null : names[depth - 1];
+		String problem = null;
+
+		if (StringUtil.equalsOne(name, INTERACTIVE_TAGS) != -1 && hasAncestor(INTERACTIVE_CONTAINERS)) {
+			problem = "Interactive element inside interactive element";
+		}
+		else if (StringUtil.equalsOne(name, FLOW_TAGS) != -1 && parent != null
+			&& StringUtil.equalsOne(parent, PHRASING_TAGS) != -1) {
+			problem = "Block element inside <" + parent + '>';
+		}
+		else if (name.equals("form") && hasAncestor(FORM_TAGS)) {
+			problem = "Nested form";
+		}
+		else if (name.equals("li")) {
+			if (parent != null && !parent.equals("ul") && !parent.equals("ol") && !parent.equals("menu")) {
+				problem = "List item inside <" + parent + '>';
+			}
+		}
+		else if (name.equals("dt") || name.equals("dd")) {
+			if (parent != null && !parent.equals("dl") && !parent.equals("div")) {
+				problem = "Definition inside <" + parent + '>';
+			}
+		}
+		else if (name.equals("tr")) {
+			if (parent == null || StringUtil.equalsOne(parent, TABLE_SECTIONS) == -1) {
+				problem = "Table row outside of table";
+			}
+		}
+		else if (name.equals("td") || name.equals("th")) {
+			if (parent == null || !parent.equals("tr")) {
+				problem = "Table cell outside of table row";
+			}
+		}
+		else if (name.equals("option")) {
+			if (parent == null || StringUtil.equalsOne(parent, OPTION_CONTAINERS) == -1) {
+				problem = "Option outside of select";
+			}
+		}
+
+		if (problem == null && StringUtil.equalsOne(name, HEADING_TAGS) != -1 && parent != null
+			&& StringUtil.equalsOne(parent, HEADING_TAGS) != -1) {
+			problem = "Heading inside heading";
+		}
+
+		if (problem != null) {
+			report(Problem.INVALID_NESTING, problem + ": <" + name + '>', tag.getTagPosition());
+		}
+	}
+
+	private boolean hasAncestor(final String[] ancestorNames) {
+		for (int i = depth - 1; i >= 0; i--) {
+			if (StringUtil.equalsOne(names[i], ancestorNames) != -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected void checkId(final Tag tag) {
+		final CharSequence id = tag.getId();
+		if (id == null || id.length() == 0) {
+			return;
+		}
+		if (!ids.add(Hashing.fnv(id))) {
+			report(Problem.DUPLICATE_ID, "Duplicate id: " + id, tag.getTagPosition());
+		}
+	}
+
+	private void pop() {
+		names[--depth] = null;
+		tooDeepReported = false;
+	}
+
+	private int indexOfOpen(final String name) {
+		int ndx = depth - 1;
+		while (ndx >= 0 && !names[ndx].equals(name)) {
+			ndx--;
+		}
+		return ndx;
+	}
+
+	// ---------------------------------------------------------------- overflow
+
+	/**
+	 * Counts element opened inside the subtree that is too deep. Only the elements
+	 * named as the root of the subtree or as some open element are counted, so
+	 * their end tags are not matched with the wrong element.
+	 */
+	private void countOverflowStart(final String name) {
+		if (name.equals(overflowName)) {
+			overflowDepth++;
+			return;
+		}
+		final int ndx = indexOfOpen(name);
+		if (ndx != -1) {
+			overflowCounts[ndx]++;
+		}
+	}
+
+	private void endOverflow() {
+		overflowName = null;
+		overflowDepth = 0;
+		Arrays.fill(overflowCounts, 0, depth, 0);
+	}
+
+	private void addMisnested(final String name) {
+		if (misnestedCount == misnested.length) {
+			// keep only the recent ones
+			System.arraycopy(misnested, 1, misnested, 0, misnestedCount - 1);
+			misnestedCount--;
+		}
+		misnested[misnestedCount++] = name;
+	}
+
+	private boolean removeMisnested(final String name) {
+		for (int i = misnestedCount - 1; i >= 0; i--) {
+			if (misnested[i].equals(name)) {
+				System.arraycopy(misnested, i + 1, misnested, i, misnestedCount - i - 1);
+				misnested[--misnestedCount] = null;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reports the problem, until the limit of diagnostics is reached.
+	 */
+	protected void report(final Problem problem, final String message, final int offset) {
+		if (problemsCount++ < maxDiagnostics) {
+			consumer.accept(new Diagnostic(problem, message, offset));
+		}
+	}
+}
@@ -533,6 +533,35 @@ class JerryTest {
 		assertEquals(htmlOK, actualHtml(doc));
 	}
 
+	@Test
+	void testUnwrapSiblings() {
+		// shared parent is unwrapped once; it used to be unwrapped for each
+		// sibling, removing the section too: "<p>1</p><p>2</p>"
+		Jerry doc = Jerry.of("<section><div><p>1</p><p>2</p></div></section>");
+		doc.s("p").unwrap();
+		assertEquals("<section><p>1</p><p>2</p></section>", doc.html());
+
+		// unchanged: different parents, and nested matched elements
+		doc = Jerry.of("<div><p>1</p></div><div><span><p>2</p></span></div>");
+		doc.s("p").unwrap();
+		assertEquals("<p>1</p><div><p>2</p></div>", doc.html());
+
+		doc = Jerry.of("<div><span><b>x</b></span>y</div>");
+		doc.s("span, b").unwrap();
+		assertEquals("<b>x</b>y", doc.html());
+	}
+
+	@Test
+	void testAppendCopies() {
+		final Jerry doc = Jerry.of("<ul><li></li><li></li></ul>");
+		doc.s("li").append("<b class='x'>!</b>");
+		doc.s("li").first().find("b").attr("class", "y");
+
+		assertEquals("<ul><li><b class=\"y\">!</b></li><li><b class=\"x\">!</b></li></ul>", doc.html());
+		assertEquals(1, doc.s(".x").length());
+		assertEquals(doc.get(0), doc.s("b").get(1).getOwnerDocument());
+	}
+
 	@Test
 	void testIs() {
 		final String html = readFile("is.html");
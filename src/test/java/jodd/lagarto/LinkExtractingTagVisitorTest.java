@@ -0,0 +1,105 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.LinkExtractingTagVisitor;
+import jodd.lagarto.visitor.UrlResolver;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LinkExtractingTagVisitorTest {
+
+	@Test
+	void testUrlResolver() {
+		// RFC 3986, 5.4
+		final UrlResolver resolver = new UrlResolver("http://a/b/c/d;p?q");
+
+		assertEquals("g:h", resolver.resolve("g:h").toString());
+		assertEquals("http://a/b/c/g", resolver.resolve("g").toString());
+		assertEquals("http://a/b/c/g", resolver.resolve("./g").toString());
+		assertEquals("http://a/b/c/g/", resolver.resolve("g/").toString());
+		assertEquals("http://a/g", resolver.resolve("/g").toString());
+		assertEquals("http://g", resolver.resolve("//g").toString());
+		assertEquals("http://a/b/c/d;p?y", resolver.resolve("?y").toString());
+		assertEquals("http://a/b/c/g?y", resolver.resolve("g?y").toString());
+		assertEquals("http://a/b/c/d;p?q#s", resolver.resolve("#s").toString());
+		assertEquals("http://a/b/c/g?y#s", resolver.resolve("g?y#s").toString());
+		assertEquals("http://a/b/c/d;p?q", resolver.resolve("").toString());
+		assertEquals("http://a/b/c/", resolver.resolve(".").toString());
+		assertEquals("http://a/b/c/", resolver.resolve("./").toString());
+		assertEquals("http://a/b/", resolver.resolve("..").toString());
+		assertEquals("http://a/b/g", resolver.resolve("../g").toString());
+		assertEquals("http://a/", resolver.resolve("../..").toString());
+		assertEquals("http://a/g", resolver.resolve("../../g").toString());
+		assertEquals("http://a/g", resolver.resolve("../../../g").toString());
+		assertEquals("http://a/g", resolver.resolve("/./g").toString());
+		assertEquals("http://a/b/c/g.", resolver.resolve("g.").toString());
+		assertEquals("http://a/b/c/..g", resolver.resolve("..g").toString());
+		assertEquals("http://a/b/g", resolver.resolve("./../g").toString());
+		assertEquals("http://a/b/c/g/h", resolver.resolve("g/./h").toString());
+		assertEquals("http://a/b/c/h", resolver.resolve("g/../h").toString());
+		assertEquals("http://a/b/c/g?y/./x", resolver.resolve("g?y/./x").toString());
+
+		assertEquals("http://x.com", new UrlResolver("http://x.com").resolve("").toString());
+		assertEquals("http://x.com/a", new UrlResolver("http://x.com").resolve("a").toString());
+	}
+
+	@Test
+	void testExtractLinks() {
+		final String html =
+			"<html><head><base href='/root/'>" +
+			"<meta http-equiv='Refresh' content='5; URL=\"next.html\"'>" +
+			"<link rel='stylesheet' href='s.css'></head><body>" +
+			"<a href='a.html#top'>a</a><a href=' a.html '>a</a><a href='javascript:x()'>js</a>" +
+			"<a href='mailto:a@b.c'>mail</a><area href='//cdn.x.com/m'>" +
+			"<img src='i.png' srcset='i1.png 1x, /img/i2.png 2x,i3.png'>" +
+			"<iframe src='https://y.com/frame'></iframe>" +
+			"</body></html>";
+
+		final LinkExtractingTagVisitor visitor = new LinkExtractingTagVisitor("http://x.com/dir/page.html");
+		new LagartoParser(html).parse(visitor);
+
+		assertEquals(Arrays.asList(
+			"http://x.com/root/next.html",
+			"http://x.com/root/s.css",
+			"http://x.com/root/a.html",
+			"http://cdn.x.com/m",
+			"http://x.com/root/i.png",
+			"http://x.com/root/i1.png",
+			"http://x.com/img/i2.png",
+			"http://x.com/root/i3.png",
+			"https://y.com/frame"
+		), visitor.getLinks());
+
+		final LinkExtractingTagVisitor limited = new LinkExtractingTagVisitor("http://x.com/").setMaxLinks(2);
+		limited.parse(new LagartoParser(html));
+
+		assertEquals(Arrays.asList("http://x.com/root/next.html", "http://x.com/root/s.css"), limited.getLinks());
+	}
+}
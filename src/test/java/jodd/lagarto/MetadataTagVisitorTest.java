@@ -0,0 +1,81 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.MetadataTagVisitor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetadataTagVisitorTest {
+
+	@Test
+	void testMetadata() {
+		final StringBuilder html = new StringBuilder();
+		html.append("<!DOCTYPE html><html><head>")
+			.append("<meta http-equiv='Content-Type' content='text/html; charset=ISO-8859-2'>")
+			.append("<title>\n  Page &amp; Title </title>")
+			.append("<meta name='Description' content=' About the page '>")
+			.append("<meta property='og:title' content='OG Title'><meta property='og:title' content='Second'>")
+			.append("<meta name='twitter:card' content='summary'>")
+			.append("<link rel='canonical' href='https://x.com/page'>")
+			.append("<style>title { color: red }</style>")
+			.append("<script type='application/ld+json'> {\"@type\": \"Article\"} </script>")
+			.append("<script>var a = '<title>';</script>")
+			.append("</head><body>");
+		for (int i = 0; i < 500; i++) {
+			html.append("<p>Paragraph <b>number</b> ").append(i).append("</p>\n");
+		}
+		html.append("<meta name='late' content='x'></body></html>");
+
+		final LagartoParser parser = new LagartoParser(html.toString());
+		final MetadataTagVisitor.Metadata metadata = new MetadataTagVisitor().parse(parser);
+
+		assertEquals("Page & Title", metadata.getTitle());
+		assertEquals("About the page", metadata.getDescription());
+		assertEquals("ISO-8859-2", metadata.getCharset());
+		assertEquals("https://x.com/page", metadata.getCanonical());
+		assertEquals("OG Title", metadata.getOpenGraph("title"));
+		assertEquals("summary", metadata.getTwitter("card"));
+		assertEquals("{\"@type\": \"Article\"}", metadata.getJsonLd().get(0));
+		assertNull(metadata.getProperty("late"));
+
+		assertTrue(parser.getTokenEnd() < html.length() / 10);
+	}
+
+	@Test
+	void testMetadataWithoutHead() {
+		final MetadataTagVisitor visitor = new MetadataTagVisitor();
+		new LagartoParser("<meta charset=utf-8><title>T</title>Hello<meta name=description content=x>").parse(visitor);
+
+		assertTrue(visitor.isDone());
+		assertEquals("T", visitor.getMetadata().getTitle());
+		assertEquals("utf-8", visitor.getMetadata().getCharset());
+		assertNull(visitor.getMetadata().getDescription());
+	}
+}
@@ -0,0 +1,93 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.adapter.StripHtmlTagAdapter;
+import jodd.lagarto.adapter.UrlRewriterTagAdapter;
+import jodd.lagarto.visitor.PassthroughTagWriter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PassthroughTagWriterTest {
+
+	@Test
+	void testUnmodifiedInput() {
+		final String html = "<!DOCTYPE html><HTML><a HREF='one.html' class=x>one &amp; two</a>" +
+				"<!-- comment --><br/><script type='text/javascript'>var s = '<b>';</script>" +
+				"<textarea>a &lt; b</textarea><style>p > b {}</style></HTML>";
+
+		final LagartoParser parser = new LagartoParser(html.toCharArray());
+		final StringBuilder out = new StringBuilder();
+		parser.parse(new PassthroughTagWriter(parser, out));
+
+		assertEquals(html, out.toString());
+	}
+
+	@Test
+	void testConditionalCommentsAndXml() {
+		final String html = "<?xml version='1.0'?><![CDATA[x<y]]>" +
+				"<!--[if IE 6]>one<![endif]--><![if !IE]>two<![endif]>";
+
+		final LagartoParser parser = new LagartoParser(html);
+		parser.configure(cfg -> cfg.setEnableConditionalComments(true).setParseXmlTags(true));
+
+		final StringBuilder out = new StringBuilder();
+		parser.parse(new PassthroughTagWriter(parser, out));
+
+		assertEquals(html, out.toString());
+	}
+
+	@Test
+	void testModifiedTags() {
+		final String html = "<div class='x'><A HREF='page.html'>1</A> &copy; <a href='http://jodd.org'>2</a></div>";
+
+		final LagartoParser parser = new LagartoParser(html);
+		final StringBuilder out = new StringBuilder();
+		parser.parse(new UrlRewriterTagAdapter(new PassthroughTagWriter(parser, out), url -> {
+			if (url.toString().startsWith("http")) {
+				return url;
+			}
+			return "/ctx/" + url;
+		}));
+
+		assertEquals(
+				"<div class='x'><A HREF=\"/ctx/page.html\">1</A> &copy; <a href='http://jodd.org'>2</a></div>",
+				out.toString());
+	}
+
+	@Test
+	void testModifiedText() {
+		final String html = "<p class='a'>one   two</p>\n\n<!-- c --><pre>  x  </pre>";
+
+		final LagartoParser parser = new LagartoParser(html);
+		final StringBuilder out = new StringBuilder();
+		parser.parse(new StripHtmlTagAdapter(new PassthroughTagWriter(parser, out)));
+
+		assertEquals("<p class='a'>one two</p><pre>  x  </pre>", out.toString());
+	}
+
+}
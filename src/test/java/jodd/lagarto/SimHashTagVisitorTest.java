@@ -0,0 +1,78 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.SimHashTagVisitor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimHashTagVisitorTest {
+
+	private static final String TEXT =
+		"The quick brown fox jumps over the lazy dog while the farmer watches from the old wooden porch. " +
+		"Later that evening the fox returns to the forest, where it shares the story with its many cubs, " +
+		"who listen carefully and dream about jumping over dogs of their own one day in the summer.";
+
+	private SimHashTagVisitor fingerprint(final String html) {
+		final SimHashTagVisitor visitor = new SimHashTagVisitor().exclude("nav, .ads").setMinHashSize(64);
+		new LagartoParser(html).parse(visitor);
+		return visitor;
+	}
+
+	@Test
+	void testNearDuplicates() {
+		final SimHashTagVisitor page1 = fingerprint(
+			"<nav><a>Home</a> <a>About</a></nav><p>" + TEXT + "</p><script>var a = 1;</script>");
+		final SimHashTagVisitor page2 = fingerprint(
+			"<nav><a>Start</a> <a>Contact us today</a></nav><div><P>" + TEXT.toUpperCase() + "</P></div>" +
+			"<div class='ads'>Buy now</div><style>p {}</style>");
+		final SimHashTagVisitor page3 = fingerprint(
+			"<p>" + TEXT.replace("summer", "winter") + "</p>");
+		final SimHashTagVisitor page4 = fingerprint(
+			"<p>Completely different content about parsing HTML documents in a streaming fashion, " +
+			"with selectors, visitors, adapters and many other useful things that are written in Java.</p>");
+
+		assertEquals(page1.getSimHash(), page2.getSimHash());
+		assertEquals(1.0, SimHashTagVisitor.similarity(page1.getMinHash(), page2.getMinHash()));
+
+		assertNotEquals(page1.getSimHash(), page3.getSimHash());
+		assertTrue(SimHashTagVisitor.hammingDistance(page1.getSimHash(), page3.getSimHash()) < 10);
+		assertTrue(SimHashTagVisitor.similarity(page1.getMinHash(), page3.getMinHash()) > 0.8);
+
+		assertTrue(SimHashTagVisitor.hammingDistance(page1.getSimHash(), page4.getSimHash()) > 15);
+		assertTrue(SimHashTagVisitor.similarity(page1.getMinHash(), page4.getMinHash()) < 0.2);
+	}
+
+	@Test
+	void testShortText() {
+		assertEquals(1, fingerprint("<b>Hello</b>").getShinglesCount());
+		assertEquals(0, fingerprint("<nav>Hello</nav>").getShinglesCount());
+		assertNotEquals(0, fingerprint("<b>Hello</b>").getSimHash());
+	}
+}
@@ -0,0 +1,72 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.StructureFingerprintTagVisitor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructureFingerprintTagVisitorTest {
+
+	private int[] sketch(final String html) {
+		final StructureFingerprintTagVisitor visitor = new StructureFingerprintTagVisitor();
+		new LagartoParser(html).parse(visitor);
+		return visitor.getSketch();
+	}
+
+	private String listPage(final int items, final String text) {
+		final StringBuilder html = new StringBuilder(
+			"<html><body><div class='header main'><h1>" + text + "</h1></div><div class='content'><ul>");
+		for (int i = 0; i < items; i++) {
+			html.append("<li><a href='#'>").append(text).append(i).append("</a><span class='price'>1</span>");
+		}
+		return html.append("</ul></div><div class='footer'><p>(c)</p></div></body></html>").toString();
+	}
+
+	@Test
+	void testSameTemplate() {
+		final int[] page1 = sketch(listPage(20, "Books"));
+		final int[] page2 = sketch(listPage(25, "Music"));
+		final int[] page3 = sketch(listPage(20, "Games").replace("header main", "main  header"));
+
+		assertArrayEquals(page1, page3);
+		assertTrue(StructureFingerprintTagVisitor.similarity(page1, page2) > 0.95);
+	}
+
+	@Test
+	void testDifferentTemplate() {
+		final int[] list = sketch(listPage(20, "Books"));
+		final int[] article = sketch(
+			"<html><body><article class='post'><h1>Title</h1><p>One<p>Two<p>Three<p>Four" +
+			"<table><tr><td>a<td>b<tr><td>c<td>d</table></article></body></html>");
+
+		assertTrue(StructureFingerprintTagVisitor.similarity(list, article) < 0.5);
+		assertEquals(1.0, StructureFingerprintTagVisitor.similarity(article, article), 0.0001);
+	}
+}
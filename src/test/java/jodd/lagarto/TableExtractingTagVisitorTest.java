@@ -0,0 +1,94 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.TableExtractingTagVisitor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TableExtractingTagVisitorTest {
+
+	@Test
+	void testRowsAndHeaders() {
+		final List<String> rows = new ArrayList<>();
+
+		new LagartoParser(
+			"<table><caption>Report</caption>" +
+			"<thead><tr><td>Name<td>Value</thead>" +
+			"<tr><th>a<th>b" +
+			"<tr><td> x \n y <td>1<br>2" +
+			"<tr><td>z<td><table><tr><td>inner</table>after" +
+			"</table>").parse(new TableExtractingTagVisitor(
+				(tableIndex, cells, header) -> rows.add(tableIndex + (header ? "H" : " ") + cells)));
+
+		assertEquals("[0H[Name, Value], 0H[a, b], 0 [x y, 1 2], 1 [inner], 0 [z, after]]", rows.toString());
+	}
+
+	@Test
+	void testSpans() {
+		final StringBuilder csv = new StringBuilder();
+
+		new LagartoParser(
+			"<table>" +
+			"<tr><td rowspan=2>a</td><td colspan=2>b</td></tr>" +
+			"<tr><td>c</td><td rowspan=\"3\">d</td></tr>" +
+			"<tr><td>e</td><td>f</td></tr>" +
+			"<tr><td colspan=2>\"g\", h</td></tr>" +
+			"</table>" +
+			"<table><tr><td>1</td></tr></table>").parse(TableExtractingTagVisitor.csv(csv));
+
+		assertEquals(
+			"a,b,b\n" +
+			"a,c,d\n" +
+			"e,f,d\n" +
+			"\"\"\"g\"\", h\",\"\"\"g\"\", h\",d\n" +
+			"\n" +
+			"1\n",
+			csv.toString());
+	}
+
+	@Test
+	void testNestedTables() {
+		final StringBuilder csv = new StringBuilder();
+
+		new LagartoParser(
+			"<table><tr><td>a</td></tr>" +
+			"<tr><td>before<table><tr><td>inner</td></tr></table>after</td></tr></table>" +
+			"<table><tr><td>b</td></tr></table>").parse(TableExtractingTagVisitor.csv(csv));
+
+		assertEquals(
+			"a\n" +
+			"inner\n" +
+			"before after\n" +
+			"\n" +
+			"b\n",
+			csv.toString());
+	}
+}
@@ -0,0 +1,70 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.TextExtractingTagVisitor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextExtractingTagVisitorTest {
+
+	private static final String HTML =
+		"<html><head><title> The\n  Title </title><style>p {}</style></head><body>" +
+		"<header><a href='/'>Home</a> <a href='/news'>News</a></header>" +
+		"<nav><ul><li><a href='/a'>First link</a></li><li><a href='/b'>Second link</a></li></ul></nav>" +
+		"<article><h1>Heading</h1>" +
+		"<p>This is   the first paragraph of the article,\n with enough words to be content.</p>" +
+		"<p>Short one.</p>" +
+		"<p>Second paragraph with <a href='/x'>a link</a> and enough other words to count.</p>" +
+		"<script>var x = 1;</script><noscript>Enable scripts</noscript>" +
+		"<div>Read more: <a href='/1'>one</a>, <a href='/2'>two</a>, <a href='/3'>three</a></div>" +
+		"</article>" +
+		"<footer>Copyright 2020 by nobody, all rights reserved, no matter how many words there are.</footer>" +
+		"</body></html>";
+
+	@Test
+	void testExtractContent() {
+		final TextExtractingTagVisitor visitor = new TextExtractingTagVisitor();
+		new LagartoParser(HTML).parse(visitor);
+
+		assertEquals("The Title", visitor.getTitle());
+		assertEquals(
+			"Heading\n" +
+			"This is the first paragraph of the article, with enough words to be content.\n" +
+			"Short one.\n" +
+			"Second paragraph with a link and enough other words to count.",
+			visitor.getText());
+	}
+
+	@Test
+	void testExtractAllText() {
+		final TextExtractingTagVisitor visitor = new TextExtractingTagVisitor().setRemoveBoilerplate(false);
+		new LagartoParser("<div>a<br>b  <b>c</b></div><pre>x\n  y</pre><template>t</template>").parse(visitor);
+
+		assertEquals("a\nb c\nx\n  y", visitor.getText());
+	}
+}
@@ -0,0 +1,116 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.TagWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenStreamTest {
+
+	private static final String HTML = "<?xml version='1.0'?><!DOCTYPE html><html><body id=main>" +
+		"<p class='a b' title=\"&lt;x&gt;\">Hello &amp; živjo 😀</p><!-- c --><br/>" +
+		"<script type='text/javascript'>var s = '<b>';</script><![CDATA[x<y]]>" +
+		"<!--[if IE 6]>ie<![endif]--><P class=a>text</P></body></html>";
+
+	private LagartoParser parser(final String html) {
+		return new LagartoParser(html).configure(cfg ->
+			cfg.setEnableConditionalComments(true).setParseXmlTags(true));
+	}
+
+	private String write(final LagartoParser parser) {
+		final TagWriter tagWriter = new TagWriter();
+		parser.parse(tagWriter);
+		return tagWriter.getOutput().toString();
+	}
+
+	@Test
+	void testRecordAndReplay() {
+		final String expected = write(parser(HTML));
+
+		final LagartoParser parser = parser(HTML);
+		final TokenStreamRecorder recorder = new TokenStreamRecorder(parser);
+		parser.parse(recorder);
+
+		final byte[] recording = recorder.toByteArray();
+		final TokenStreamReplayer replayer = new TokenStreamReplayer(recording, HTML);
+
+		for (int i = 0; i < 2; i++) {
+			final TagWriter tagWriter = new TagWriter();
+			replayer.replay(tagWriter);
+			assertEquals(expected, tagWriter.getOutput().toString());
+		}
+
+		assertThrows(LagartoException.class, () -> new TokenStreamReplayer(recording).replay(new EmptyTagVisitor()));
+	}
+
+	@Test
+	void testSelfContained() {
+		final String expected = write(parser(HTML));
+
+		final TokenStreamRecorder recorder = new TokenStreamRecorder();
+		parser(HTML).parse(recorder);
+
+		final TagWriter tagWriter = new TagWriter();
+		new TokenStreamReplayer(recorder.toByteArray()).replay(tagWriter);
+
+		assertEquals(expected, tagWriter.getOutput().toString());
+	}
+
+	@Test
+	void testMappedFile() throws IOException {
+		final StringBuilder html = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			html.append("<div class=item><a href='/page").append(i).append(".html'>Page ").append(i).append("</a></div>");
+		}
+		final char[] input = html.toString().toCharArray();
+		final String expected = write(new LagartoParser(input));
+
+		final LagartoParser parser = new LagartoParser(input);
+		final TokenStreamRecorder recorder = new TokenStreamRecorder(parser);
+		parser.parse(recorder);
+
+		assertTrue(recorder.size() < input.length);
+
+		final File file = File.createTempFile("lagarto", ".lts");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			recorder.writeTo(out);
+		}
+
+		final TagWriter tagWriter = new TagWriter();
+		TokenStreamReplayer.map(file, new String(input)).replay(tagWriter);
+
+		assertEquals(expected, tagWriter.getOutput().toString());
+	}
+}
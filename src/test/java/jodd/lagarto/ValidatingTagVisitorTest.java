@@ -0,0 +1,112 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto;
+
+import jodd.lagarto.visitor.ValidatingTagVisitor;
+import jodd.lagarto.visitor.ValidatingTagVisitor.Diagnostic;
+import jodd.lagarto.visitor.ValidatingTagVisitor.Problem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidatingTagVisitorTest {
+
+	private List<Diagnostic> validate(final String html) {
+		final ValidatingTagVisitor visitor = new ValidatingTagVisitor();
+		new LagartoParser(html).parse(visitor);
+		return visitor.getDiagnostics();
+	}
+
+	@Test
+	void testValid() {
+		final ValidatingTagVisitor visitor = new ValidatingTagVisitor();
+		new LagartoParser(
+			"<!DOCTYPE html><html><head><title>T</title><body>" +
+			"<ul><li>one<li>two</ul><p>text<div><img src=a.png><br></div>" +
+			"<table><tr><td>1<td>2</table><dl><dt>a<dd>b</dl>").parse(visitor);
+
+		assertTrue(visitor.isValid(), String.valueOf(visitor.getDiagnostics()));
+	}
+
+	@Test
+	void testTreeProblems() {
+		final String html = "<div id=a><b><i>x</b></i></span><span id=a><p>y</p></span><section>";
+		final List<Diagnostic> diagnostics = validate(html);
+
+		assertEquals(6, diagnostics.size(), diagnostics.toString());
+
+		assertEquals(Problem.MISNESTED_TAG, diagnostics.get(0).getProblem());
+		assertEquals(html.indexOf("</b>"), diagnostics.get(0).getOffset());
+		assertEquals(Problem.ORPHAN_END_TAG, diagnostics.get(1).getProblem());
+		assertEquals(html.indexOf("</span>"), diagnostics.get(1).getOffset());
+		assertEquals(Problem.DUPLICATE_ID, diagnostics.get(2).getProblem());
+		assertEquals(Problem.INVALID_NESTING, diagnostics.get(3).getProblem());
+		assertEquals("Block element inside <span>: <p>", diagnostics.get(3).getMessage());
+		assertEquals(Problem.UNCLOSED_ELEMENT, diagnostics.get(4).getProblem());
+		assertEquals(html.indexOf("<section>"), diagnostics.get(4).getOffset());
+		assertEquals(Problem.UNCLOSED_ELEMENT, diagnostics.get(5).getProblem());
+		assertEquals(0, diagnostics.get(5).getOffset());
+	}
+
+	@Test
+	void testNestingAndParseErrors() {
+		final List<Diagnostic> diagnostics = validate("<a href=x><button>b</button></a><td>c</td><x a=1 a=2></x>");
+
+		assertEquals(3, diagnostics.size(), diagnostics.toString());
+		assertEquals("Interactive element inside interactive element: <button>", diagnostics.get(0).getMessage());
+		assertEquals("Table cell outside of table row: <td>", diagnostics.get(1).getMessage());
+		assertEquals(Problem.PARSE_ERROR, diagnostics.get(2).getProblem());
+		assertTrue(diagnostics.get(2).getOffset() > 0);
+	}
+
+	@Test
+	void testTooDeep() {
+		final ValidatingTagVisitor visitor = new ValidatingTagVisitor().setMaxDepth(3);
+		new LagartoParser("<div><div><div><div><div></div></div></div></div></div>").parse(visitor);
+
+		assertEquals(1, visitor.getProblemsCount());
+		assertEquals(Problem.TOO_DEEP, visitor.getDiagnostics().get(0).getProblem());
+	}
+
+	@Test
+	void testTooDeepSubtree() {
+		ValidatingTagVisitor visitor = new ValidatingTagVisitor().setMaxDepth(2);
+		new LagartoParser("<div><ul><li>a<li>b</ul></div><p id=x></p><p id=x></p>").parse(visitor);
+
+		assertEquals(2, visitor.getProblemsCount(), visitor.getDiagnostics().toString());
+		assertEquals(Problem.TOO_DEEP, visitor.getDiagnostics().get(0).getProblem());
+		assertEquals(Problem.DUPLICATE_ID, visitor.getDiagnostics().get(1).getProblem());
+
+		visitor = new ValidatingTagVisitor().setMaxDepth(2);
+		new LagartoParser("<div><div><span>a<br></br>b<div><span>c</span></div></span></div></div>").parse(visitor);
+
+		assertEquals(1, visitor.getProblemsCount(), visitor.getDiagnostics().toString());
+		assertEquals(Problem.TOO_DEEP, visitor.getDiagnostics().get(0).getProblem());
+	}
+}
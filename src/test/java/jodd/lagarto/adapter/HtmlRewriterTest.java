@@ -0,0 +1,142 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.csselly.CSSellyException;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.visitor.PassthroughTagWriter;
+import jodd.lagarto.visitor.TagWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HtmlRewriterTest {
+
+	private String rewrite(final String html, final Consumer<HtmlRewriterTagAdapter> rules) {
+		final LagartoParser lagartoParser = new LagartoParser(html);
+		final StringBuilder out = new StringBuilder();
+		final HtmlRewriterTagAdapter rewriter = new HtmlRewriterTagAdapter(new PassthroughTagWriter(lagartoParser, out));
+		rules.accept(rewriter);
+		lagartoParser.parse(rewriter);
+		return out.toString();
+	}
+
+	@Test
+	void testAttributes() {
+		final String out = rewrite(
+			"<div id=main><a href='/x'>x</a><p><a class='ext  b' href=\"http://jodd.org\">j</a></p></div>",
+			r -> r
+				.on("div#main > a", e -> e.setAttribute("href", "/ctx" + e.getAttribute("href")))
+				.on("p a.ext", e -> e.removeAttribute("class").setAttribute("rel", "nofollow")));
+
+		assertEquals(
+			"<div id=main><a href=\"/ctx/x\">x</a><p><a href=\"http://jodd.org\" rel=\"nofollow\">j</a></p></div>", out);
+	}
+
+	@Test
+	void testContent() {
+		final String out = rewrite(
+			"<ul><li>1<li class=x>2<b>!</b></li><li>3</ul><img src=a.png><hr/>",
+			r -> r
+				.on("li.x", e -> e.before("<!--b-->").prepend("<i>").append("</i>").after("<!--a-->"))
+				.on("img", e -> e.after("<br>"))
+				.on("hr", e -> e.replace("<p>hr</p>")));
+
+		assertEquals(
+			"<ul><li>1<!--b--><li class=x><i>2<b>!</b></i></li><!--a--><li>3</ul><img src=a.png><br><p>hr</p>", out);
+	}
+
+	@Test
+	void testRemove() {
+		final String out = rewrite(
+			"<div><div class='ad'>buy <b>now</b><img src=x></div><span>text</span><script>alert(1)</script></div>",
+			r -> r
+				.on(".ad", RewritableElement::remove)
+				.on("span", RewritableElement::removeAndKeepContent)
+				.on("script", RewritableElement::remove));
+
+		assertEquals("<div>text</div>", out);
+	}
+
+	@Test
+	void testRemoveScriptAndKeepContent() {
+		final String out = rewrite(
+			"<div><script>if (a<b) go()</script><span>x</span></div>",
+			r -> r
+				.on("script", e -> e.removeAndKeepContent().prepend("<i>").append("</i>"))
+				.on("span", RewritableElement::removeAndKeepContent));
+
+		assertEquals("<div><i>if (a&lt;b) go()</i>x</div>", out);
+	}
+
+	@Test
+	void testRepeatedContent() {
+		final StringBuilder in = new StringBuilder();
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			in.append("<p>").append(i).append("</p>");
+			expected.append("<p><b>").append(i).append("</b></p><hr class=\"").append(i % 70).append("\">");
+		}
+
+		final String out = rewrite(in.toString(), r -> r
+			.on("p", e -> e.prepend("<b>").append("</b>").after("<hr class=\"" + e.getElement().getSiblingElementIndex() % 70 + "\">")));
+
+		assertEquals(expected.toString(), out);
+	}
+
+	@Test
+	void testText() {
+		final String out = rewrite(
+			"<h1>Hello <b>world</b></h1><p>One</p><p>Two &amp; <i>three</i></p>",
+			r -> r
+				.on("h1", e -> e.rewriteText(text -> text.toString().toUpperCase()))
+				.on("p", e -> e.setInnerText("<new>")));
+
+		assertEquals("<h1>HELLO <b>WORLD</b></h1><p>&lt;new&gt;</p><p>&lt;new&gt;</p>", out);
+	}
+
+	@Test
+	void testTagWriter() {
+		final LagartoParser lagartoParser = new LagartoParser("<P>a<P>b");
+		final StringBuilder out = new StringBuilder();
+		final HtmlRewriterTagAdapter rewriter = new HtmlRewriterTagAdapter(new TagWriter(out))
+			.on("p", e -> e.setAttribute("class", "c"));
+		rewriter.getOpenElementStack().setImpliedEndTags(true);
+
+		lagartoParser.parse(rewriter);
+
+		assertEquals("<P class=\"c\">a<P class=\"c\">b", out.toString());
+	}
+
+	@Test
+	void testUnsupportedSelector() {
+		assertThrows(CSSellyException.class, () -> new HtmlRewriterTagAdapter(null).on("a + b", e -> {}));
+		assertThrows(CSSellyException.class, () -> new HtmlRewriterTagAdapter(null).on("a:last-child", e -> {}));
+	}
+}
@@ -0,0 +1,103 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+import jodd.lagarto.TagAdapter;
+import jodd.lagarto.visitor.TagWriter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MinifyingTest {
+
+	private String minify(final String html) {
+		final StringBuilder out = new StringBuilder();
+		new LagartoParser(html).parse(new MinifyingTagAdapter(new TagWriter(out)));
+		return out.toString();
+	}
+
+	@Test
+	void testWhitespaces() {
+		assertEquals(
+			"<div id=a>Hello <b>big</b> world</div>",
+			minify("<div  id='a'>\n   Hello   <b>big</b>\n world  \n</div>\n"));
+
+		assertEquals(
+			"<pre>  a\n  b </pre> <textarea> x  y </textarea>",
+			minify("<pre>  a\n  b </pre>\n<textarea> x  y </textarea>"));
+
+		assertEquals(
+			"<style>a  { color: red }</style><span>a</span> <span>b</span>",
+			minify("<style>a  { color: red }</style>  <span>a</span>  <span>b</span>"));
+	}
+
+	@Test
+	void testComments() {
+		assertEquals(
+			"<p>ab</p><!--[if IE]><p>IE</p><![endif]-->",
+			minify("<p>a<!-- comment -->b</p><!--[if IE]><p>IE</p><![endif]-->"));
+	}
+
+	@Test
+	void testOptionalEndTags() {
+		assertEquals(
+			"<ul><li>a<li>b</ul><p>x<div>y</div><table><tr><td>1<td>2</table>",
+			minify("<ul><li>a</li><li>b</li></ul><p>x</p><div>y</div><table><tr><td>1</td><td>2</td></tr></table>"));
+
+		assertEquals(
+			"<a><p>x</p></a>",
+			minify("<a><p>x</p></a>"));
+
+		assertEquals(
+			"<html><head><title>T</title><body><p>x",
+			minify("<html><head><title>T</title></head><body><p>x</p></body></html>"));
+	}
+
+	@Test
+	void testAttributes() {
+		assertEquals(
+			"<input type=checkbox checked disabled value=\"a b\"><br><a href=\"/x/\">x</a><x-a id=1 />",
+			minify("<input type=\"checkbox\" checked=\"checked\" disabled=\"\" value=\"a b\"/><br/><a href=\"/x/\">x</a><x-a id=\"1\"/>"));
+	}
+
+	@Test
+	void testNormalizingAfterMinify() {
+		final StringBuilder out = new StringBuilder();
+		final TagAdapter normalizer = new TagAdapter(new TagWriter(out)) {
+			@Override
+			public void tag(final Tag tag) {
+				tag.setType(tag.getType());
+				tag.setAttribute("class", "n");
+				super.tag(tag);
+			}
+		};
+		new LagartoParser("<a><p>x</p></a>").parse(new MinifyingTagAdapter(normalizer));
+
+		assertEquals("<a class=n><p class=n>x</p></a>", out.toString());
+	}
+}
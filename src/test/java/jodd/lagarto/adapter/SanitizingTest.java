@@ -0,0 +1,105 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.visitor.TagWriter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SanitizingTest {
+
+	private static final SanitizingPolicy POLICY = SanitizingPolicy.basic().build();
+
+	private String sanitize(final String html) {
+		final StringBuilder out = new StringBuilder();
+		new LagartoParser(html).parse(new SanitizingTagAdapter(new TagWriter(out), POLICY));
+		return out.toString();
+	}
+
+	@Test
+	void testTagsAndAttributes() {
+		assertEquals(
+			"<P>Hello <b>world</b>!</p>",
+			sanitize("<div class=\"x\"><P onclick=\"x()\">Hello <b>world</b><script>alert(1)</script>!</p></div>"));
+
+		assertEquals(
+			"text",
+			sanitize("<style>p { color: red }</style><form><input name=\"a\">text</form><!-- c -->"));
+
+		assertEquals(
+			"&lt;b&gt;x&lt;/b&gt;",
+			sanitize("<noscript><b>x</b></noscript>"));
+	}
+
+	@Test
+	void testUrls() {
+		assertEquals(
+			"<a href=\"http://jodd.org\">a</a><a>b</a><a>c</a><a href=\"/x:y\">d</a>",
+			sanitize("<a href=\"http://jodd.org\">a</a><a href=\"javascript:alert(1)\">b</a>" +
+				"<a href=\"java&#9;script:x\">c</a><a href=\"/x:y\">d</a>"));
+
+		assertTrue(POLICY.isUrlAllowed(" MAILTO:a@b.c"));
+		assertTrue(POLICY.isUrlAllowed("page.html?a=b:c"));
+		assertFalse(POLICY.isUrlAllowed("data:text/html,x"));
+	}
+
+	@Test
+	void testBalancing() {
+		assertEquals(
+			"<ul><li><b><i>x</i></b></li></ul><p>y</p>",
+			sanitize("<ul><li><b><i>x</b></li></span></ul><p>y"));
+
+		final SanitizingPolicy shallow = SanitizingPolicy.basic().maxDepth(2).build();
+		final StringBuilder out = new StringBuilder();
+		new LagartoParser("<b><i><u>x</u></i></b>").parse(new SanitizingTagAdapter(new TagWriter(out), shallow));
+		assertEquals("<b><i>x</i></b>", out.toString());
+	}
+
+	@Test
+	void testTooDeepSameName() {
+		final SanitizingPolicy shallow = SanitizingPolicy.basic().maxDepth(2).build();
+		final StringBuilder out = new StringBuilder();
+		new LagartoParser("<p><b><b><b>x</b>y</b>z</b>w</p><p>v</p>")
+			.parse(new SanitizingTagAdapter(new TagWriter(out), shallow));
+
+		assertEquals("<p><b>xyz</b>w</p><p>v</p>", out.toString());
+	}
+
+	@Test
+	void testSelfClosing() {
+		assertEquals(
+			"<b></b>x<a href=\"http://jodd.org\"></a><br/>",
+			sanitize("<b/>x<a href=\"http://jodd.org\" onclick=\"y()\"/><br/>"));
+
+		assertEquals(
+			"<p>z</p>",
+			sanitize("<style/>p { color: red }</style><p>z</p>"));
+	}
+}
@@ -0,0 +1,97 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.adapter;
+
+import jodd.csselly.CSSelly;
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+import jodd.lagarto.select.OpenElement;
+import jodd.lagarto.visitor.TagWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SelectorTagAdapterTest {
+
+	private static final String HTML =
+		"<ul id=\"products\">" +
+		"<li><h2>One</h2><span class=\"price\">10</span></li>" +
+		"<li><h2>Two <b>2</b></h2><span class=\"price\">20</span><br></li>" +
+		"<li><h2>Three</h2></li>" +
+		"</ul>";
+
+	@Test
+	void testCallbacks() {
+		final List<String> events = new ArrayList<>();
+
+		final SelectorTagAdapter adapter = new SelectorTagAdapter(new EmptyTagVisitor())
+			.select("#products > li:first-child h2, li:nth-child(3) > h2", new SelectorTagAdapter.Listener() {
+				@Override
+				public void elementStart(final OpenElement element, final Tag tag) {
+					events.add("start " + element.getName() + ' ' + element.getParent().getSiblingElementIndex());
+				}
+				@Override
+				public void text(final OpenElement element, final CharSequence text) {
+					events.add("text " + text);
+				}
+				@Override
+				public void elementEnd(final OpenElement element) {
+					events.add("end " + element.getName());
+				}
+			});
+
+		new LagartoParser(HTML).parse(adapter);
+
+		assertEquals("[start h2 0, text One, end h2, start h2 2, text Three, end h2]", events.toString());
+	}
+
+	@Test
+	void testOuterHtml() {
+		final List<String> html = new ArrayList<>();
+		final SelectorTagAdapter.Listener listener = new SelectorTagAdapter.Listener() {
+			@Override
+			public void outerHtml(final OpenElement element, final CharSequence outerHtml) {
+				html.add(outerHtml.toString());
+			}
+		};
+
+		final StringBuilder out = new StringBuilder();
+		final SelectorTagAdapter adapter = new SelectorTagAdapter(new TagWriter(out), CSSelly.parse("li:nth-child(2)"), listener)
+			.select("li:nth-child(2) h2, .price", true, listener);
+
+		new LagartoParser(HTML).parse(adapter);
+
+		assertEquals(HTML, out.toString());
+		assertEquals(3, html.size());
+		assertEquals("<span class=\"price\">10</span>", html.get(0));
+		assertEquals("<h2>Two <b>2</b></h2>", html.get(1));
+		assertEquals("<span class=\"price\">20</span>", html.get(2));
+	}
+}
@@ -28,7 +28,11 @@ import jodd.lagarto.LagartoParser;
 import jodd.lagarto.visitor.TagWriter;
 import org.junit.jupiter.api.Test;
 
+import java.nio.CharBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class UrlRewriterTest {
 
@@ -53,4 +57,85 @@ class UrlRewriterTest {
 				"<a href=\"http://jodd.org\">1</a><a href=\"/ctx/page.html\">2</a>", out.toString());
 	}
 
+	@Test
+	void testUrlRewriterRules() {
+		final LagartoParser lagartoParser = new LagartoParser(
+				"<img src=\"a.png\" srcset=\"a-1x.png 1x, http://jodd.org/a,2x.png 2x,b.png\" data-src=\"c.png\">" +
+				"<div style=\"background: URL( 'd.png' ) no-repeat; color: red\">x</div>" +
+				"<style>p { background: url(e.png) } a { background: url(\"http://jodd.org/f.png\") }</style>" +
+				"<form action=\"send\"></form><a href=\"page.html\">a</a>");
+
+		final StringBuilder out = new StringBuilder();
+		final UrlRewriterTagAdapter urlRewriterTagAdapter = new UrlRewriterTagAdapter(new TagWriter(out), UrlRewriteRules.html(), url -> {
+			if (url.toString().startsWith("http")) {
+				return url;
+			}
+			return "/cdn/" + url;
+		});
+
+		lagartoParser.parse(urlRewriterTagAdapter);
+
+		assertEquals(
+				"<img src=\"/cdn/a.png\" srcset=\"/cdn/a-1x.png 1x, http://jodd.org/a,2x.png 2x,/cdn/b.png\" data-src=\"/cdn/c.png\">" +
+				"<div style=\"background: URL( '/cdn/d.png' ) no-repeat; color: red\">x</div>" +
+				"<style>p { background: url(/cdn/e.png) } a { background: url(\"http://jodd.org/f.png\") }</style>" +
+				"<form action=\"/cdn/send\"></form><a href=\"/cdn/page.html\">a</a>", out.toString());
+	}
+
+	@Test
+	void testUrlRewriteCache() {
+		final AtomicInteger calls = new AtomicInteger();
+		final UrlRewriteCache cache = new UrlRewriteCache(url -> {
+			calls.incrementAndGet();
+			return url.toString().startsWith("/") ? url : "/" + url;
+		}, 100);
+
+		final String html = "<img src=a.png srcset='a.png 1x, /b.png 2x'><img src=a.png><img srcset=a.png>";
+		final String expected = "<img src=\"/a.png\" srcset=\"/a.png 1x, /b.png 2x\"><img src=\"/a.png\"><img srcset=\"/a.png\">";
+
+		for (int i = 0; i < 3; i++) {
+			final StringBuilder out = new StringBuilder();
+			new LagartoParser(html).parse(new UrlRewriterTagAdapter(new TagWriter(out), UrlRewriteRules.html(), cache));
+			assertEquals(expected, out.toString());
+		}
+
+		assertEquals(2, calls.get());
+		assertEquals(2, cache.size());
+
+		final String url = "/b.png";
+		assertSame(url, cache.apply(url));
+	}
+
+	@Test
+	void testUrlRewriteCacheKeys() {
+		final AtomicInteger calls = new AtomicInteger();
+		final UrlRewriteCache cache = new UrlRewriteCache(url -> {
+			calls.incrementAndGet();
+			return "/" + url;
+		}, 100);
+
+		assertEquals("/c.png", cache.apply(CharBuffer.wrap("c.png")));
+		assertEquals("/c.png", cache.apply("c.png"));
+
+		final StringBuilder reused = new StringBuilder("c.png");
+		assertEquals("/c.png", cache.apply(reused));
+		reused.setLength(0);
+		reused.append("d.png");
+		assertEquals("/d.png", cache.apply(reused));
+		assertEquals("/c.png", cache.apply("c.png"));
+
+		assertEquals(2, calls.get());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void testNullMeansUnchanged() {
+		final String html = "<a href=\"x.html\">a</a><img srcset=\"x.png 1x, y.png 2x\" style=\"background: url(x.png)\">";
+		final StringBuilder out = new StringBuilder();
+		new LagartoParser(html).parse(new UrlRewriterTagAdapter(new TagWriter(out), UrlRewriteRules.html(),
+			url -> url.charAt(0) == 'x' ? null : "/" + url));
+
+		assertEquals("<a href=\"x.html\">a</a><img srcset=\"x.png 1x, /y.png 2x\" style=\"background: url(x.png)\">", out.toString());
+	}
+
 }
@@ -0,0 +1,116 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import jodd.io.FileUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactDocumentTest {
+
+	protected final String testDataRoot = this.getClass().getResource("data").getFile();
+
+	@Test
+	void testNavigation() {
+		final CompactDocument compact = CompactDocument.parse(
+			"<!DOCTYPE html><html><body><DIV id=\"main\" Class=\"a b\">Hello <b>world</b><!--c--></DIV><br></body></html>");
+
+		final CompactNode document = compact.getDocumentNode();
+		assertEquals(Node.NodeType.DOCUMENT, document.getNodeType());
+		assertEquals(Node.NodeType.DOCUMENT_TYPE, document.getFirstChild().getNodeType());
+
+		final CompactNode body = document.getFirstChildElement().getFirstChildElement();
+		assertEquals("body", body.getNodeName());
+		assertEquals(document.getFirstChildElement(), body.getParentNode());
+
+		final CompactNode div = body.getFirstChildElement();
+		assertEquals("div", div.getNodeName());
+		assertEquals("DIV", div.getNodeRawName());
+		assertEquals("main", div.getAttribute("ID"));
+		assertEquals("Class", div.getAttributeName(1));
+		assertTrue(div.hasAttribute("class"));
+		assertEquals(3, div.getChildNodesCount());
+		assertEquals("Hello world", div.getTextContent());
+		assertEquals("br", div.getNextSiblingElement().getNodeName());
+		assertNull(div.getNextSiblingElement().getNextSibling());
+		assertFalse(div.getNextSiblingElement().hasChildNodes());
+
+		assertEquals("<div id=\"main\" class=\"a b\">Hello <b>world</b><!--c--></div>", div.getHtml());
+	}
+
+	@Test
+	void testMaterialize() throws IOException {
+		final File[] files = new File(testDataRoot).listFiles((dir, name) -> name.endsWith(".html"));
+
+		for (final File file : files) {
+			final Document document = new LagartoDOMBuilder().parse(FileUtil.readString(file));
+			final CompactDocument compact = CompactDocument.of(document);
+			final Document materialized = compact.toDocument();
+
+			assertEquals(document.getHtml(), materialized.getHtml(), file.getName());
+			assertTrue(materialized.check());
+			assertEquals(
+				new NodeSelector(document).select("div p, a[href]").size(),
+				new NodeSelector(materialized).select("div p, a[href]").size());
+		}
+	}
+
+	@Test
+	void testDeeplyNested() {
+		final int depth = 100000;
+		final StringBuilder html = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			html.append("<div>");
+		}
+		html.append("x<b>y</b>");
+
+		final CompactDocument compact = CompactDocument.parse(html);
+		assertEquals(depth + 4, compact.getNodesCount());
+		assertEquals("xy", compact.getDocumentNode().getTextContent());
+
+		final CompactNode deepest = compact.getNode(depth);
+		assertEquals("div", deepest.getNodeName());
+		assertEquals("x", deepest.getFirstChild().getNodeValue());
+		assertEquals("b", deepest.getFirstChildElement().getNodeName());
+		assertEquals("div", deepest.getParentNode().getNodeName());
+
+		final Document document = compact.toDocument();
+		Node node = document;
+		for (int i = 0; i < depth; i++) {
+			assertEquals(1, node.getChildNodesCount());
+			node = node.getFirstChild();
+		}
+		assertEquals(2, node.getChildNodesCount());
+		assertEquals("y", node.getChild(1).getFirstChild().getNodeValue());
+	}
+}
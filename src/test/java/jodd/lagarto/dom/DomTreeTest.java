@@ -34,6 +34,7 @@ import java.io.IOException;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DomTreeTest {
@@ -365,4 +366,196 @@ class DomTreeTest {
 		assertTrue(one.hasAttribute("A1"));
 
 	}
+
+	@Test
+	void testManyAttributes() {
+		final StringBuilder html = new StringBuilder("<div");
+		for (int i = 0; i < 20; i++) {
+			html.append(" Data-").append(i).append("=\"v").append(i).append('"');
+		}
+		html.append(" data-5=\"ignored\"></div>");
+
+		final Document document = new LagartoDOMBuilder().parse(html.toString());
+		final Element div = (Element) document.getFirstChild();
+
+		assertEquals(20, div.getAttributesCount());
+		assertEquals("v13", div.getAttribute("data-13"));
+		assertEquals("Data-13", div.getAttribute(13).getRawName());
+		assertNull(div.getAttribute("data-20"));
+
+		assertTrue(div.removeAttribute("DATA-3"));
+		assertFalse(div.hasAttribute("data-3"));
+		assertEquals("v19", div.getAttribute("data-19"));
+
+		div.setAttribute("data-19", "x");
+		div.setAttribute("data-20", "y");
+		assertEquals(20, div.getAttributesCount());
+		assertEquals("x", div.getAttribute("data-19"));
+		assertEquals("y", div.getAttribute(19).getValue());
+	}
+
+	@Test
+	void testAttributeNames() {
+		final Document document = new LagartoDOMBuilder().parse("<p Class=a id=1></p><p CLASS=b ID=2></p><p Class=c></p>");
+		final Element p1 = (Element) document.getChild(0);
+		final Element p2 = (Element) document.getChild(1);
+		final Element p3 = (Element) document.getChild(2);
+
+		assertEquals("Class", p1.getAttribute(0).getRawName());
+		assertEquals("CLASS", p2.getAttribute(0).getRawName());
+		assertEquals("class", p2.getAttribute(0).getName());
+		assertSame(p1.getAttribute(0).getRawName(), p3.getAttribute(0).getRawName());
+		assertSame(p1.getAttribute(0).getName(), p3.getAttribute(0).getName());
+		assertSame(p1.getAttribute(1).getName(), p2.getAttribute(1).getName());
+
+		p3.setAttribute("ID", "3");
+		assertEquals("ID", p3.getAttribute(1).getRawName());
+		assertSame(p2.getAttribute(1).getRawName(), p3.getAttribute(1).getRawName());
+		assertEquals("3", p3.getAttribute("id"));
+	}
+
+	@Test
+	void testAttributeViews() {
+		final Document document = new LagartoDOMBuilder().parse("<p class=\"a  b\" id=x>");
+		final Element p = (Element) document.getFirstChild();
+
+		final Attribute id = p.getAttribute(1);
+		id.setValue("y");
+		assertEquals("y", p.getAttribute("id"));
+
+		final Attribute detached = id.clone();
+		detached.setValue("z");
+		assertEquals("y", p.getAttribute("id"));
+
+		assertTrue(p.isAttributeContaining("class", "b"));
+		assertFalse(p.isAttributeContaining("class", "a b"));
+		assertTrue(p.getAttribute(0).isContaining("a"));
+
+		final Element clone = p.clone();
+		clone.setAttribute("id", "w");
+		assertEquals("y", p.getAttribute("id"));
+		assertEquals("<p class=\"a  b\" id=\"w\"></p>", clone.getHtml());
+	}
+
+	@Test
+	void testBulkChildrenChanges() {
+		final Document document = new Document();
+		final Element tbody = new Element(document, "tbody");
+		document.addChild(tbody);
+
+		final Element[] rows = new Element[1000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = new Element(document, "tr");
+			tbody.addChild(rows[i]);
+			tbody.addChild(new Text(document, " "));
+		}
+
+		// remove every other row, in order
+		for (int i = 0; i < rows.length; i += 2) {
+			rows[i].detachFromParent();
+		}
+		assertEquals(1500, tbody.getChildNodesCount());
+		assertEquals(500, tbody.getChildElementsCount());
+
+		// move rows around
+		final Element first = new Element(document, "tr");
+		tbody.insertChild(first, 0);
+		tbody.insertBefore(rows[999], rows[1]);
+		tbody.insertAfter(rows[3], rows[999]);
+
+		assertTrue(tbody.check());
+		assertEquals(0, first.getSiblingIndex());
+		assertEquals(1, rows[999].getSiblingElementIndex());
+		assertEquals(rows[3], rows[999].getNextSiblingElement());
+		assertEquals(rows[1], rows[3].getNextSiblingName());
+		assertEquals(2, rows[3].getSiblingNameIndex());
+		assertEquals(501, tbody.getChildElementsCount("tr"));
+
+		final Element clone = tbody.clone();
+		assertTrue(clone.check());
+		assertEquals(501, clone.getChildElementsCount());
+		assertEquals(1, clone.getChildElement(1).getSiblingElementIndex());
+	}
+
+	@Test
+	void testDocumentOrder() {
+		final Document document = new LagartoDOMBuilder().parse("<div><p>1</p><p>2<b>3</b></p></div><i>4</i>");
+		final Element div = (Element) document.getFirstChild();
+		final Node p1 = div.getChild(0);
+		final Node p2 = div.getChild(1);
+		final Node b = p2.getChild(1);
+		final Node i = document.getChild(1);
+
+		assertTrue(document.contains(b));
+		assertTrue(div.contains(b));
+		assertTrue(b.contains(b));
+		assertFalse(p1.contains(b));
+		assertFalse(b.contains(p2));
+		assertFalse(div.contains(i));
+
+		assertTrue(p1.compareDocumentPosition(p2) < 0);
+		assertTrue(b.compareDocumentPosition(p2) > 0);
+		assertTrue(b.compareDocumentPosition(i) < 0);
+		assertEquals(0, b.compareDocumentPosition(b));
+
+		// ordinals are derived again after modification
+		p1.addChild(i);
+		assertTrue(p1.contains(i));
+		assertTrue(i.compareDocumentPosition(p2) < 0);
+
+		p2.detachFromParent();
+		assertFalse(document.contains(b));
+		assertTrue(p2.contains(b));
+		assertFalse(b.contains(div));
+
+		final Element clone = div.clone();
+		assertFalse(div.contains(clone));
+		assertTrue(clone.contains(clone.getFirstChild()));
+	}
+
+	@Test
+	void testCloneIsDetached() {
+		final Document document = new LagartoDOMBuilder().parse("<div><p>1<b>2</b></p></div>");
+		final Element p = (Element) document.getFirstChild().getFirstChild();
+
+		final Element clone = p.clone();
+		assertNull(clone.getParentNode());
+		assertSame(clone, clone.getFirstChild().getParentNode());
+		assertSame(clone, clone.getChild(1).getParentNode());
+		assertEquals(1, p.getParentNode().getChildNodesCount());
+
+		final Node text = p.getFirstChild().clone();
+		assertNull(text.getParentNode());
+	}
+
+	@Test
+	void testFragment() {
+		final Document document = new LagartoDOMBuilder().parse("<div></div>");
+		final Element div = (Element) document.getFirstChild();
+		final Fragment fragment = new Fragment(new LagartoDOMBuilder().parse("<p a='1' b='2'>text</p><br>"));
+
+		final Node[] first = fragment.cloneFor(div);
+		final Node[] second = fragment.cloneFor(div);
+		assertEquals(2, first.length);
+		assertNull(first[0].getParentNode());
+		assertEquals(document, first[0].getOwnerDocument());
+		assertEquals(document, first[0].getFirstChild().getOwnerDocument());
+
+		div.addChild(first);
+		first[0].setAttribute("a", "3");
+		first[0].removeAttribute("b");
+
+		assertEquals("1", second[0].getAttribute("a"));
+		assertEquals("2", second[0].getAttribute("b"));
+		assertEquals("<div><p a=\"3\">text</p><br></div>", document.getHtml());
+		assertTrue(document.check());
+
+		// copies for another document do not change the earlier copies
+		final Document other = new LagartoDOMBuilder().parse("<span></span>");
+		final Node[] third = fragment.cloneFor(other.getFirstChild());
+		assertEquals(other, third[0].getOwnerDocument());
+		assertEquals(other, third[0].getFirstChild().getOwnerDocument());
+		assertEquals(document, second[0].getOwnerDocument());
+		assertEquals(document, fragment.cloneFor(div)[1].getOwnerDocument());
+	}
 }
@@ -0,0 +1,94 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElementIndexTest {
+
+	@Test
+	void testElementsByTagAndClassName() {
+		final Document document = new LagartoDOMBuilder().parse(
+			"<div class='a b a'><p class='b'>1</p><P>2</P></div><p class=\"c\tb\"></p>");
+		final Element div = (Element) document.getFirstChild();
+
+		assertEquals(3, document.getElementsByTagName("p").size());
+		assertSame(div.getChild(1), document.getElementsByTagName("p").get(1));
+		assertEquals(1, document.getElementsByClassName("a").size());
+		assertEquals(3, document.getElementsByClassName("b").size());
+		assertEquals(0, document.getElementsByClassName("x").size());
+
+		div.getChild(0).detachFromParent();
+		assertEquals(2, document.getElementsByTagName("p").size());
+		assertEquals(2, document.getElementsByClassName("b").size());
+
+		div.setAttribute("class", "x");
+		assertEquals(1, document.getElementsByClassName("b").size());
+		assertSame(div, document.getElementsByClassName("x").get(0));
+
+		div.getAttributeInstance("class").setValue("y");
+		assertEquals(0, document.getElementsByClassName("x").size());
+
+		div.removeAttribute("class");
+		assertEquals(0, document.getElementsByClassName("y").size());
+
+		final Element span = new Element(document, "span");
+		span.setAttribute("class", "b");
+		Node.batch(nodeEditor -> nodeEditor.prepend(div, span));
+		assertSame(span, document.getElementsByClassName("b").get(0));
+
+		div.removeAllChilds();
+		assertEquals(1, document.getElementsByTagName("p").size());
+	}
+
+	@Test
+	void testSelectByIndex() {
+		final Document document = new LagartoDOMBuilder().parse(
+			"<ul><li class='item'>1</li><li class='item price'>2</li></ul><div class='price'><li class='item'>3</li></div>");
+
+		List<Node> nodes = new NodeSelector(document).select("li.item");
+		assertEquals(3, nodes.size());
+		assertEquals("1", nodes.get(0).getTextContent());
+		assertEquals("3", nodes.get(2).getTextContent());
+
+		assertEquals(2, new NodeSelector(document).select(".price").size());
+		assertEquals(1, new NodeSelector(document).select(".item.price").size());
+		assertEquals(1, new NodeSelector(document).select("div.price").size());
+		assertEquals(2, new NodeSelector(document).select("ul li").size());
+		assertEquals(2, new NodeSelector(document).select("li.item:last-child").size());
+		assertEquals(3, new NodeSelector(document).select("li, .item").size());
+
+		document.getFirstChild().getFirstChild().setAttribute("class", "price");
+		assertEquals(3, new NodeSelector(document).select(".price").size());
+		assertTrue(document.check());
+	}
+}
@@ -0,0 +1,154 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrozenDocumentTest {
+
+	@Test
+	void testFrozenDocumentIsReadOnly() {
+		final Document document = new LagartoDOMBuilder().parse("<div id='a' class='x'><p>one</p><p>two</p></div>");
+		final Element div = (Element) document.getFirstChild();
+		final Node p = div.getFirstChild();
+		final Text text = (Text) p.getFirstChild();
+
+		assertFalse(document.isFrozen());
+		assertSame(document, document.freeze());
+		assertTrue(document.isFrozen());
+		assertTrue(div.isFrozen());
+
+		assertThrows(LagartoDOMException.class, () -> div.setAttribute("id", "b"));
+		assertThrows(LagartoDOMException.class, () -> div.removeAttribute("class"));
+		assertThrows(LagartoDOMException.class, () -> div.getAttributeInstance("id").setValue("b"));
+		assertThrows(LagartoDOMException.class, () -> div.addChild(new Element(document, "b")));
+		assertThrows(LagartoDOMException.class, p::detachFromParent);
+		assertThrows(LagartoDOMException.class, div::removeAllChilds);
+		assertThrows(LagartoDOMException.class, () -> text.setNodeValue("three"));
+		assertThrows(LagartoDOMException.class, () -> Node.batch(nodeEditor -> nodeEditor.remove(p)));
+
+		assertEquals("<div id=\"a\" class=\"x\"><p>one</p><p>two</p></div>", document.getHtml());
+		assertSame(div, document.getElementById("a"));
+	}
+
+	@Test
+	void testCloneOfFrozenNode() {
+		final Document document = new LagartoDOMBuilder().parse("<div id='a' class='x'><p>one</p></div>").freeze();
+		final Element div = (Element) document.getFirstChild();
+
+		final Element clone = div.clone();
+		assertFalse(clone.isFrozen());
+		clone.setAttribute("id", "b");
+		clone.setAttribute("class", "y");
+		clone.getFirstChild().detachFromParent();
+
+		assertEquals("a", div.getAttribute("id"));
+		assertEquals(1, div.getChildNodesCount());
+		assertSame(div, document.getElementById("a"));
+		assertEquals(1, document.getElementsByClassName("x").size());
+		assertEquals(0, document.getElementsByClassName("y").size());
+	}
+
+	@Test
+	void testOrdinalsOfCloneOfFrozenNode() {
+		final StringBuilder html = new StringBuilder("<section>");
+		for (int i = 0; i < 3000; i++) {
+			html.append("<div><p>").append(i).append("</p></div>");
+		}
+		html.append("</section>");
+		final Document document = new LagartoDOMBuilder().parse(html.toString()).freeze();
+		final Element clone = ((Element) document.getFirstChild()).clone();
+
+		List<Node> nodes = new NodeSelector(clone).select("div p");
+		assertEquals(3000, nodes.size());
+		assertEquals("2999", nodes.get(2999).getTextContent());
+
+		// numbered once, the token is kept until the clone is modified
+		final Object token = clone.ordinalsStamp;
+		assertEquals(3000, new NodeSelector(clone).select("div p").size());
+		assertSame(token, clone.ordinalsStamp);
+		assertSame(token, nodes.get(0).ordinalsStamp);
+
+		final Element p = new Element(document, "p");
+		clone.getFirstChild().addChild(p);
+		assertNull(clone.ordinalsStamp);
+		assertTrue(clone.getFirstChild().contains(p));
+		assertTrue(p.compareDocumentPosition(nodes.get(1)) < 0);
+
+		nodes = new NodeSelector(clone).select("div p");
+		assertEquals(3001, nodes.size());
+		assertSame(p, nodes.get(1));
+	}
+
+	@Test
+	void testConcurrentQueries() throws Exception {
+		final StringBuilder html = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			html.append("<div class='row' id='r").append(i).append("'><p>").append(i).append("</p><span>x</span></div>");
+		}
+		final LagartoDOMBuilder domBuilder = new LagartoDOMBuilder();
+		domBuilder.getConfig().setSourceBackedValues(true);
+		final Document document = domBuilder.parse(html.toString()).freeze();
+
+		final Callable<Integer> query = () -> {
+			int count = 0;
+			for (int i = 0; i < 20; i++) {
+				count += new NodeSelector(document).select("div.row p:first-child").size();
+				count += new NodeSelector(document).select("#r" + i + " span").size();
+				count += new NodeSelector(document).select("div span:last-of-type").size();
+			}
+			return count;
+		};
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executorService.submit(query));
+			}
+			for (final Future<Integer> future : futures) {
+				assertEquals(20 * 401, future.get().intValue());
+			}
+		} finally {
+			executorService.shutdown();
+		}
+		assertTrue(document.check());
+	}
+}
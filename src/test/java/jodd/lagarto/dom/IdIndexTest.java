@@ -0,0 +1,153 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdIndexTest {
+
+	@Test
+	void testGetElementById() {
+		final Document document = new LagartoDOMBuilder().parse("<div id='a'><p id='b'>1</p><p id='b'>2</p></div>");
+		final Element div = (Element) document.getFirstChild();
+
+		assertSame(div, document.getElementById("a"));
+		assertSame(div.getChild(0), document.getElementById("b"));
+		assertNull(document.getElementById("c"));
+
+		div.getChild(0).detachFromParent();
+		assertSame(div.getChild(0), document.getElementById("b"));
+
+		div.detachFromParent();
+		assertNull(document.getElementById("a"));
+		assertNull(document.getElementById("b"));
+	}
+
+	@Test
+	void testIdChanges() {
+		final Document document = new LagartoDOMBuilder().parse("<div id='a'><p></p></div>");
+		final Element div = (Element) document.getFirstChild();
+		final Element p = (Element) div.getFirstChild();
+
+		p.setAttribute("id", "b");
+		assertSame(p, document.getElementById("b"));
+
+		div.setAttribute("id", "c");
+		assertNull(document.getElementById("a"));
+		assertSame(div, document.getElementById("c"));
+
+		p.getAttributeInstance("id").setValue("d");
+		assertNull(document.getElementById("b"));
+		assertSame(p, document.getElementById("d"));
+
+		p.removeAttribute("id");
+		assertNull(document.getElementById("d"));
+	}
+
+	@Test
+	void testAttachedSubtree() {
+		final Document document = new LagartoDOMBuilder().parse("<div></div>");
+		final Element div = (Element) document.getFirstChild();
+
+		final Element span = new Element(document, "span");
+		final Element b = new Element(document, "b");
+		b.setAttribute("id", "x");
+		span.addChild(b);
+		assertNull(document.getElementById("x"));
+
+		div.addChild(span);
+		assertSame(b, document.getElementById("x"));
+
+		final Element i = new Element(document, "i");
+		i.setAttribute("id", "y");
+		Node.batch(nodeEditor -> nodeEditor.append(div, i).remove(span));
+
+		assertSame(i, document.getElementById("y"));
+		assertNull(document.getElementById("x"));
+	}
+
+	@Test
+	void testDetachedTrees() {
+		final Document document = new LagartoDOMBuilder().parse("<div id='a'><p id='b'></p></div><span></span>");
+		final Element div = (Element) document.getFirstChild();
+		final Element span = (Element) document.getChild(1);
+
+		// detached tree with the same id
+		final Element copy = new Element(document, "p");
+		copy.setAttribute("id", "b");
+		final Element i = new Element(document, "i");
+		i.setAttribute("id", "c");
+		copy.addChild(i);
+		assertSame(div.getFirstChild(), document.getElementById("b"));
+		assertNull(document.getElementById("c"));
+
+		span.addChild(copy);
+		assertSame(i, document.getElementById("c"));
+		assertSame(div.getFirstChild(), document.getElementById("b"));
+		assertEquals(2, new NodeSelector(document).select("#b").size());
+
+		// moved within the document
+		div.addChild(span);
+		assertSame(i, document.getElementById("c"));
+		assertSame(div, document.getElementById("a"));
+
+		div.getFirstChild().detachFromParent();
+		assertSame(copy, document.getElementById("b"));
+	}
+
+	@Test
+	void testSelectById() {
+		final Document document = new LagartoDOMBuilder().parse(
+			"<div><p id='x'>1</p></div><span id='y'><b id='z'></b></span><b id='w'></b><b id='w'></b>");
+
+		List<Node> nodes = new NodeSelector(document).select("#x");
+		assertEquals(1, nodes.size());
+		assertSame(document.getElementById("x"), nodes.get(0));
+
+		assertEquals(1, new NodeSelector(document).select("div #x").size());
+		assertEquals(0, new NodeSelector(document).select("span #x").size());
+		assertEquals(0, new NodeSelector(document).select("span#x").size());
+		assertEquals(1, new NodeSelector(document).select("span > #z").size());
+		assertEquals(2, new NodeSelector(document).select("#w").size());
+
+		final Node span = document.getChild(1);
+		assertEquals(1, new NodeSelector(span).select("#z").size());
+		assertEquals(0, new NodeSelector(span).select("#x").size());
+		assertEquals(0, new NodeSelector(span).select("#y").size());
+
+		document.getElementById("x").setAttribute("id", "q");
+		assertEquals(0, new NodeSelector(document).select("#x").size());
+		assertEquals(1, new NodeSelector(document).select("#q").size());
+		assertTrue(document.check());
+	}
+}
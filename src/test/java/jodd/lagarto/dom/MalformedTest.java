@@ -225,6 +225,31 @@ class MalformedTest {
 		assertEquals("ABC<table><tr></tr></table>", html);
 	}
 
+	@Test
+	void testFosterNestedAndAdjacent() {
+		final LagartoDOMBuilder lagartoDOMBuilder = new LagartoDOMBuilder();
+		lagartoDOMBuilder.getConfig().setUseFosterRules(true);
+
+		assertEquals(
+			"<div>a<span>b</span></div><b>c</b><table><tr></tr></table>",
+			lagartoDOMBuilder.parse("<table><tr><div>a<span>b</span></div><b>c</b></tr></table>").getHtml());
+		assertEquals(
+			"<div>y</div><table><tr><span>x</span><table><tr></tr></table></tr></table>",
+			lagartoDOMBuilder.parse("<table><tr><div><table><tr><span>x</span></tr></table>y</div></tr></table>").getHtml());
+		assertEquals(
+			"<div></div><b>z</b><table><tr><tr></tr></tr></table>",
+			lagartoDOMBuilder.parse("<table><tr><div><tr><b>z</b></tr></div></tr></table>").getHtml());
+		assertEquals(
+			"<p>1</p><p>2<i>3</i></p><table><tbody><tr><td>4</td></tr></tbody></table>",
+			lagartoDOMBuilder.parse("<table><tbody><p>1</p><p>2<i>3</i></p><tr><td>4</td></tr></tbody></table>").getHtml());
+		assertEquals(
+			"<div><ul><li>a<em>b</em><table><tr></tr></table></li></ul><table><tr><td>c</td></tr></table></div>",
+			lagartoDOMBuilder.parse("<div><table><tr><ul><li>a<table><tr><em>b</em></tr></table></ul><td>c</td></tr></table></div>").getHtml());
+		assertEquals(
+			"<div><span>y</span></div><table><tr><td>x</td></tr></table>",
+			lagartoDOMBuilder.parse("<table><tr><div><td>x</td><span>y</span></div></tr></table>").getHtml());
+	}
+
 	@Test
 	void testBodyEnd() {
 		String html = "<body><p>111</body>";
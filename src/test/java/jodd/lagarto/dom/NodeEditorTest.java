@@ -0,0 +1,101 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NodeEditorTest {
+
+	@Test
+	void testBatchOperations() {
+		final Document document = new LagartoDOMBuilder().parse("<ul><li>1</li><li>2</li><li>3</li><li>4</li></ul><p></p>");
+		final Element ul = (Element) document.getFirstChild();
+		final Element p = (Element) document.getChild(1);
+		final Node[] items = ul.getChildNodes();
+
+		Node.batch(nodeEditor -> {
+			nodeEditor.remove(items[0]);
+			nodeEditor.insertAfter(items[3], items[1]);
+			nodeEditor.append(p, items[2]);
+			nodeEditor.prepend(p, items[0]);
+
+			// tree is not modified until the end of batch
+			assertEquals(4, ul.getChildNodesCount());
+		});
+
+		assertEquals("<ul><li>2</li><li>4</li></ul><p><li>1</li><li>3</li></p>", document.getHtml());
+		assertEquals(1, items[3].getSiblingIndex());
+		assertEquals(p, items[2].getParentNode());
+		assertTrue(document.check());
+	}
+
+	@Test
+	void testSequentialSemantics() {
+		final Document document = new LagartoDOMBuilder().parse("<div><a></a><b></b></div>");
+		final Element div = (Element) document.getFirstChild();
+		final Node a = div.getChild(0);
+		final Node b = div.getChild(1);
+		final Element i = new Element(document, "i");
+
+		Node.batch(nodeEditor -> nodeEditor
+			.insertBefore(i, a)
+			.insertAfter(a, b)
+			.remove(b));
+
+		assertEquals("<div><i></i><a></a></div>", document.getHtml());
+		assertNull(b.getParentNode());
+		assertTrue(document.check());
+	}
+
+	@Test
+	void testOwnerDocument() {
+		final Document document = new LagartoDOMBuilder().parse("<div><span></span></div>");
+		final Document fragment = new LagartoDOMBuilder().parse("<b><i>x</i></b>");
+		final Element div = (Element) document.getFirstChild();
+		final Node b = fragment.getFirstChild();
+
+		Node.batch(nodeEditor -> nodeEditor.append(div, b));
+
+		assertEquals(0, fragment.getChildNodesCount());
+		assertEquals(document, b.getOwnerDocument());
+		assertEquals(document, b.getFirstChild().getFirstChild().getOwnerDocument());
+		assertEquals("<div><span></span><b><i>x</i></b></div>", document.getHtml());
+	}
+
+	@Test
+	void testDetachedReferent() {
+		final Document document = new Document();
+		final Element element = new Element(document, "div");
+
+		assertThrows(LagartoDOMException.class,
+			() -> Node.batch(nodeEditor -> nodeEditor.insertBefore(new Element(document, "b"), element)));
+	}
+}
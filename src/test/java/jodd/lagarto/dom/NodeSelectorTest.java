@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -366,6 +367,52 @@ class NodeSelectorTest {
 		assertEquals("body", nodes.get(0).nodeName);
 	}
 
+	@Test
+	void testNestedRoots() {
+		Document document = new LagartoDOMBuilder().parse(
+			"<div id='a'><p>1</p><div id='b'><p>2</p><div id='c'><p>3</p></div></div><p>4</p></div>");
+
+		List<Node> nodes = new NodeSelector(document).select("div p");
+		assertEquals(4, nodes.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(String.valueOf(i + 1), nodes.get(i).getTextContent());
+		}
+
+		assertEquals(6, new NodeSelector(document).select("div div, p").size());
+		assertEquals(4, new NodeSelector(document).select("div ~ p, div > p").size());
+	}
+
+	@Test
+	void testSelectInClone() {
+		final StringBuilder html = new StringBuilder("<section>");
+		for (int i = 0; i < 300; i++) {
+			html.append("<div><p>").append(i).append("</p><div><p>").append(i).append("</p></div></div>");
+		}
+		html.append("</section>");
+		final Document document = new LagartoDOMBuilder().parse(html.toString());
+		final Element clone = ((Element) document.getFirstChild()).clone();
+		assertNull(clone.getParentNode());
+
+		for (int run = 0; run < 2; run++) {
+			final List<Node> nodes = new NodeSelector(clone).select("div p");
+			assertEquals(600, nodes.size());
+			for (int i = 0; i < 600; i++) {
+				assertEquals(String.valueOf(i / 2), nodes.get(i).getTextContent());
+				assertTrue(clone.contains(nodes.get(i)));
+			}
+		}
+
+		// order follows the changes of the clone
+		clone.insertChild(clone.getChild(299), 0);
+		final List<Node> nodes = new NodeSelector(clone).select("div p");
+		assertEquals(600, nodes.size());
+		assertEquals("299", nodes.get(0).getTextContent());
+		assertEquals("299", nodes.get(1).getTextContent());
+		assertEquals("0", nodes.get(2).getTextContent());
+		assertEquals("298", nodes.get(599).getTextContent());
+		assertFalse(document.contains(nodes.get(0)));
+	}
+
 
 	// ---------------------------------------------------------------- utils
 
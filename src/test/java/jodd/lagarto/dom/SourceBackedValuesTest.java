@@ -0,0 +1,108 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.dom;
+
+import jodd.io.FileUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceBackedValuesTest {
+
+	protected final String testDataRoot = this.getClass().getResource("data").getFile();
+
+	private LagartoDOMBuilder sourceBackedBuilder() {
+		final LagartoDOMBuilder domBuilder = new LagartoDOMBuilder();
+		domBuilder.getConfig().setSourceBackedValues(true);
+		return domBuilder;
+	}
+
+	@Test
+	void testValues() {
+		final Document document = sourceBackedBuilder().parse(
+			"<div id=\"main\" title='a &amp; b' class=x>Hello <b>wor&lt;ld</b></div>");
+
+		final Element div = (Element) document.getFirstChild();
+		final Text hello = (Text) div.getFirstChild();
+		final Text world = (Text) div.getChild(1).getFirstChild();
+
+		assertTrue(hello.isSourceBacked());
+		assertFalse(world.isSourceBacked());
+		assertEquals("Hello wor<ld", div.getTextContent());
+		assertTrue(hello.isSourceBacked());
+
+		assertTrue(div.getAttributeInstance("id").isSourceBacked());
+		assertFalse(div.getAttributeInstance("title").isSourceBacked());
+		assertTrue(div.getAttributeInstance("class").isSourceBacked());
+
+		assertEquals("main", div.getAttribute("id"));
+		assertEquals("a & b", div.getAttribute("title"));
+		assertEquals("x", div.getAttribute("class"));
+		assertFalse(div.getAttributeInstance("id").isSourceBacked());
+
+		assertEquals("Hello ", hello.getNodeValue());
+		assertFalse(hello.isSourceBacked());
+		assertEquals("wor<ld", world.getNodeValue());
+	}
+
+	@Test
+	void testModifyAndClone() {
+		final Document document = sourceBackedBuilder().parse("<p class=\"a\">text</p>");
+		final Element p = (Element) document.getFirstChild();
+
+		final Element clone = p.clone();
+		assertTrue(((Text) clone.getFirstChild()).isSourceBacked());
+		assertTrue(clone.getAttributeInstance("class").isSourceBacked());
+
+		p.setAttribute("class", "b");
+		p.getFirstChild().setNodeValue("new");
+
+		assertEquals("<p class=\"b\">new</p>", p.getHtml());
+		assertEquals("<p class=\"a\">text</p>", clone.getHtml());
+	}
+
+	@Test
+	void testSameAsRegular() throws IOException {
+		final File[] files = new File(testDataRoot).listFiles((dir, name) -> name.endsWith(".html"));
+
+		for (final File file : files) {
+			final String content = FileUtil.readString(file);
+			final Document regular = new LagartoDOMBuilder().parse(content);
+			final Document sourceBacked = sourceBackedBuilder().parse(content.toCharArray());
+
+			assertEquals(regular.getHtml(), sourceBacked.getHtml(), file.getName());
+			assertEquals(regular.getTextContent(), sourceBacked.getTextContent(), file.getName());
+			assertEquals(
+				new NodeSelector(regular).select("div p, a[href], [class~=foo]").size(),
+				new NodeSelector(sourceBacked).select("div p, a[href], [class~=foo]").size());
+		}
+	}
+}
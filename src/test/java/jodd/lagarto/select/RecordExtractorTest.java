@@ -0,0 +1,120 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import jodd.lagarto.LagartoParser;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordExtractorTest {
+
+	private static final String HTML =
+		"<div class=list>" +
+		"<div class=product data-id=7><h2>\n  Red <b>shoes</b>\n</h2>" +
+		"<span class=price>$1,299.50</span><a href='/p/7'>more</a><time datetime='2020-02-29'>x</time></div>" +
+		"<div class=product data-id=8><h2>Hat</h2><a href='/p/8'>more</a></div>" +
+		"</div>";
+
+	static class Product {
+		String name;
+		BigDecimal price;
+		URL url;
+		LocalDate date;
+	}
+
+	@Test
+	void testTypedRecords() {
+		final RecordSchema<Product> schema = new RecordSchema<>(".product", Product::new, null)
+			.text("h2", String::valueOf, (p, v) -> p.name = v)
+			.text(".price", FieldConverters.DECIMAL, (p, v) -> p.price = v)
+			.attr("a", "href", FieldConverters.url("http://jodd.org/shop/"), (p, v) -> p.url = v)
+			.attr("time", "datetime", FieldConverters.DATE, (p, v) -> p.date = v);
+
+		final List<Product> products = new ArrayList<>();
+		new LagartoParser(HTML).parse(new RecordExtractor<>(schema, products::add));
+
+		assertEquals(2, products.size());
+		assertEquals("Red shoes", products.get(0).name);
+		assertEquals(new BigDecimal("1299.50"), products.get(0).price);
+		assertEquals("http://jodd.org/p/7", products.get(0).url.toString());
+		assertEquals(LocalDate.of(2020, 2, 29), products.get(0).date);
+		assertEquals("Hat", products.get(1).name);
+		assertNull(products.get(1).price);
+	}
+
+	@Test
+	void testIterator() {
+		final RecordSchema<Map<String, Object>> schema = RecordSchema.ofMaps("div.product")
+			.attr("id", null, "data-id", FieldConverters.INT)
+			.text("name", "h2")
+			.attr("href", "a", "href");
+
+		final Iterator<Map<String, Object>> iterator = RecordExtractor.iterator(new LagartoParser(HTML), schema);
+
+		assertTrue(iterator.hasNext());
+		assertEquals("{id=7, name=Red shoes, href=/p/7}", iterator.next().toString());
+		assertTrue(iterator.hasNext());
+		assertEquals("{id=8, name=Hat, href=/p/8}", iterator.next().toString());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	void testIteratorRecordClosedAtEnd() {
+		final RecordSchema<Map<String, Object>> schema = RecordSchema.ofMaps("li")
+			.text("name", null);
+
+		final Iterator<Map<String, Object>> iterator = RecordExtractor.iterator(new LagartoParser("<ul><li>a</li><li>b"), schema);
+
+		assertTrue(iterator.hasNext());
+		assertEquals("{name=a}", iterator.next().toString());
+		assertTrue(iterator.hasNext());
+		assertEquals("{name=b}", iterator.next().toString());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	void testNumericConverters() {
+		assertEquals(Integer.valueOf(12), FieldConverters.INT.apply("12.50"));
+		assertEquals(Integer.valueOf(10), FieldConverters.INT.apply("10-20"));
+		assertEquals(Integer.valueOf(-5), FieldConverters.INT.apply("USD -5"));
+		assertEquals(Long.valueOf(1234567), FieldConverters.LONG.apply("1,234,567 items"));
+		assertEquals(new BigDecimal("1.234"), FieldConverters.DECIMAL.apply("1.234.567"));
+		assertEquals(new BigDecimal("1299.50"), FieldConverters.DECIMAL.apply("$1,299.50."));
+		assertNull(FieldConverters.INT.apply("n/a"));
+	}
+}
@@ -0,0 +1,107 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this
+//    list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright notice,
+//    this list of conditions and the following disclaimer in the documentation
+//    and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.lagarto.select;
+
+import jodd.lagarto.EmptyTagVisitor;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.Tag;
+import jodd.lagarto.dom.Document;
+import jodd.lagarto.dom.LagartoDOMBuilder;
+import jodd.lagarto.dom.Node;
+import jodd.lagarto.dom.NodeSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamSelectorTest {
+
+	private static final String HTML =
+		"<html><body><div id='main' class='box wide'><p lang='en-US'>one <a href='a.html'>a</a></p>" +
+		"<ul><li>1</li><li class='sel'>2<ul><li data-x='1'>3</li></ul></li></ul><br>" +
+		"<div class='box'><p>two</p><img src='x.png'></div></div><p>three</p></body></html>";
+
+	private List<String> stream(final String query) {
+		final StreamSelector streamSelector = new StreamSelector(query);
+		final OpenElementStack stack = new OpenElementStack();
+		final List<String> matched = new ArrayList<>();
+
+		final OpenElementStack.Handler handler = new OpenElementStack.Handler() {
+			@Override
+			public void elementStart(final OpenElement element, final Tag tag) {
+				if (streamSelector.matches(element)) {
+					matched.add(element.getName() + '@' + element.getDepth());
+				}
+			}
+			@Override
+			public void elementEnd(final OpenElement element, final Tag endTag) {
+			}
+		};
+
+		new LagartoParser(HTML).parse(new EmptyTagVisitor() {
+			@Override
+			public void tag(final Tag tag) {
+				stack.tag(tag, handler);
+			}
+		});
+		return matched;
+	}
+
+	@Test
+	void testMatchesAsDom() {
+		final Document document = new LagartoDOMBuilder().parse(HTML);
+		final NodeSelector nodeSelector = new NodeSelector(document);
+
+		final String[] queries = {
+			"p", "div p", "div > p", "#main > p", ".box", "div.box.wide", "ul li", "ul > li > ul > li",
+			"li[data-x]", "a[href$=html]", "p[lang|=en]", "body > *", "br, img", "div div p", "html li.sel li",
+			"li:first-child", "ul > li:nth-child(2)", "li:nth-child(odd)", ":root", "div > :first-child"
+		};
+
+		for (final String query : queries) {
+			final List<String> expected = new ArrayList<>();
+			for (final Node node : nodeSelector.select(query)) {
+				int depth = 0;
+				for (Node parent = node.getParentNode(); parent != document; parent = parent.getParentNode()) {
+					depth++;
+				}
+				expected.add(node.getNodeName() + '@' + (depth + 1));
+			}
+
+			assertEquals(expected, stream(query), query);
+		}
+	}
+
+	@Test
+	void testStack() {
+		final List<String> matched = stream("li");
+		assertEquals(3, matched.size());
+		assertEquals("li@5", matched.get(0));
+		assertEquals("li@7", matched.get(2));
+	}
+}